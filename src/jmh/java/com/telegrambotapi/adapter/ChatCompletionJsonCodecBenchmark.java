@@ -0,0 +1,67 @@
+package com.telegrambotapi.adapter;
+
+import com.telegrambotapi.benchmark.ChatFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construcción de peticiones y lectura de respuestas de {@link GrokAIAdapter}, que delega
+ * la codificación JSON en {@link ChatCompletionJsonCodec}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatCompletionJsonCodecBenchmark {
+    
+    private ChatCompletionJsonCodec codec;
+    private byte[] responseBody;
+    private String streamEvent;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        codec = new ChatCompletionJsonCodec();
+        responseBody = ("{\"id\":\"chatcmpl-8a1b2c\",\"object\":\"chat.completion\",\"created\":1700000000," +
+                        "\"model\":\"grok-beta\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\"," +
+                        "\"content\":\"" + ChatFixtures.AI_ADVICE.replace("\"", "\\\"").replace("\n", "\\n") +
+                        "\"},\"finish_reason\":\"stop\"}],\"usage\":{\"prompt_tokens\":412," +
+                        "\"completion_tokens\":96,\"total_tokens\":508}}").getBytes(StandardCharsets.UTF_8);
+        streamEvent = "{\"id\":\"chatcmpl-8a1b2c\",\"object\":\"chat.completion.chunk\"," +
+                      "\"choices\":[{\"index\":0,\"delta\":{\"content\":\" cambio de talla\"}}]}";
+    }
+    
+    @Benchmark
+    public byte[] writeSalesRequest() {
+        return codec.writeRequest("grok-beta", ChatFixtures.SALES_CONVERSATION, 1000, false);
+    }
+    
+    @Benchmark
+    public byte[] writeLongTranscriptRequest() {
+        return codec.writeRequest("grok-beta", ChatFixtures.LONG_TRANSCRIPT, 1000, false);
+    }
+    
+    @Benchmark
+    public String readCompletion() throws IOException {
+        return codec.readCompletion(responseBody).getContent();
+    }
+    
+    @Benchmark
+    public String readStreamDelta() throws IOException {
+        return codec.readDeltaContent(streamEvent);
+    }
+}
\ No newline at end of file
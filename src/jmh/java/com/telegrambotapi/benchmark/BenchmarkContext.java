@@ -0,0 +1,151 @@
+package com.telegrambotapi.benchmark;
+
+import com.telegrambotapi.adapter.AIServiceAdapter;
+import com.telegrambotapi.adapter.TelegramBotAdapter;
+import com.telegrambotapi.adapter.TelegramOutboundQueue;
+import com.telegrambotapi.config.SpringConfiguration;
+import com.telegrambotapi.service.JokeBotService;
+import com.telegrambotapi.service.SalesAdvisorService;
+import com.telegrambotapi.service.StreamingReplyService;
+import com.telegrambotapi.service.TelegramBotService;
+import com.telegrambotapi.state.ChatStateStore;
+import com.telegrambotapi.stats.BotStatistics;
+import com.telegrambotapi.strategy.JokeGenerationStrategy;
+import com.telegrambotapi.strategy.PromptTrimmer;
+import com.telegrambotapi.strategy.PurchaseMotivationStrategy;
+import com.telegrambotapi.strategy.RefundRejectionStrategy;
+import com.telegrambotapi.strategy.ResponseCache;
+import com.telegrambotapi.strategy.ResponseContext;
+import com.telegrambotapi.strategy.UpsellingStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Contexto Spring mínimo con los servicios reales del bot para los benchmarks.
+ * La IA responde al instante con texto fijo y los envíos a Telegram no salen del proceso,
+ * de modo que solo se mide el código propio de la aplicación.
+ */
+public final class BenchmarkContext implements AutoCloseable {
+    
+    private final AnnotationConfigApplicationContext context;
+    
+    public BenchmarkContext() {
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.register(
+            SpringConfiguration.class,
+            CannedAIServiceAdapter.class,
+            LocalTelegramAdapter.class,
+            TelegramOutboundQueue.class,
+            ChatStateStore.class,
+            ResponseCache.class,
+            PromptTrimmer.class,
+            BotStatistics.class,
+            JokeGenerationStrategy.class,
+            RefundRejectionStrategy.class,
+            UpsellingStrategy.class,
+            PurchaseMotivationStrategy.class,
+            ResponseContext.class,
+            JokeBotService.class,
+            SalesAdvisorService.class,
+            StreamingReplyService.class,
+            TelegramBotService.class);
+        context.refresh();
+    }
+    
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+    
+    @Override
+    public void close() {
+        context.close();
+    }
+    
+    /**
+     * Proveedor de IA que responde de inmediato con texto fijo
+     */
+    public static class CannedAIServiceAdapter implements AIServiceAdapter {
+        
+        @Override
+        public String generateResponse(String prompt) {
+            return ChatFixtures.AI_ADVICE;
+        }
+        
+        @Override
+        public String generateJoke(String conversationContext) {
+            return ChatFixtures.AI_JOKE;
+        }
+        
+        @Override
+        public String analyzeSalesConversation(String conversation, String objective) {
+            return ChatFixtures.AI_ADVICE;
+        }
+        
+        @Override
+        public CompletableFuture<String> generateResponseAsync(String prompt) {
+            return CompletableFuture.completedFuture(ChatFixtures.AI_ADVICE);
+        }
+        
+        @Override
+        public CompletableFuture<String> generateResponseStreaming(String prompt,
+                                                                   Consumer<Supplier<String>> onPartial) {
+            onPartial.accept(() -> ChatFixtures.AI_ADVICE);
+            return CompletableFuture.completedFuture(ChatFixtures.AI_ADVICE);
+        }
+        
+        @Override
+        public CompletableFuture<String> generateJokeAsync(String conversationContext) {
+            return CompletableFuture.completedFuture(ChatFixtures.AI_JOKE);
+        }
+        
+        @Override
+        public CompletableFuture<String> analyzeSalesConversationAsync(String conversation, String objective) {
+            return CompletableFuture.completedFuture(ChatFixtures.AI_ADVICE);
+        }
+        
+        @Override
+        public CompletableFuture<String> analyzeSalesConversationStreaming(String conversation, String objective,
+                                                                           Consumer<Supplier<String>> onPartial) {
+            onPartial.accept(() -> ChatFixtures.AI_ADVICE);
+            return CompletableFuture.completedFuture(ChatFixtures.AI_ADVICE);
+        }
+        
+        @Override
+        public boolean isServiceAvailable() {
+            return true;
+        }
+    }
+    
+    /**
+     * Adaptador de Telegram que acepta todos los envíos sin realizarlos;
+     * la cola de salida existe pero nunca recibe peticiones
+     */
+    public static class LocalTelegramAdapter extends TelegramBotAdapter {
+        
+        @Override
+        public void registerSender() {
+            // Sin cola de salida: los envíos se resuelven localmente
+        }
+        
+        @Override
+        public boolean sendTextMessage(String chatId, String text) {
+            return true;
+        }
+        
+        @Override
+        public CompletableFuture<Integer> sendTextMessageAsync(String chatId, String text) {
+            return CompletableFuture.completedFuture(1);
+        }
+        
+        @Override
+        public CompletableFuture<Boolean> editTextMessageAsync(String chatId, Integer messageId, String text) {
+            return CompletableFuture.completedFuture(true);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,113 @@
+package com.telegrambotapi.benchmark;
+
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+/**
+ * Datos de chat realistas en español para los benchmarks: mensajes de grupo,
+ * conversaciones de venta y updates de Telegram ya construidos.
+ */
+public final class ChatFixtures {
+    
+    public static final long GROUP_CHAT_ID = -1001234567890L;
+    public static final long PRIVATE_CHAT_ID = 987654321L;
+    
+    public static final String[] USER_NAMES = {"María", "Carlos", "Lucía", "Javier", "Sofía"};
+    
+    public static final String[] GROUP_MESSAGES = {
+        "¿Alguien vio el partido de anoche? El Madrid remontó en el último minuto",
+        "Yo lo vi en el bar de la esquina, casi se cae el techo con los gritos",
+        "Pues yo me quedé dormida en el descanso, como siempre 😅",
+        "Mañana hay reunión a las 9, no lleguéis tarde que el jefe está de mal humor",
+        "¿Quién se apunta a comer paella el sábado? Invito yo a las cervezas",
+        "Yo me apunto, pero llevo postre que la última vez nadie trajo nada",
+        "Acabo de descubrir que mi gato sabe abrir la nevera, estoy preocupado",
+        "Eso es que le das poca comida, los gatos no perdonan",
+        "¿Alguien sabe si el gimnasio abre en festivo? Quiero compensar la paella",
+        "Creo que abre de 10 a 14, pero mejor llama antes por si acaso",
+        "Hoy he intentado cocinar lentejas y ha salido algo parecido a cemento",
+        "La próxima vez ponlas en remojo la noche anterior, que no es magia",
+        "¿Vamos al concierto del viernes? Todavía quedan entradas en la web",
+        "Si tocan las canciones antiguas voy seguro, las nuevas no me convencen",
+        "El tráfico de hoy ha sido increíble, una hora para hacer diez kilómetros",
+        "Por eso yo voy en bici, aunque llegue sudando a la oficina"
+    };
+    
+    private static final String[] SALES_DIALOGUE = {
+        "Cliente: Hola, compré unas zapatillas de running hace dos semanas y quiero devolverlas.",
+        "Vendedor: Hola, gracias por escribirnos. ¿Podrías contarme qué problema has tenido con ellas?",
+        "Cliente: Me quedan un poco justas en la punta y después de correr 10 km me duelen los dedos.",
+        "Vendedor: Entiendo. ¿Las has usado en exterior? Nuestra política solo admite devoluciones sin uso.",
+        "Cliente: Sí, salí a correr tres veces, pero pensaba que se adaptarían al pie con el tiempo.",
+        "Vendedor: Es normal que el tejido ceda un poco. También tenemos plantillas que dan más espacio.",
+        "Cliente: No sé, la verdad es que pagué 120 euros y esperaba que fueran cómodas desde el principio.",
+        "Vendedor: Lo comprendo perfectamente. Podemos ofrecerte un cambio por media talla más sin coste."
+    };
+    
+    /**
+     * Conversación de venta típica (unos 700 caracteres)
+     */
+    public static final String SALES_CONVERSATION = String.join("\n", SALES_DIALOGUE);
+    
+    /**
+     * Transcripción larga, cercana al máximo de 10.000 caracteres que admite el bot
+     */
+    public static final String LONG_TRANSCRIPT = buildLongTranscript(9500);
+    
+    public static final String AI_ADVICE =
+        "1. Análisis: el cliente está insatisfecho con el ajuste, pero abierto a alternativas.\n" +
+        "2. Estrategia: ofrecer el cambio de talla y destacar la garantía de comodidad.\n" +
+        "3. Frases: \"Queremos que disfrutes de cada kilómetro, por eso te proponemos...\"\n" +
+        "4. Evitar: discutir la política de devoluciones o culpar al cliente del uso.";
+    
+    public static final String AI_JOKE =
+        "¿Por qué el gato abrió la nevera? ¡Porque quería ver si la paella del sábado ya estaba lista!";
+    
+    private ChatFixtures() {
+    }
+    
+    private static String buildLongTranscript(int targetLength) {
+        StringBuilder transcript = new StringBuilder(targetLength + 200);
+        int turn = 0;
+        while (transcript.length() < targetLength) {
+            transcript.append(SALES_DIALOGUE[turn % SALES_DIALOGUE.length]).append('\n');
+            turn++;
+        }
+        return transcript.toString();
+    }
+    
+    /**
+     * Construye un update de texto de un grupo
+     */
+    public static Update groupUpdate(int updateId, String userName, String text) {
+        Chat chat = new Chat(GROUP_CHAT_ID, "group");
+        chat.setTitle("Amigos del trabajo");
+        return update(updateId, chat, userName, text);
+    }
+    
+    /**
+     * Construye un update de texto de un chat privado
+     */
+    public static Update privateUpdate(int updateId, String text) {
+        return update(updateId, new Chat(PRIVATE_CHAT_ID, "private"), "María", text);
+    }
+    
+    private static Update update(int updateId, Chat chat, String userName, String text) {
+        User user = new User(1000L + userName.hashCode() % 1000, userName, false);
+        user.setUserName(userName.toLowerCase());
+        
+        Message message = new Message();
+        message.setMessageId(updateId);
+        message.setDate((int) (System.currentTimeMillis() / 1000));
+        message.setChat(chat);
+        message.setFrom(user);
+        message.setText(text);
+        
+        Update update = new Update();
+        update.setUpdateId(updateId);
+        update.setMessage(message);
+        return update;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.telegrambotapi.service;
+
+import com.telegrambotapi.benchmark.BenchmarkContext;
+import com.telegrambotapi.benchmark.ChatFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mensajes de grupo en {@link JokeBotService}: registro en el contexto del chat, programación
+ * del chiste automático en la rueda de temporización y construcción del contexto enviado a la IA.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JokeBotServiceBenchmark {
+    
+    private static final String GROUP_CHAT = String.valueOf(ChatFixtures.GROUP_CHAT_ID);
+    private static final String FULL_CONTEXT_CHAT = "-100999";
+    
+    private BenchmarkContext context;
+    private JokeBotService jokeBotService;
+    private int next;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new BenchmarkContext();
+        jokeBotService = context.getBean(JokeBotService.class);
+        
+        // Chat con el contexto lleno (10 mensajes) para medir su construcción
+        for (int i = 0; i < ChatFixtures.GROUP_MESSAGES.length; i++) {
+            jokeBotService.processMessage(FULL_CONTEXT_CHAT, ChatFixtures.GROUP_MESSAGES[i],
+                                          ChatFixtures.USER_NAMES[i % ChatFixtures.USER_NAMES.length]);
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public void processMessage() {
+        int index = next;
+        next = (next + 1) % ChatFixtures.GROUP_MESSAGES.length;
+        jokeBotService.processMessage(GROUP_CHAT, ChatFixtures.GROUP_MESSAGES[index],
+                                             ChatFixtures.USER_NAMES[index % ChatFixtures.USER_NAMES.length]);
+    }
+    
+    @Benchmark
+    public String buildConversationContext() {
+        return jokeBotService.buildConversationContext(FULL_CONTEXT_CHAT);
+    }
+}
\ No newline at end of file
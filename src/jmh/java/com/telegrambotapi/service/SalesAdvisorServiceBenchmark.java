@@ -0,0 +1,74 @@
+package com.telegrambotapi.service;
+
+import com.telegrambotapi.benchmark.BenchmarkContext;
+import com.telegrambotapi.benchmark.ChatFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validación y formato de conversaciones en {@link SalesAdvisorService}, incluido
+ * el análisis servido desde la caché de respuestas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SalesAdvisorServiceBenchmark {
+    
+    private static final String ADVISOR_CHAT = String.valueOf(ChatFixtures.PRIVATE_CHAT_ID);
+    
+    private BenchmarkContext context;
+    private SalesAdvisorService salesAdvisorService;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new BenchmarkContext();
+        salesAdvisorService = context.getBean(SalesAdvisorService.class);
+        // Primera llamada: deja el análisis en la caché
+        salesAdvisorService.analyzeForUpsellingAsync(ChatFixtures.SALES_CONVERSATION, ADVISOR_CHAT).join();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public boolean isValidConversation() {
+        return salesAdvisorService.isValidConversation(ChatFixtures.SALES_CONVERSATION);
+    }
+    
+    @Benchmark
+    public boolean isValidLongTranscript() {
+        return salesAdvisorService.isValidConversation(ChatFixtures.LONG_TRANSCRIPT);
+    }
+    
+    @Benchmark
+    public String formatAdvice() {
+        return salesAdvisorService.formatAdvice("🎯 ESTRATEGIA DE UPSELLING", ChatFixtures.AI_ADVICE);
+    }
+    
+    @Benchmark
+    public String analyzeFromCache() {
+        return salesAdvisorService.analyzeForUpsellingAsync(ChatFixtures.SALES_CONVERSATION, ADVISOR_CHAT).join();
+    }
+    
+    @Benchmark
+    public String provideGeneralAnalysis() {
+        return salesAdvisorService.provideGeneralAnalysis(ChatFixtures.SALES_CONVERSATION, ADVISOR_CHAT);
+    }
+}
\ No newline at end of file
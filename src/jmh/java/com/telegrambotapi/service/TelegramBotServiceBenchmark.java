@@ -0,0 +1,73 @@
+package com.telegrambotapi.service;
+
+import com.telegrambotapi.benchmark.BenchmarkContext;
+import com.telegrambotapi.benchmark.ChatFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Despacho completo de un update en {@link TelegramBotService#processUpdate}: extracción de datos,
+ * estado del chat, selección del comando y construcción de la respuesta.
+ * Los comandos de ventas se responden desde la caché tras la primera iteración.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TelegramBotServiceBenchmark {
+    
+    @Param({"/help", "/estado", "/chiste", "/upselling", "grupo"})
+    private String message;
+    
+    private BenchmarkContext context;
+    private TelegramBotService telegramBotService;
+    private Update[] updates;
+    private int next;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new BenchmarkContext();
+        telegramBotService = context.getBean(TelegramBotService.class);
+        
+        String[] texts = ChatFixtures.GROUP_MESSAGES;
+        updates = new Update[texts.length];
+        for (int i = 0; i < texts.length; i++) {
+            String user = ChatFixtures.USER_NAMES[i % ChatFixtures.USER_NAMES.length];
+            if ("grupo".equals(message)) {
+                updates[i] = ChatFixtures.groupUpdate(i, user, texts[i]);
+            } else if ("/upselling".equals(message)) {
+                updates[i] = ChatFixtures.privateUpdate(i, message + " " + ChatFixtures.SALES_CONVERSATION);
+            } else {
+                updates[i] = ChatFixtures.privateUpdate(i, message);
+            }
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public Object processUpdate() {
+        Update update = updates[next];
+        next = (next + 1) % updates.length;
+        return telegramBotService.processUpdate(update).join();
+    }
+}
\ No newline at end of file
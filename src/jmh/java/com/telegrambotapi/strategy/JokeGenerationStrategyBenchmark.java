@@ -0,0 +1,71 @@
+package com.telegrambotapi.strategy;
+
+import com.telegrambotapi.benchmark.ChatFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtro de temas sensibles de {@link JokeGenerationStrategy#isAppropriateForJoke} sobre un
+ * contexto de grupo completo, sin temas sensibles (recorrido completo) y con uno al final.
+ * El léxico de 1000 términos comprueba que el coste no crece con el tamaño del léxico.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JokeGenerationStrategyBenchmark {
+    
+    private JokeGenerationStrategy strategy;
+    private String appropriateContext;
+    private String sensitiveContext;
+    private TopicMatcher largeLexicon;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        strategy = new JokeGenerationStrategy();
+        
+        StringBuilder context = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            context.append(ChatFixtures.USER_NAMES[i % ChatFixtures.USER_NAMES.length]).append(": ")
+                   .append(ChatFixtures.GROUP_MESSAGES[i]).append('\n');
+        }
+        appropriateContext = context.toString();
+        sensitiveContext = appropriateContext + "Sofía: Qué triste lo del accidente de ayer en la autopista\n";
+        
+        List<String> terms = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            terms.add("tema" + Integer.toString(i, 36) + "*");
+        }
+        largeLexicon = TopicMatcher.compile(terms);
+    }
+    
+    @Benchmark
+    public boolean appropriateContext() {
+        return strategy.isAppropriateForJoke(appropriateContext);
+    }
+    
+    @Benchmark
+    public boolean sensitiveContext() {
+        return strategy.isAppropriateForJoke(sensitiveContext);
+    }
+    
+    @Benchmark
+    public boolean largeLexiconAppropriateContext() {
+        return largeLexicon.matches(appropriateContext);
+    }
+}
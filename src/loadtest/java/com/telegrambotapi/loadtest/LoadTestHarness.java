@@ -0,0 +1,308 @@
+package com.telegrambotapi.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.telegrambotapi.TelegramBotApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de carga extremo a extremo: arranca el stub de IA, el stub de la Bot API y la aplicación
+ * Spring real en modo webhook, y simula miles de chats privados que envían comandos de ventas.
+ * <p>
+ * Cada chat funciona en bucle cerrado: envía un update, espera la respuesta final en el stub de
+ * Telegram y, tras el tiempo de reflexión, envía el siguiente. Al terminar se informa del
+ * throughput, la latencia extremo a extremo (p50/p90/p99/máx.) y las llamadas a la IA por update.
+ * <p>
+ * Opciones del arnés ({@code --load.*} y {@code --stub.*}); el resto de argumentos se pasa a Spring:
+ * <ul>
+ *   <li>{@code load.chats} (1000), {@code load.updates-per-chat} (3), {@code load.think-time-ms} (0),
+ *       {@code load.ramp-up-ms} (5000), {@code load.timeout-seconds} (300)</li>
+ *   <li>{@code load.distinct-conversations}: 0 = cada update con una conversación única; N = se
+ *       reparten N conversaciones (ejercita la caché y la deduplicación)</li>
+ *   <li>{@code load.streaming} (false): activa las respuestas de IA en streaming</li>
+ *   <li>{@code stub.ai.median-ms} (800), {@code stub.ai.p99-ms} (3000), {@code stub.ai.error-rate} (0),
+ *       {@code stub.ai.rate-limit-rate} (0), {@code stub.ai.stream-chunks} (20)</li>
+ * </ul>
+ */
+public final class LoadTestHarness {
+    
+    private static final String WEBHOOK_SECRET = "loadtest-secret";
+    private static final String[] COMMANDS = {"/upselling", "/rechazar_devolucion", "/motivar_compra"};
+    private static final String CONVERSATION_TEMPLATE =
+        "Cliente: Hola, estoy mirando el portátil de 15 pulgadas, referencia %d.\n" +
+        "Vendedor: Buena elección, ¿para qué lo vas a usar?\n" +
+        "Cliente: Trabajo y algo de edición de vídeo, pero me parece un poco caro.\n" +
+        "Vendedor: Tenemos financiación y la garantía ampliada sale a cuenta.\n";
+    
+    private final Map<String, String> options;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+    private final ScheduledExecutorService scheduler =
+        Executors.newScheduledThreadPool(4, StubAIServer.daemon("load-driver"));
+    
+    private final Map<String, ChatDriver> drivers = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Long> latenciesNanos = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger updateIds = new AtomicInteger();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong replies = new AtomicLong();
+    private final AtomicLong errorReplies = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong unexpectedReplies = new AtomicLong();
+    
+    private CountDownLatch finishedChats;
+    private URI webhookUri;
+    
+    private LoadTestHarness(Map<String, String> options) {
+        this.options = options;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> springArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--load.") || arg.startsWith("--stub.")) {
+                int separator = arg.indexOf('=');
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            } else if (!arg.isBlank()) {
+                springArgs.add(arg);
+            }
+        }
+        int exitCode = new LoadTestHarness(options).run(springArgs);
+        System.exit(exitCode);
+    }
+    
+    private int run(List<String> extraSpringArgs) throws Exception {
+        int chats = intOption("load.chats", 1000);
+        int updatesPerChat = intOption("load.updates-per-chat", 3);
+        long timeoutSeconds = intOption("load.timeout-seconds", 300);
+        
+        try (StubAIServer aiServer = new StubAIServer(
+                 doubleOption("stub.ai.median-ms", 800), doubleOption("stub.ai.p99-ms", 3000),
+                 doubleOption("stub.ai.error-rate", 0), doubleOption("stub.ai.rate-limit-rate", 0),
+                 intOption("stub.ai.stream-chunks", 20));
+             StubTelegramServer telegramServer = new StubTelegramServer(this::onReply)) {
+            
+            ConfigurableApplicationContext app = startApplication(aiServer, telegramServer, extraSpringArgs);
+            int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+            webhookUri = URI.create("http://127.0.0.1:" + port + "/api/telegram/webhook");
+            
+            finishedChats = new CountDownLatch(chats);
+            long rampUpMs = intOption("load.ramp-up-ms", 5000);
+            long startNanos = System.nanoTime();
+            for (int i = 0; i < chats; i++) {
+                ChatDriver driver = new ChatDriver(String.valueOf(1_000_000L + i), updatesPerChat);
+                drivers.put(driver.chatId, driver);
+                long delayMs = rampUpMs > 0 ? ThreadLocalRandom.current().nextLong(rampUpMs) : 0;
+                scheduler.schedule(driver::sendNext, delayMs, TimeUnit.MILLISECONDS);
+            }
+            
+            boolean completed = finishedChats.await(timeoutSeconds, TimeUnit.SECONDS);
+            long elapsedNanos = System.nanoTime() - startNanos;
+            printReport(chats, updatesPerChat, completed, elapsedNanos, aiServer, telegramServer);
+            
+            scheduler.shutdownNow();
+            app.close();
+            return completed ? 0 : 1;
+        }
+    }
+    
+    private ConfigurableApplicationContext startApplication(StubAIServer aiServer,
+                                                            StubTelegramServer telegramServer,
+                                                            List<String> extraSpringArgs) throws IOException {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("telegram.bot.token", "123456:loadtest");
+        properties.put("telegram.bot.username", "loadtest_bot");
+        properties.put("telegram.api.base-url", telegramServer.getBaseUrl());
+        properties.put("ai.api.url", aiServer.getUrl());
+        properties.put("ai.api.key", "loadtest");
+        properties.put("bot.ingestion.mode", "webhook");
+        properties.put("bot.webhook.url", "https://loadtest.invalid/api/telegram/webhook");
+        properties.put("bot.webhook.secret-token", WEBHOOK_SECRET);
+        properties.put("bot.streaming.enabled", options.getOrDefault("load.streaming", "false"));
+        // Cada ejecución parte de un estado vacío, sin tocar el directorio de datos real
+        properties.put("bot.persistence.dir", Files.createTempDirectory("loadtest-chat-state").toString());
+        // Los límites de Telegram no aplican al stub; solo se mantiene el límite por chat
+        properties.put("bot.outbound.global-per-second", "1000");
+        properties.put("logging.level.com.telegrambotapi", "WARN");
+        
+        // Los argumentos explícitos sustituyen a los anteriores (Spring uniría los repetidos con comas)
+        List<String> springArgs = new ArrayList<>();
+        for (String arg : extraSpringArgs) {
+            int separator = arg.indexOf('=');
+            if (arg.startsWith("--") && separator > 2) {
+                properties.put(arg.substring(2, separator), arg.substring(separator + 1));
+            } else {
+                springArgs.add(arg);
+            }
+        }
+        properties.forEach((name, value) -> springArgs.add("--" + name + "=" + value));
+        return SpringApplication.run(TelegramBotApplication.class, springArgs.toArray(new String[0]));
+    }
+    
+    private void onReply(String chatId, String text) {
+        ChatDriver driver = drivers.get(chatId);
+        if (driver == null) {
+            unexpectedReplies.incrementAndGet();
+            return;
+        }
+        driver.onReply(text);
+    }
+    
+    private String buildUpdate(String chatId, String text) throws IOException {
+        long now = System.currentTimeMillis() / 1000;
+        Map<String, Object> user = Map.of("id", Long.parseLong(chatId), "is_bot", false,
+                                          "first_name", "Cliente" + chatId);
+        Map<String, Object> message = Map.of(
+            "message_id", updateIds.get(),
+            "date", now,
+            "chat", Map.of("id", Long.parseLong(chatId), "type", "private"),
+            "from", user,
+            "text", text);
+        return objectMapper.writeValueAsString(Map.of("update_id", updateIds.incrementAndGet(), "message", message));
+    }
+    
+    private String nextCommandText(String chatId, int sequence) {
+        String command = COMMANDS[ThreadLocalRandom.current().nextInt(COMMANDS.length)];
+        int distinct = intOption("load.distinct-conversations", 0);
+        long reference = distinct > 0
+            ? ThreadLocalRandom.current().nextInt(distinct)
+            : Long.parseLong(chatId) * 1000 + sequence;
+        return command + " " + String.format(CONVERSATION_TEMPLATE, reference);
+    }
+    
+    private void printReport(int chats, int updatesPerChat, boolean completed, long elapsedNanos,
+                             StubAIServer aiServer, StubTelegramServer telegramServer) {
+        long[] latencies = latenciesNanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        double elapsedSeconds = elapsedNanos / 1e9;
+        long accepted = sent.get() - rejected.get();
+        
+        System.out.println();
+        System.out.println("==================== PRUEBA DE CARGA ====================");
+        System.out.printf("Chats: %d, updates por chat: %d, completado: %s%n",
+                          chats, updatesPerChat, completed ? "sí" : "no (timeout)");
+        System.out.printf("Duración:                 %.1f s%n", elapsedSeconds);
+        System.out.printf("Updates enviados:         %d (rechazados con 503: %d)%n", sent.get(), rejected.get());
+        System.out.printf("Respuestas recibidas:     %d (con error: %d, sin respuesta: %d)%n",
+                          replies.get(), errorReplies.get(), Math.max(0, accepted - replies.get()));
+        System.out.printf("Throughput:               %.1f respuestas/s%n", replies.get() / elapsedSeconds);
+        System.out.printf("Latencia e2e p50:         %d ms%n", percentileMs(latencies, 0.50));
+        System.out.printf("Latencia e2e p90:         %d ms%n", percentileMs(latencies, 0.90));
+        System.out.printf("Latencia e2e p99:         %d ms%n", percentileMs(latencies, 0.99));
+        System.out.printf("Latencia e2e máx.:        %d ms%n", percentileMs(latencies, 1.0));
+        System.out.printf("Llamadas a la IA:         %d (streaming: %d, 503 inyectados: %d, 429 inyectados: %d)%n",
+                          aiServer.getRequestCount(), aiServer.getStreamedRequestCount(),
+                          aiServer.getInjectedErrors(), aiServer.getInjectedRateLimits());
+        System.out.printf("Llamadas IA por update:   %.3f%n",
+                          accepted > 0 ? (double) aiServer.getRequestCount() / accepted : 0.0);
+        System.out.printf("Llamadas a Telegram:      %d (sendMessage: %d, editMessageText: %d)%n",
+                          telegramServer.getTotalCalls(), telegramServer.getCalls("sendMessage"),
+                          telegramServer.getCalls("editMessageText"));
+        if (unexpectedReplies.get() > 0) {
+            System.out.printf("Respuestas a chats desconocidos: %d%n", unexpectedReplies.get());
+        }
+        System.out.println("=========================================================");
+    }
+    
+    private static long percentileMs(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(sortedNanos[Math.max(0, index)]);
+    }
+    
+    private int intOption(String name, int defaultValue) {
+        String value = options.get(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+    
+    private double doubleOption(String name, double defaultValue) {
+        String value = options.get(name);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+    
+    /**
+     * Chat simulado en bucle cerrado: como mucho un update pendiente de respuesta
+     */
+    private final class ChatDriver {
+        
+        private final String chatId;
+        private final int totalUpdates;
+        private int sentUpdates;
+        private long pendingSinceNanos;
+        
+        ChatDriver(String chatId, int totalUpdates) {
+            this.chatId = chatId;
+            this.totalUpdates = totalUpdates;
+        }
+        
+        synchronized void sendNext() {
+            if (sentUpdates >= totalUpdates) {
+                finishedChats.countDown();
+                return;
+            }
+            sentUpdates++;
+            String body;
+            try {
+                body = buildUpdate(chatId, nextCommandText(chatId, sentUpdates));
+            } catch (IOException e) {
+                throw new IllegalStateException("No se pudo serializar el update", e);
+            }
+            
+            pendingSinceNanos = System.nanoTime();
+            sent.incrementAndGet();
+            HttpRequest request = HttpRequest.newBuilder(webhookUri)
+                .header("Content-Type", "application/json")
+                .header("X-Telegram-Bot-Api-Secret-Token", WEBHOOK_SECRET)
+                .timeout(Duration.ofSeconds(10))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    if (error != null || response.statusCode() != 200) {
+                        // Update no aceptado: no habrá respuesta, se pasa al siguiente
+                        rejected.incrementAndGet();
+                        scheduleNext();
+                    }
+                });
+        }
+        
+        synchronized void onReply(String text) {
+            latenciesNanos.add(System.nanoTime() - pendingSinceNanos);
+            replies.incrementAndGet();
+            if (text.startsWith("❌")) {
+                errorReplies.incrementAndGet();
+            }
+            scheduleNext();
+        }
+        
+        private void scheduleNext() {
+            scheduler.schedule(this::sendNext, intOption("load.think-time-ms", 0), TimeUnit.MILLISECONDS);
+        }
+    }
+}
\ No newline at end of file
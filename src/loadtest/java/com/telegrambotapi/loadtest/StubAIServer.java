@@ -0,0 +1,200 @@
+package com.telegrambotapi.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stub local de la API de chat completions.
+ * La latencia sigue una distribución log-normal definida por su mediana y su p99, y una fracción
+ * configurable de peticiones responde 503 o 429. Las peticiones con {@code "stream": true}
+ * reciben la respuesta en Server-Sent Events, repartida en varios fragmentos.
+ * Las esperas se programan en un planificador, sin ocupar un hilo por petición.
+ */
+public final class StubAIServer implements AutoCloseable {
+    
+    private static final String ADVICE =
+        "1. Análisis: el cliente duda por el precio, pero valora la calidad del producto. " +
+        "2. Estrategia: destacar el ahorro a largo plazo y ofrecer la garantía ampliada. " +
+        "3. Frases: \"Con esta opción te olvidas de cambiarlo en años\". " +
+        "4. Evitar: presionar con descuentos de última hora.";
+    // z de la normal estándar para el percentil 99
+    private static final double Z_99 = 2.326;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final double logMedian;
+    private final double sigma;
+    private final double errorRate;
+    private final double rateLimitRate;
+    private final int streamChunks;
+    
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final ScheduledExecutorService scheduler;
+    
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong streamedRequests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong injectedRateLimits = new AtomicLong();
+    
+    /**
+     * @param medianMs latencia mediana hasta la respuesta completa
+     * @param p99Ms latencia del percentil 99 (debe ser mayor o igual que la mediana)
+     * @param errorRate fracción de peticiones que responden 503
+     * @param rateLimitRate fracción de peticiones que responden 429 con Retry-After: 1
+     * @param streamChunks fragmentos en que se divide una respuesta en streaming
+     */
+    public StubAIServer(double medianMs, double p99Ms, double errorRate, double rateLimitRate,
+                        int streamChunks) throws IOException {
+        this.logMedian = Math.log(Math.max(1, medianMs));
+        this.sigma = Math.max(0, Math.log(Math.max(p99Ms, medianMs) / Math.max(1, medianMs)) / Z_99);
+        this.errorRate = errorRate;
+        this.rateLimitRate = rateLimitRate;
+        this.streamChunks = Math.max(1, streamChunks);
+        
+        handlers = Executors.newFixedThreadPool(8, daemon("stub-ai-http"));
+        scheduler = Executors.newScheduledThreadPool(4, daemon("stub-ai-delay"));
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.setExecutor(handlers);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+    
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions";
+    }
+    
+    public long getRequestCount() {
+        return requests.get();
+    }
+    
+    public long getStreamedRequestCount() {
+        return streamedRequests.get();
+    }
+    
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+    
+    public long getInjectedRateLimits() {
+        return injectedRateLimits.get();
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody().readAllBytes());
+        boolean stream = request.path("stream").asBoolean(false);
+        long delayMs = sampleLatencyMs();
+        
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < errorRate) {
+            injectedErrors.incrementAndGet();
+            scheduler.schedule(() -> respond(exchange, 503, "application/json",
+                "{\"error\":\"stub: servicio no disponible\"}", Map.of()), delayMs / 4, TimeUnit.MILLISECONDS);
+        } else if (roll < errorRate + rateLimitRate) {
+            injectedRateLimits.incrementAndGet();
+            respond(exchange, 429, "application/json", "{\"error\":\"stub: rate limit\"}",
+                    Map.of("Retry-After", "1"));
+        } else if (stream) {
+            streamedRequests.incrementAndGet();
+            startStream(exchange, delayMs);
+        } else {
+            String body = objectMapper.writeValueAsString(Map.of(
+                "id", "stub-" + requests.get(),
+                "object", "chat.completion",
+                "choices", List.of(Map.of("index", 0, "finish_reason", "stop",
+                    "message", Map.of("role", "assistant", "content", ADVICE))),
+                "usage", Map.of("prompt_tokens", request.toString().length() / 4, "completion_tokens", 60)));
+            scheduler.schedule(() -> respond(exchange, 200, "application/json", body, Map.of()),
+                               delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Envía las cabeceras tras el primer token (30 % de la latencia) y reparte el resto en fragmentos
+     */
+    private void startStream(HttpExchange exchange, long delayMs) {
+        long firstTokenMs = delayMs * 3 / 10;
+        long chunkIntervalMs = (delayMs - firstTokenMs) / streamChunks;
+        int chunkLength = (ADVICE.length() + streamChunks - 1) / streamChunks;
+        scheduler.schedule(() -> {
+            try {
+                exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+                exchange.sendResponseHeaders(200, 0);
+                sendChunk(exchange, 0, chunkLength, chunkIntervalMs);
+            } catch (IOException e) {
+                exchange.close();
+            }
+        }, firstTokenMs, TimeUnit.MILLISECONDS);
+    }
+    
+    private void sendChunk(HttpExchange exchange, int offset, int chunkLength, long intervalMs) {
+        try {
+            OutputStream out = exchange.getResponseBody();
+            if (offset >= ADVICE.length()) {
+                out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+                exchange.close();
+                return;
+            }
+            String piece = ADVICE.substring(offset, Math.min(ADVICE.length(), offset + chunkLength));
+            String event = objectMapper.writeValueAsString(Map.of(
+                "choices", List.of(Map.of("index", 0, "delta", Map.of("content", piece)))));
+            out.write(("data: " + event + "\n\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            scheduler.schedule(() -> sendChunk(exchange, offset + chunkLength, chunkLength, intervalMs),
+                               intervalMs, TimeUnit.MILLISECONDS);
+        } catch (IOException e) {
+            exchange.close();
+        }
+    }
+    
+    private void respond(HttpExchange exchange, int status, String contentType, String body,
+                         Map<String, String> headers) {
+        try {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            headers.forEach((name, value) -> exchange.getResponseHeaders().set(name, value));
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        } catch (IOException e) {
+            // El cliente cerró la conexión (p. ej. por timeout)
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private long sampleLatencyMs() {
+        double gaussian = ThreadLocalRandom.current().nextGaussian();
+        return Math.round(Math.exp(logMedian + sigma * gaussian));
+    }
+    
+    static java.util.concurrent.ThreadFactory daemon(String prefix) {
+        AtomicLong counter = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    @Override
+    public void close() {
+        server.stop(0);
+        scheduler.shutdownNow();
+        handlers.shutdownNow();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.telegrambotapi.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Stub local de la Bot API de Telegram ({@code /bot<token>/<método>}).
+ * Responde {@code sendMessage} y {@code editMessageText} con un Message válido, el resto de
+ * métodos con {@code true}, y notifica cada texto final enviado a un chat para que el arnés
+ * mida la latencia extremo a extremo. Los textos intermedios del streaming (marcador de
+ * "analizando" y borradores terminados en cursor) no cuentan como respuesta.
+ */
+public final class StubTelegramServer implements AutoCloseable {
+    
+    static final String PLACEHOLDER = "⏳ Analizando la conversación...";
+    static final String STREAM_CURSOR = " ▌";
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BiConsumer<String, String> replyListener;
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    
+    private final AtomicLong messageIds = new AtomicLong();
+    private final Map<String, AtomicLong> callsByMethod = new ConcurrentHashMap<>();
+    
+    /**
+     * @param replyListener recibe (chatId, texto) por cada respuesta final enviada
+     */
+    public StubTelegramServer(BiConsumer<String, String> replyListener) throws IOException {
+        this.replyListener = replyListener;
+        handlers = Executors.newFixedThreadPool(16, StubAIServer.daemon("stub-telegram"));
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.setExecutor(handlers);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+    
+    /**
+     * URL base para {@code telegram.api.base-url}; la librería añade el token y el método
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/bot";
+    }
+    
+    public long getCalls(String method) {
+        AtomicLong calls = callsByMethod.get(method.toLowerCase(Locale.ROOT));
+        return calls != null ? calls.get() : 0;
+    }
+    
+    public long getTotalCalls() {
+        return callsByMethod.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String method = path.substring(path.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+            callsByMethod.computeIfAbsent(method, key -> new AtomicLong()).incrementAndGet();
+            
+            byte[] requestBody = exchange.getRequestBody().readAllBytes();
+            byte[] response;
+            if ("sendmessage".equals(method) || "editmessagetext".equals(method)) {
+                JsonNode request = objectMapper.readTree(requestBody);
+                String chatId = request.path("chat_id").asText();
+                String text = request.path("text").asText("");
+                long messageId = request.has("message_id")
+                    ? request.path("message_id").asLong()
+                    : messageIds.incrementAndGet();
+                response = objectMapper.writeValueAsBytes(Map.of(
+                    "ok", true,
+                    "result", Map.of(
+                        "message_id", messageId,
+                        "date", System.currentTimeMillis() / 1000,
+                        "chat", Map.of("id", Long.parseLong(chatId), "type", "private"),
+                        "text", text)));
+                if (!text.equals(PLACEHOLDER) && !text.endsWith(STREAM_CURSOR)) {
+                    replyListener.accept(chatId, text);
+                }
+            } else {
+                response = "{\"ok\":true,\"result\":true}".getBytes();
+            }
+            
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+        }
+    }
+    
+    @Override
+    public void close() {
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+}
\ No newline at end of file
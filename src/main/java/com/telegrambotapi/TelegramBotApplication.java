@@ -2,16 +2,14 @@ package com.telegrambotapi;
 
 import com.telegrambotapi.adapter.TelegramBotAdapter;
 import com.telegrambotapi.config.ConfigurationManager;
-import com.telegrambotapi.service.TelegramBotService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
-import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
@@ -28,7 +26,7 @@ public class TelegramBotApplication implements CommandLineRunner {
     private ConfigurationManager configurationManager;
     
     @Autowired
-    private TelegramBotService telegramBotService;
+    private TelegramBotAdapter telegramBotAdapter;
     
     public static void main(String[] args) {
         SpringApplication.run(TelegramBotApplication.class, args);
@@ -41,44 +39,46 @@ public class TelegramBotApplication implements CommandLineRunner {
         // Validar configuración
         if (!configurationManager.isConfigurationValid()) {
             logger.error("❌ Configuración inválida. Verifica las variables de entorno:");
-            logger.error("TELEGRAM_BOT_TOKEN, TELEGRAM_BOT_USERNAME, AI_API_KEY");
+            logger.error("TELEGRAM_BOT_TOKEN, TELEGRAM_BOT_USERNAME, AI_API_KEY " +
+                        "(y BOT_WEBHOOK_URL y BOT_WEBHOOK_SECRET_TOKEN en modo webhook)");
             return;
         }
         
         logger.info("✅ Configuración validada: {}", configurationManager);
         
         try {
-            // Registrar el bot con la API de Telegram
-            TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
-            
-            // Crear adapter personalizado que delegue al servicio
-            TelegramBotAdapter botAdapter = createBotAdapter();
-            botsApi.registerBot(botAdapter);
+            if (configurationManager.isWebhookMode()) {
+                registerWebhook();
+            } else {
+                // Registrar el bot con la API de Telegram
+                TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
+                
+                // El adapter entrega cada update al despachador concurrente (UpdateDispatcher)
+                telegramBotAdapter.markRegistered(botsApi.registerBot(telegramBotAdapter));
+            }
             
             logger.info("🤖 Bot registrado exitosamente: {}", 
                        configurationManager.getTelegramBotUsername());
             logger.info("🎯 Bot listo para recibir mensajes...");
-            
+        
         } catch (TelegramApiException e) {
             logger.error("❌ Error registrando bot: {}", e.getMessage(), e);
         }
     }
     
     /**
-     * Crea un adapter personalizado que delegue el procesamiento al servicio
+     * Indica a Telegram la URL a la que debe enviar los updates (WebhookController).
+     * En este modo no se inicia el long polling.
      */
-    @Bean
-    public TelegramBotAdapter createBotAdapter() {
-        return new TelegramBotAdapter() {
-            @Override
-            public void onUpdateReceived(Update update) {
-                try {
-                    // Delegar el procesamiento al servicio principal
-                    telegramBotService.processUpdate(update);
-                } catch (Exception e) {
-                    logger.error("Error procesando update en adapter: {}", e.getMessage(), e);
-                }
-            }
-        };
+    private void registerWebhook() throws TelegramApiException {
+        SetWebhook setWebhook = new SetWebhook(configurationManager.getWebhookUrl());
+        String secretToken = configurationManager.getWebhookSecretToken();
+        if (secretToken != null && !secretToken.isEmpty()) {
+            setWebhook.setSecretToken(secretToken);
+        }
+        
+        telegramBotAdapter.execute(setWebhook);
+        telegramBotAdapter.markRegistered(null);
+        logger.info("🌐 Webhook registrado en {}", configurationManager.getWebhookUrl());
     }
 }
\ No newline at end of file
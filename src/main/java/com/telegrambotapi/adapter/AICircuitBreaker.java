@@ -0,0 +1,159 @@
+package com.telegrambotapi.adapter;
+
+import com.telegrambotapi.config.ConfigurationManager;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker de las peticiones al proveedor de IA.
+ * Tras varios fallos consecutivos (429, 5xx, timeouts o errores de red) el circuito se abre
+ * y las peticiones fallan de inmediato; pasado el tiempo configurado se deja pasar una
+ * única petición de prueba que decide si el circuito se cierra o vuelve a abrirse.
+ * Cada permiso concedido por {@link #tryAcquire()} debe cerrarse con un éxito, un fallo
+ * o {@link #release()} si la petición no llegó al proveedor.
+ */
+@Component
+public class AICircuitBreaker {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AICircuitBreaker.class);
+    
+    @Autowired
+    private ConfigurationManager config;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * Estados del circuito
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+    
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtMillis;
+    private boolean trialInFlight;
+    private long openCount;
+    private long rejectedCount;
+    
+    /**
+     * Publica el estado del circuito (0 cerrado, 1 abierto, 2 semiabierto) y las peticiones rechazadas
+     */
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("ai.circuit.state", this, breaker -> breaker.getState().ordinal())
+            .description("Estado del circuit breaker de la IA (0 cerrado, 1 abierto, 2 semiabierto)")
+            .register(meterRegistry);
+        FunctionCounter.builder("ai.circuit.rejected", this, AICircuitBreaker::getRejectedCount)
+            .description("Peticiones a la IA rechazadas con el circuito abierto")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Solicita permiso para realizar una petición
+     * @return true si la petición puede enviarse, false si el circuito está abierto
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        
+        if (state == State.OPEN) {
+            long openMillis = TimeUnit.SECONDS.toMillis(config.getAiBreakerOpenSeconds());
+            if (System.currentTimeMillis() - openedAtMillis < openMillis) {
+                rejectedCount++;
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+            logger.info("Circuito de IA semiabierto, se permite una petición de prueba");
+        }
+        
+        // Semiabierto: solo una petición de prueba a la vez
+        if (trialInFlight) {
+            rejectedCount++;
+            return false;
+        }
+        trialInFlight = true;
+        return true;
+    }
+    
+    /**
+     * Registra que el proveedor respondió; cierra el circuito si estaba abierto o semiabierto
+     */
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("Circuito de IA cerrado, el proveedor responde de nuevo");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+    
+    /**
+     * Registra un fallo del proveedor; abre el circuito al alcanzar el umbral o si falla la prueba
+     */
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || 
+            (state == State.CLOSED && consecutiveFailures >= config.getAiBreakerFailureThreshold())) {
+            open();
+        }
+    }
+    
+    /**
+     * Devuelve un permiso sin resultado del proveedor, cuando la petición no llegó a enviarse
+     * o falló localmente. Si era la petición de prueba, deja paso a la siguiente.
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+    
+    private void open() {
+        state = State.OPEN;
+        openedAtMillis = System.currentTimeMillis();
+        trialInFlight = false;
+        openCount++;
+        logger.warn("Circuito de IA abierto tras {} fallos consecutivos; peticiones rechazadas durante {}s",
+                   consecutiveFailures, config.getAiBreakerOpenSeconds());
+    }
+    
+    /**
+     * Obtiene el estado actual del circuito
+     */
+    public synchronized State getState() {
+        return state;
+    }
+    
+    private synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+    
+    /**
+     * Obtiene el estado y los contadores del circuito
+     */
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("estado", state.name());
+        status.put("fallosConsecutivos", consecutiveFailures);
+        status.put("aperturas", openCount);
+        status.put("peticionesRechazadas", rejectedCount);
+        status.put("abiertoDesde", state == State.OPEN ? openedAtMillis : 0);
+        return status;
+    }
+}
\ No newline at end of file
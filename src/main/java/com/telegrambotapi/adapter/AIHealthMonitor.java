@@ -0,0 +1,161 @@
+package com.telegrambotapi.adapter;
+
+import com.telegrambotapi.config.ConfigurationManager;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mantiene en caché el estado de disponibilidad del proveedor de IA.
+ * El estado se actualiza de forma pasiva con el resultado de las peticiones reales
+ * y, solo cuando no hay tráfico reciente, con una sonda en segundo plano.
+ * Consultar la disponibilidad nunca genera una llamada a la IA.
+ */
+@Component
+public class AIHealthMonitor {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AIHealthMonitor.class);
+    
+    @Autowired
+    private ConfigurationManager config;
+    
+    private ScheduledExecutorService scheduler;
+    private volatile AIServiceProbe probe;
+    
+    private volatile boolean available = true;
+    private volatile long lastSuccessMillis;
+    private volatile long lastFailureMillis;
+    private volatile long lastProbeMillis;
+    private volatile String lastError;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    
+    /**
+     * Sonda activa que se ejecuta en segundo plano cuando el estado está caducado
+     */
+    @FunctionalInterface
+    public interface AIServiceProbe {
+        void probe() throws AIServiceException;
+    }
+    
+    /**
+     * Arranca el hilo de sondeo periódico
+     */
+    @PostConstruct
+    public void initialize() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ai-health-prober");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, config.getAiHealthProbeIntervalSeconds());
+        scheduler.scheduleWithFixedDelay(this::probeIfStale, interval, interval, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * Registra la sonda activa del adaptador de IA
+     */
+    public void registerProbe(AIServiceProbe probe) {
+        this.probe = probe;
+    }
+    
+    /**
+     * Registra el éxito de una petición real a la IA
+     */
+    public void recordSuccess() {
+        lastSuccessMillis = System.currentTimeMillis();
+        consecutiveFailures.set(0);
+        if (!available) {
+            logger.info("Servicio de IA disponible nuevamente");
+        }
+        available = true;
+    }
+    
+    /**
+     * Registra el fallo de una petición real a la IA
+     */
+    public void recordFailure(String error) {
+        lastFailureMillis = System.currentTimeMillis();
+        lastError = error;
+        int failures = consecutiveFailures.incrementAndGet();
+        if (available && failures >= config.getAiHealthFailureThreshold()) {
+            logger.warn("Servicio de IA marcado como no disponible tras {} fallos consecutivos: {}",
+                       failures, error);
+            available = false;
+        }
+    }
+    
+    /**
+     * Indica el último estado conocido del proveedor, sin realizar llamadas
+     * @return true si el proveedor se considera disponible
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+    
+    /**
+     * Indica si el estado conocido ha caducado según el TTL configurado.
+     * Cualquier sonda cuenta como señal, sea cual sea su resultado, así que nunca
+     * se envía más de una sonda por TTL.
+     */
+    public boolean isStale() {
+        long lastSignal = Math.max(lastProbeMillis, Math.max(lastSuccessMillis, lastFailureMillis));
+        return System.currentTimeMillis() - lastSignal > config.getAiHealthTtlSeconds() * 1000;
+    }
+    
+    /**
+     * Obtiene el estado en caché del proveedor de IA
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("disponible", available);
+        status.put("fallosConsecutivos", consecutiveFailures.get());
+        status.put("ultimoExito", lastSuccessMillis);
+        status.put("ultimoFallo", lastFailureMillis);
+        status.put("ultimoError", lastError);
+        status.put("ultimaSonda", lastProbeMillis);
+        status.put("caducado", isStale());
+        return status;
+    }
+    
+    /**
+     * Ejecuta la sonda solo si no hubo tráfico real dentro del TTL
+     */
+    private void probeIfStale() {
+        AIServiceProbe currentProbe = probe;
+        if (currentProbe == null || !isStale()) {
+            return;
+        }
+        
+        try {
+            logger.debug("Estado de IA caducado, ejecutando sonda de disponibilidad");
+            currentProbe.probe();
+        } catch (AIServiceException e) {
+            // El adaptador ya registró el fallo si era del proveedor (p. ej. no un 400 o el circuito abierto)
+            logger.debug("Sonda de disponibilidad fallida: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            recordFailure(e.getMessage());
+        } finally {
+            lastProbeMillis = System.currentTimeMillis();
+        }
+    }
+    
+    /**
+     * Detiene el hilo de sondeo al cerrar la aplicación
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
\ No newline at end of file
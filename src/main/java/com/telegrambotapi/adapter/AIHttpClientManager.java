@@ -0,0 +1,233 @@
+package com.telegrambotapi.adapter;
+
+import com.telegrambotapi.config.ConfigurationManager;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.ConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Mantiene los clientes HTTP de larga vida, con pool de conexiones y keep-alive,
+ * compartidos por todas las llamadas a la API de IA.
+ * Evita el handshake TCP + TLS en cada petición y se cierra junto con el contexto de Spring.
+ */
+@Component
+public class AIHttpClientManager {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AIHttpClientManager.class);
+    
+    @Autowired
+    private ConfigurationManager config;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private PoolingHttpClientConnectionManager connectionManager;
+    private PoolingAsyncClientConnectionManager asyncConnectionManager;
+    private CloseableHttpClient httpClient;
+    private CloseableHttpAsyncClient asyncHttpClient;
+    private ExecutorService callbackExecutor;
+    
+    /**
+     * Construye los pools y los clientes una vez inyectada la configuración
+     */
+    @PostConstruct
+    public void initialize() {
+        TimeValue keepAlive = TimeValue.ofSeconds(config.getAiHttpKeepAliveSeconds());
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+            .setTimeToLive(TimeValue.ofSeconds(config.getAiHttpConnectionTtlSeconds()))
+            .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+            .setConnectTimeout(Timeout.ofMilliseconds(config.getAiTimeoutConnectMs()))
+            .build();
+        
+        // Límites por defecto; cada petición fija además el tiempo de respuesta de su estrategia
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectionRequestTimeout(Timeout.ofMilliseconds(config.getAiTimeoutConnectionRequestMs()))
+            .setResponseTimeout(Timeout.ofMilliseconds(config.getAiTimeoutDefaultMs()))
+            .build();
+        
+        connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(config.getAiHttpMaxConnectionsTotal())
+            .setMaxConnPerRoute(config.getAiHttpMaxConnectionsPerRoute())
+            .setDefaultConnectionConfig(connectionConfig)
+            .build();
+        
+        HttpClientBuilder builder = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .setKeepAliveStrategy(keepAliveStrategy(keepAlive))
+            // Los reintentos los gestiona el adaptador, con backoff y circuit breaker
+            .disableAutomaticRetries()
+            .evictExpiredConnections()
+            .evictIdleConnections(keepAlive);
+        
+        // El cliente clásico negocia gzip/deflate y descomprime de forma transparente
+        if (!config.isAiHttpCompressionEnabled()) {
+            builder.disableContentCompression();
+        }
+        
+        httpClient = builder.build();
+        
+        IOReactorConfig reactorConfig = IOReactorConfig.custom()
+            .setIoThreadCount(Math.max(1, config.getAiHttpIoThreads()))
+            .build();
+        
+        // El cliente asíncrono usa también un pool propio, para poder medirlo igual que el clásico;
+        // con HTTP/2 activo se negocia h2 por ALPN y se vuelve a HTTP/1.1 si el servidor no lo ofrece
+        HttpVersionPolicy versionPolicy = config.isAiHttpHttp2Enabled()
+            ? HttpVersionPolicy.NEGOTIATE : HttpVersionPolicy.FORCE_HTTP_1;
+        asyncConnectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(config.getAiHttpMaxConnectionsTotal())
+            .setMaxConnPerRoute(config.getAiHttpMaxConnectionsPerRoute())
+            .setDefaultConnectionConfig(connectionConfig)
+            .setDefaultTlsConfig(TlsConfig.custom().setVersionPolicy(versionPolicy).build())
+            .build();
+        asyncHttpClient = HttpAsyncClients.custom()
+            .setConnectionManager(asyncConnectionManager)
+            .setIOReactorConfig(reactorConfig)
+            .setDefaultRequestConfig(requestConfig)
+            .setKeepAliveStrategy(keepAliveStrategy(keepAlive))
+            .disableAutomaticRetries()
+            .evictExpiredConnections()
+            .evictIdleConnections(keepAlive)
+            .build();
+        asyncHttpClient.start();
+        
+        // Las respuestas asíncronas se procesan fuera de los hilos de I/O del reactor
+        AtomicInteger threadCounter = new AtomicInteger();
+        callbackExecutor = Executors.newFixedThreadPool(Math.max(1, config.getAiHttpCallbackThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "ai-callback-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        registerPoolGauges("clasico", this::getPoolStats);
+        registerPoolGauges("asincrono", this::getAsyncPoolStats);
+        
+        logger.info("Cliente HTTP de IA inicializado: {} conexiones máximas, {} por ruta, keep-alive {}s, HTTP/2 {}",
+                   config.getAiHttpMaxConnectionsTotal(), config.getAiHttpMaxConnectionsPerRoute(),
+                   config.getAiHttpKeepAliveSeconds(), config.isAiHttpHttp2Enabled() ? "activo" : "inactivo");
+    }
+    
+    /**
+     * Publica las conexiones en uso, libres y las peticiones en espera de un pool
+     */
+    private void registerPoolGauges(String client, Supplier<PoolStats> stats) {
+        Gauge.builder("ai.http.pool.leased", stats, supplier -> supplier.get().getLeased())
+            .description("Conexiones en uso del pool hacia la API de IA")
+            .tag("cliente", client)
+            .register(meterRegistry);
+        Gauge.builder("ai.http.pool.pending", stats, supplier -> supplier.get().getPending())
+            .description("Peticiones esperando una conexión del pool hacia la API de IA")
+            .tag("cliente", client)
+            .register(meterRegistry);
+        Gauge.builder("ai.http.pool.available", stats, supplier -> supplier.get().getAvailable())
+            .description("Conexiones abiertas y libres del pool hacia la API de IA")
+            .tag("cliente", client)
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Respeta el Keep-Alive del servidor sin superar el máximo configurado
+     */
+    private ConnectionKeepAliveStrategy keepAliveStrategy(TimeValue maxKeepAlive) {
+        return (response, context) -> {
+            TimeValue serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE
+                .getKeepAliveDuration(response, context);
+            return TimeValue.isPositive(serverKeepAlive) && serverKeepAlive.compareTo(maxKeepAlive) < 0
+                ? serverKeepAlive : maxKeepAlive;
+        };
+    }
+    
+    /**
+     * Obtiene el cliente HTTP compartido
+     * @return el cliente con pool de conexiones
+     */
+    public CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
+    
+    /**
+     * Obtiene el cliente HTTP asíncrono (no bloqueante) compartido
+     * @return el cliente asíncrono ya iniciado
+     */
+    public CloseableHttpAsyncClient getAsyncHttpClient() {
+        return asyncHttpClient;
+    }
+    
+    /**
+     * Obtiene el executor donde se completan las respuestas asíncronas
+     * @return el executor de callbacks
+     */
+    public ExecutorService getCallbackExecutor() {
+        return callbackExecutor;
+    }
+    
+    /**
+     * Obtiene el estado actual del pool de conexiones
+     * @return estadísticas de conexiones disponibles, arrendadas y pendientes
+     */
+    public PoolStats getPoolStats() {
+        return connectionManager.getTotalStats();
+    }
+    
+    /**
+     * Obtiene el estado actual del pool de conexiones del cliente asíncrono
+     * @return estadísticas de conexiones disponibles, arrendadas y pendientes
+     */
+    public PoolStats getAsyncPoolStats() {
+        return asyncConnectionManager.getTotalStats();
+    }
+    
+    /**
+     * Cierra los clientes y libera las conexiones al detener la aplicación
+     */
+    @PreDestroy
+    public void shutdown() {
+        logger.info("Cerrando clientes HTTP de IA");
+        if (httpClient != null) {
+            httpClient.close(CloseMode.GRACEFUL);
+        }
+        if (connectionManager != null) {
+            connectionManager.close(CloseMode.GRACEFUL);
+        }
+        if (asyncHttpClient != null) {
+            asyncHttpClient.close(CloseMode.GRACEFUL);
+        }
+        if (asyncConnectionManager != null) {
+            asyncConnectionManager.close(CloseMode.GRACEFUL);
+        }
+        if (callbackExecutor != null) {
+            callbackExecutor.shutdown();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,165 @@
+package com.telegrambotapi.adapter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Agrupa peticiones compatibles a la IA (mismo tipo de prompt) en una única llamada.
+ * Un lote se envía al alcanzar el tamaño máximo o cuando vence la espera máxima desde su
+ * primera petición, lo que ocurra antes. Un lote de una sola petición se envía como llamada
+ * normal. Las peticiones cuya respuesta no puede separarse de la del lote se reenvían por separado;
+ * las demás se completan con su parte de la respuesta.
+ */
+final class AIRequestBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(AIRequestBatcher.class);
+
+    private final String name;
+    private final int maxBatchSize;
+    private final Executor flushExecutor;
+    private final Function<List<String>, CompletableFuture<List<String>>> batchCall;
+    private final Function<String, CompletableFuture<String>> singleCall;
+
+    // Lote que está acumulando peticiones; protegido por el monitor del agrupador
+    private List<PendingRequest> current;
+
+    /**
+     * Petición a la espera de su lote
+     */
+    private static final class PendingRequest {
+        private final String input;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+
+        private PendingRequest(String input) {
+            this.input = input;
+        }
+    }
+
+    /**
+     * @param name nombre del tipo de petición, para los logs
+     * @param maxBatchSize número máximo de peticiones por llamada
+     * @param maxWaitMs espera máxima añadida a la primera petición de cada lote
+     * @param executor executor en el que se envían los lotes vencidos
+     * @param batchCall envía las entradas en una sola llamada y devuelve una respuesta por entrada,
+     *                  en el mismo orden, con null en las que no pudieron separarse
+     * @param singleCall envía una única entrada como llamada normal
+     */
+    AIRequestBatcher(String name, int maxBatchSize, long maxWaitMs, Executor executor,
+                     Function<List<String>, CompletableFuture<List<String>>> batchCall,
+                     Function<String, CompletableFuture<String>> singleCall) {
+        this.name = name;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.flushExecutor = CompletableFuture.delayedExecutor(Math.max(0, maxWaitMs), TimeUnit.MILLISECONDS, executor);
+        this.batchCall = batchCall;
+        this.singleCall = singleCall;
+    }
+
+    /**
+     * Añade la petición al lote en curso
+     * @return un futuro con la respuesta que corresponde a esta entrada
+     */
+    CompletableFuture<String> submit(String input) {
+        PendingRequest request = new PendingRequest(input);
+        List<PendingRequest> full = null;
+
+        synchronized (this) {
+            if (current == null) {
+                List<PendingRequest> batch = new ArrayList<>(maxBatchSize);
+                current = batch;
+                flushExecutor.execute(() -> flushExpired(batch));
+            }
+            current.add(request);
+            if (current.size() >= maxBatchSize) {
+                full = current;
+                current = null;
+            }
+        }
+
+        if (full != null) {
+            send(full);
+        }
+        return request.result;
+    }
+
+    /**
+     * Envía el lote al vencer su espera, salvo que ya se haya enviado por estar lleno
+     */
+    private void flushExpired(List<PendingRequest> batch) {
+        synchronized (this) {
+            if (current != batch) {
+                return;
+            }
+            current = null;
+        }
+        send(batch);
+    }
+
+    private void send(List<PendingRequest> batch) {
+        if (batch.size() == 1) {
+            sendIndividually(batch);
+            return;
+        }
+
+        List<String> inputs = new ArrayList<>(batch.size());
+        for (PendingRequest request : batch) {
+            inputs.add(request.input);
+        }
+
+        CompletableFuture<List<String>> response;
+        try {
+            response = batchCall.apply(inputs);
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+
+        response.whenComplete((results, error) -> {
+            if (error != null) {
+                // El error del proveedor (429, 5xx, timeout) afectaría igual a cada petición por separado
+                Throwable cause = AIServiceException.unwrap(error);
+                for (PendingRequest request : batch) {
+                    request.result.completeExceptionally(cause);
+                }
+            } else {
+                List<PendingRequest> missing = new ArrayList<>();
+                for (int i = 0; i < batch.size(); i++) {
+                    String answer = results != null && i < results.size() ? results.get(i) : null;
+                    if (answer != null) {
+                        batch.get(i).result.complete(answer);
+                    } else {
+                        missing.add(batch.get(i));
+                    }
+                }
+                if (!missing.isEmpty()) {
+                    logger.warn("Respuesta del lote de {} incompleta: {} de {} peticiones se envían por separado",
+                               name, missing.size(), batch.size());
+                    sendIndividually(missing);
+                }
+            }
+        });
+    }
+
+    private void sendIndividually(List<PendingRequest> batch) {
+        for (PendingRequest request : batch) {
+            CompletableFuture<String> response;
+            try {
+                response = singleCall.apply(request.input);
+            } catch (RuntimeException e) {
+                response = CompletableFuture.failedFuture(e);
+            }
+            response.whenComplete((result, error) -> {
+                if (error != null) {
+                    request.result.completeExceptionally(AIServiceException.unwrap(error));
+                } else {
+                    request.result.complete(result);
+                }
+            });
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package com.telegrambotapi.adapter;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
 /**
  * Interfaz del patrón Adapter para servicios de IA.
  * Permite desacoplar la lógica interna de la implementación específica
@@ -32,6 +36,71 @@ public interface AIServiceAdapter {
      */
     String analyzeSalesConversation(String conversation, String objective) throws AIServiceException;
     
+    /**
+     * Genera una respuesta de IA sin bloquear el hilo que la solicita
+     * @param prompt el texto de entrada para la IA
+     * @return un futuro con la respuesta, completado excepcionalmente con
+     *         {@link AIServiceException} si ocurre un error en la comunicación con la IA
+     */
+    CompletableFuture<String> generateResponseAsync(String prompt);
+    
+    /**
+     * Genera una respuesta de IA en modo streaming, notificando el texto a medida que se genera
+     * @param prompt el texto de entrada para la IA
+     * @param onPartial recibe, con cada fragmento, un proveedor del texto acumulado hasta el momento;
+     *                  el texto solo se construye al leerlo. Se invoca desde los hilos de I/O,
+     *                  por lo que no debe bloquear
+     * @return un futuro con la respuesta completa
+     */
+    CompletableFuture<String> generateResponseStreaming(String prompt, Consumer<Supplier<String>> onPartial);
+    
+    /**
+     * Genera un chiste basado en el contexto de la conversación sin bloquear el hilo que lo solicita
+     * @param conversationContext el contexto de la conversación
+     * @return un futuro con el chiste generado
+     */
+    CompletableFuture<String> generateJokeAsync(String conversationContext);
+    
+    /**
+     * Analiza una conversación de ventas sin bloquear el hilo que lo solicita
+     * @param conversation la conversación entre cliente y vendedor
+     * @param objective el objetivo específico (rechazar devolución, upselling, etc.)
+     * @return un futuro con los consejos para el vendedor
+     */
+    CompletableFuture<String> analyzeSalesConversationAsync(String conversation, String objective);
+    
+    /**
+     * Analiza una conversación de ventas en modo streaming
+     * @param conversation la conversación entre cliente y vendedor
+     * @param objective el objetivo específico (rechazar devolución, upselling, etc.)
+     * @param onPartial recibe un proveedor del texto acumulado hasta el momento; no debe bloquear
+     * @return un futuro con los consejos completos para el vendedor
+     */
+    CompletableFuture<String> analyzeSalesConversationStreaming(String conversation, String objective,
+                                                                Consumer<Supplier<String>> onPartial);
+    
+    /**
+     * Genera un chiste permitiendo agruparlo con otros en una única llamada al proveedor.
+     * La petición puede esperar hasta la espera máxima del lote; los proveedores sin soporte
+     * de lotes la envían sola.
+     * @param conversationContext el contexto de la conversación
+     * @return un futuro con el chiste generado para este contexto
+     */
+    default CompletableFuture<String> generateJokeBatched(String conversationContext) {
+        return generateJokeAsync(conversationContext);
+    }
+    
+    /**
+     * Analiza una conversación de ventas permitiendo agruparla con otras del mismo objetivo
+     * en una única llamada al proveedor. Los proveedores sin soporte de lotes la envían sola.
+     * @param conversation la conversación entre cliente y vendedor
+     * @param objective el objetivo específico (rechazar devolución, upselling, etc.)
+     * @return un futuro con los consejos para esta conversación
+     */
+    default CompletableFuture<String> analyzeSalesConversationBatched(String conversation, String objective) {
+        return analyzeSalesConversationAsync(conversation, objective);
+    }
+    
     /**
      * Verifica si el servicio de IA está disponible
      * @return true si el servicio está disponible, false en caso contrario
@@ -1,15 +1,63 @@
 package com.telegrambotapi.adapter;
 
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
 /**
  * Excepción personalizada para errores del servicio de IA
  */
 public class AIServiceException extends Exception {
     
+    private final boolean retryable;
+    private final long retryAfterMillis;
+    
     public AIServiceException(String message) {
-        super(message);
+        this(message, null, false, 0);
     }
     
     public AIServiceException(String message, Throwable cause) {
+        this(message, cause, false, 0);
+    }
+    
+    private AIServiceException(String message, Throwable cause, boolean retryable, long retryAfterMillis) {
         super(message, cause);
+        this.retryable = retryable;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+    
+    /**
+     * Crea una excepción para un error transitorio del proveedor (429, 5xx o fallo de red)
+     * @param retryAfterMillis espera mínima indicada por el proveedor, o 0 si no la indicó
+     */
+    public static AIServiceException retryable(String message, Throwable cause, long retryAfterMillis) {
+        return new AIServiceException(message, cause, true, retryAfterMillis);
+    }
+    
+    /**
+     * Indica si la petición puede reintentarse con posibilidades de éxito
+     */
+    public boolean isRetryable() {
+        return retryable;
+    }
+    
+    /**
+     * Obtiene la espera mínima antes de reintentar indicada por el proveedor (0 si no hay)
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+    
+    /**
+     * Obtiene la causa real de un error propagado a través de un CompletableFuture
+     * @param error el error recibido en una etapa asíncrona
+     * @return la causa original, sin los envoltorios de CompletionException/ExecutionException
+     */
+    public static Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while ((current instanceof CompletionException || current instanceof ExecutionException)
+               && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
     }
 }
\ No newline at end of file
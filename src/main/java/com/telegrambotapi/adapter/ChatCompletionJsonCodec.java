@@ -0,0 +1,212 @@
+package com.telegrambotapi.adapter;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Codifica y decodifica los mensajes de chat completions con la API de streaming de Jackson.
+ * La petición se escribe token a token directamente en UTF-8, sin plantillas ni copias
+ * intermedias del prompt, y las respuestas se leen sin construir el árbol JSON:
+ * solo se extraen {@code choices[0].message.content} (o {@code delta.content}) y {@code usage}.
+ * Es inmutable y seguro para usarse desde varios hilos.
+ */
+final class ChatCompletionJsonCodec {
+    
+    // Margen para los campos fijos de la petición además del prompt
+    private static final int REQUEST_OVERHEAD_BYTES = 128;
+    private static final double TEMPERATURE = 0.7;
+    
+    private final JsonFactory jsonFactory;
+    
+    /**
+     * Contenido de una respuesta completa y los tokens consumidos, si el proveedor los informa
+     */
+    static final class ChatCompletion {
+        private final String content;
+        private final int promptTokens;
+        private final int completionTokens;
+        
+        private ChatCompletion(String content, int promptTokens, int completionTokens) {
+            this.content = content;
+            this.promptTokens = promptTokens;
+            this.completionTokens = completionTokens;
+        }
+        
+        String getContent() {
+            return content;
+        }
+        
+        int getPromptTokens() {
+            return promptTokens;
+        }
+        
+        int getCompletionTokens() {
+            return completionTokens;
+        }
+    }
+    
+    ChatCompletionJsonCodec() {
+        this.jsonFactory = JsonFactory.builder()
+            .disable(JsonFactory.Feature.INTERN_FIELD_NAMES)
+            .build();
+    }
+    
+    /**
+     * Escribe el cuerpo de la petición; el resultado se reutiliza en todos los reintentos
+     * @param stream true para pedir la respuesta en Server-Sent Events
+     * @return el JSON codificado en UTF-8
+     */
+    byte[] writeRequest(String model, String prompt, int maxTokens, boolean stream) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(prompt.length() + REQUEST_OVERHEAD_BYTES);
+        try (JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeStringField("model", model);
+            generator.writeArrayFieldStart("messages");
+            generator.writeStartObject();
+            generator.writeStringField("role", "user");
+            generator.writeStringField("content", prompt);
+            generator.writeEndObject();
+            generator.writeEndArray();
+            generator.writeNumberField("max_tokens", maxTokens);
+            generator.writeNumberField("temperature", TEMPERATURE);
+            generator.writeBooleanField("stream", stream);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            // Solo se escribe en memoria
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+    
+    /**
+     * Lee una respuesta completa directamente del flujo de la entidad
+     * @return la respuesta, con contenido null si no tiene {@code choices[0].message.content}
+     * @throws IOException si el flujo falla o el JSON está mal formado
+     */
+    ChatCompletion readCompletion(InputStream in) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            return readCompletion(parser);
+        }
+    }
+    
+    /**
+     * Lee una respuesta completa ya recibida en memoria
+     */
+    ChatCompletion readCompletion(byte[] body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return readCompletion(parser);
+        }
+    }
+    
+    /**
+     * Lee el fragmento de contenido de un evento de streaming
+     * @param data el JSON de la línea {@code data:}
+     * @return el texto de {@code choices[0].delta.content}, o null si el evento no trae contenido
+     */
+    String readDeltaContent(String data) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(data)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            String content = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("choices".equals(field)) {
+                    content = readFirstChoiceContent(parser, "delta");
+                    // El resto del evento no interesa
+                    break;
+                }
+                parser.skipChildren();
+            }
+            return content;
+        }
+    }
+    
+    private ChatCompletion readCompletion(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return new ChatCompletion(null, 0, 0);
+        }
+        
+        String content = null;
+        int promptTokens = 0;
+        int completionTokens = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("choices".equals(field)) {
+                content = readFirstChoiceContent(parser, "message");
+            } else if ("usage".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String usageField = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("prompt_tokens".equals(usageField)) {
+                        promptTokens = parser.getValueAsInt();
+                    } else if ("completion_tokens".equals(usageField)) {
+                        completionTokens = parser.getValueAsInt();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new ChatCompletion(content, promptTokens, completionTokens);
+    }
+    
+    /**
+     * Lee {@code choices[0].<container>.content} dejando el parser al final del array
+     */
+    private String readFirstChoiceContent(JsonParser parser, String container) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        
+        String content = null;
+        boolean first = true;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (first && parser.currentToken() == JsonToken.START_OBJECT) {
+                content = readNestedContent(parser, container);
+            } else {
+                parser.skipChildren();
+            }
+            first = false;
+        }
+        return content;
+    }
+    
+    /**
+     * Dentro de un choice, lee {@code <container>.content} dejando el parser al final del objeto
+     */
+    private String readNestedContent(JsonParser parser, String container) throws IOException {
+        String content = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (container.equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String messageField = parser.getCurrentName();
+                    JsonToken messageValue = parser.nextToken();
+                    if ("content".equals(messageField) && messageValue == JsonToken.VALUE_STRING) {
+                        content = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return content;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,148 @@
+package com.telegrambotapi.adapter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.apache.hc.client5.http.async.methods.AbstractCharResponseConsumer;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Consume una respuesta de chat completions en modo streaming (Server-Sent Events).
+ * Acumula el contenido de cada evento {@code data:} a medida que llega y notifica
+ * cada fragmento con un proveedor del texto acumulado: el texto se copia a un String solo
+ * cuando alguien lo lee (una vez por edición del mensaje), no con cada fragmento.
+ * Si el estado HTTP no es 200 conserva el cuerpo tal cual para poder informar el error.
+ */
+class ChatCompletionStreamConsumer extends AbstractCharResponseConsumer<String> {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChatCompletionStreamConsumer.class);
+    private static final String DATA_PREFIX = "data:";
+    private static final String DONE_MARKER = "[DONE]";
+    
+    private final ChatCompletionJsonCodec jsonCodec;
+    private final Consumer<Supplier<String>> onPartial;
+    
+    private final StringBuilder line = new StringBuilder();
+    // Protegido por su propio monitor: se amplía en el hilo de I/O y se lee desde quien edita el mensaje
+    private final StringBuilder content = new StringBuilder();
+    private final Supplier<String> partialText = this::snapshot;
+    private String lastSnapshot = "";
+    private final StringBuilder errorBody = new StringBuilder();
+    private int statusCode;
+    private Header retryAfter;
+    
+    ChatCompletionStreamConsumer(ChatCompletionJsonCodec jsonCodec, Consumer<Supplier<String>> onPartial) {
+        this.jsonCodec = jsonCodec;
+        this.onPartial = onPartial;
+    }
+    
+    @Override
+    protected void start(HttpResponse response, ContentType contentType) {
+        statusCode = response.getCode();
+        retryAfter = response.getFirstHeader("Retry-After");
+        // SSE se transmite siempre en UTF-8, aunque el servidor no declare el charset
+        if (contentType == null || contentType.getCharset() == null) {
+            setCharset(StandardCharsets.UTF_8);
+        }
+    }
+    
+    @Override
+    protected int capacityIncrement() {
+        return Integer.MAX_VALUE;
+    }
+    
+    @Override
+    protected void data(CharBuffer src, boolean endOfStream) {
+        if (statusCode != 200) {
+            errorBody.append(src);
+            return;
+        }
+        
+        while (src.hasRemaining()) {
+            char c = src.get();
+            if (c == '\n') {
+                processLine();
+            } else if (c != '\r') {
+                line.append(c);
+            }
+        }
+        if (endOfStream && line.length() > 0) {
+            processLine();
+        }
+    }
+    
+    /**
+     * Procesa una línea completa del flujo; solo interesan las líneas de datos con contenido
+     */
+    private void processLine() {
+        String value = line.toString();
+        line.setLength(0);
+        
+        // Líneas vacías, comentarios y campos event/id no aportan contenido
+        if (!value.startsWith(DATA_PREFIX)) {
+            return;
+        }
+        String data = value.substring(DATA_PREFIX.length()).trim();
+        if (data.isEmpty() || DONE_MARKER.equals(data)) {
+            return;
+        }
+        
+        try {
+            String delta = jsonCodec.readDeltaContent(data);
+            if (delta != null && !delta.isEmpty()) {
+                synchronized (content) {
+                    content.append(delta);
+                }
+                onPartial.accept(partialText);
+            }
+        } catch (JsonProcessingException e) {
+            logger.warn("Evento de streaming ignorado por formato inválido: {}", e.getOriginalMessage());
+        } catch (IOException e) {
+            logger.warn("Evento de streaming ignorado: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Texto acumulado hasta ahora; solo se vuelve a copiar si llegó contenido nuevo desde la última lectura
+     */
+    private String snapshot() {
+        synchronized (content) {
+            if (lastSnapshot.length() != content.length()) {
+                lastSnapshot = content.toString();
+            }
+            return lastSnapshot;
+        }
+    }
+    
+    @Override
+    protected String buildResult() {
+        return statusCode == 200 ? snapshot().trim() : errorBody.toString();
+    }
+    
+    @Override
+    public void releaseResources() {
+        line.setLength(0);
+    }
+    
+    /**
+     * Obtiene el código de estado HTTP de la respuesta
+     */
+    int getStatusCode() {
+        return statusCode;
+    }
+    
+    /**
+     * Obtiene la cabecera Retry-After de la respuesta, o null si no la tenía
+     */
+    Header getRetryAfter() {
+        return retryAfter;
+    }
+}
\ No newline at end of file
@@ -1,21 +1,49 @@
 package com.telegrambotapi.adapter;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.telegrambotapi.config.ConfigurationManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.concurrent.FutureCallback;
 import org.apache.hc.core5.http.ContentType;
-import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.util.Timeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Implementación del patrón Adapter para la API de Grok/X.AI
@@ -25,39 +53,444 @@ import java.nio.charset.StandardCharsets;
 public class GrokAIAdapter implements AIServiceAdapter {
     
     private static final Logger logger = LoggerFactory.getLogger(GrokAIAdapter.class);
-    private final ObjectMapper objectMapper;
+    private static final int DEFAULT_MAX_TOKENS = 1000;
+    private static final int PROBE_MAX_TOKENS = 1;
+    private static final String MODE_COMPLETE = "completo";
+    private static final String MODE_STREAMING = "streaming";
+    private static final String OUTCOME_NETWORK_ERROR = "error_red";
+    private static final String OUTCOME_CANCELLED = "cancelado";
+    private static final String BATCH_JOKE_KEY = "chistes";
+    // Marcador de cada respuesta en un lote; distinto de cualquier formato Markdown que use la IA
+    private static final String BATCH_MARKER = "<<<RESPUESTA %d>>>";
+    private static final Pattern BATCH_MARKER_LINE = Pattern.compile("(?m)^[ \\t]*<<<RESPUESTA (\\d{1,4})>>>[ \\t]*$");
+    private final ChatCompletionJsonCodec jsonCodec;
     private final ConfigurationManager config;
     
+    // Agrupadores por tipo de petición: chistes, o conversaciones de ventas con el mismo objetivo
+    private final Map<String, AIRequestBatcher> batchers = new ConcurrentHashMap<>();
+    
+    @Autowired
+    private AIHttpClientManager httpClientManager;
+    
+    @Autowired
+    private AIHealthMonitor healthMonitor;
+    
+    @Autowired
+    private AICircuitBreaker circuitBreaker;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
     public GrokAIAdapter() {
-        this.objectMapper = new ObjectMapper();
+        this.jsonCodec = new ChatCompletionJsonCodec();
         this.config = ConfigurationManager.getInstance();
     }
     
+    /**
+     * Registra la sonda de disponibilidad en el monitor de salud
+     */
+    @PostConstruct
+    public void registerHealthProbe() {
+        healthMonitor.registerProbe(this::probeService);
+    }
+    
     @Override
     public String generateResponse(String prompt) throws AIServiceException {
-        try {
-            String requestBody = buildRequestBody(prompt);
-            return callAIAPI(requestBody);
-        } catch (Exception e) {
-            logger.error("Error generando respuesta de IA", e);
-            throw new AIServiceException("Error al generar respuesta de IA: " + e.getMessage(), e);
-        }
+        return callWithRetries(prompt, config.getAiTimeoutDefaultMs());
     }
     
     @Override
     public String generateJoke(String conversationContext) throws AIServiceException {
-        String jokePrompt = String.format(
+        return callWithRetries(buildJokePrompt(conversationContext), config.getAiTimeoutJokeMs());
+    }
+    
+    @Override
+    public String analyzeSalesConversation(String conversation, String objective) throws AIServiceException {
+        return callWithRetries(buildSalesPrompt(conversation, objective), config.getAiTimeoutSalesMs());
+    }
+    
+    /**
+     * Realiza la llamada síncrona, reintentando los errores transitorios con backoff
+     */
+    private String callWithRetries(String prompt, int timeoutMs) throws AIServiceException {
+        byte[] requestBody = buildRequestBody(prompt, DEFAULT_MAX_TOKENS, false);
+        
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return callAIAPI(requestBody, timeoutMs);
+            } catch (AIServiceException e) {
+                if (!shouldRetry(e, attempt)) {
+                    throw e;
+                }
+                long delay = backoffDelay(attempt, e);
+                logger.warn("Reintentando petición a la IA ({}/{}) en {} ms: {}",
+                           attempt + 1, config.getAiRetryMaxAttempts(), delay, e.getMessage());
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+    
+    @Override
+    public CompletableFuture<String> generateResponseAsync(String prompt) {
+        return sendWithRetries(prompt, config.getAiTimeoutDefaultMs(), null);
+    }
+    
+    @Override
+    public CompletableFuture<String> generateResponseStreaming(String prompt, Consumer<Supplier<String>> onPartial) {
+        return sendWithRetries(prompt, config.getAiTimeoutDefaultMs(), onPartial);
+    }
+    
+    @Override
+    public CompletableFuture<String> generateJokeAsync(String conversationContext) {
+        return sendWithRetries(buildJokePrompt(conversationContext), config.getAiTimeoutJokeMs(), null);
+    }
+    
+    @Override
+    public CompletableFuture<String> analyzeSalesConversationAsync(String conversation, String objective) {
+        return sendWithRetries(buildSalesPrompt(conversation, objective), config.getAiTimeoutSalesMs(), null);
+    }
+    
+    @Override
+    public CompletableFuture<String> analyzeSalesConversationStreaming(String conversation, String objective,
+                                                                       Consumer<Supplier<String>> onPartial) {
+        return sendWithRetries(buildSalesPrompt(conversation, objective), config.getAiTimeoutSalesMs(), onPartial);
+    }
+    
+    @Override
+    public CompletableFuture<String> generateJokeBatched(String conversationContext) {
+        return batcherFor(BATCH_JOKE_KEY, this::sendJokeBatch, this::generateJokeAsync)
+            .submit(conversationContext);
+    }
+    
+    @Override
+    public CompletableFuture<String> analyzeSalesConversationBatched(String conversation, String objective) {
+        return batcherFor(objective,
+                          conversations -> sendSalesBatch(conversations, objective),
+                          single -> analyzeSalesConversationAsync(single, objective))
+            .submit(conversation);
+    }
+    
+    private AIRequestBatcher batcherFor(String key,
+                                        Function<List<String>, CompletableFuture<List<String>>> batchCall,
+                                        Function<String, CompletableFuture<String>> singleCall) {
+        return batchers.computeIfAbsent(key, name -> new AIRequestBatcher(
+            name, batchMaxSize(), config.getAiBatchMaxWaitMs(),
+            httpClientManager.getCallbackExecutor(), batchCall, singleCall));
+    }
+    
+    /**
+     * Tamaño máximo de lote que cabe en el límite de tokens de una llamada agrupada
+     * dejando a cada elemento el mismo espacio de respuesta que una llamada normal
+     */
+    private int batchMaxSize() {
+        int fitting = Math.max(1, config.getAiBatchMaxTokens() / DEFAULT_MAX_TOKENS);
+        return Math.min(config.getAiBatchMaxSize(), fitting);
+    }
+    
+    /**
+     * Genera los chistes de varios contextos en una única llamada
+     */
+    private CompletableFuture<List<String>> sendJokeBatch(List<String> contexts) {
+        StringBuilder prompt = new StringBuilder(String.format(
+            "A continuación hay %d contextos de conversación de grupos distintos. Para cada uno, genera un chiste " +
+            "apropiado y divertido que sea relevante al tema discutido en ese contexto. Cada chiste debe ser " +
+            "respetuoso y adecuado para un entorno de grupo.\n" +
+            "Responde con un chiste por contexto, cada uno precedido de su marcador en una línea propia " +
+            "(por ejemplo ", contexts.size()))
+            .append(String.format(BATCH_MARKER, 1))
+            .append("), sin explicaciones adicionales.\n\n");
+        appendBatchItems(prompt, "Contexto", contexts);
+        return sendBatch(prompt.toString(), contexts.size(), config.getAiTimeoutJokeMs());
+    }
+    
+    /**
+     * Analiza varias conversaciones de ventas con el mismo objetivo en una única llamada
+     */
+    private CompletableFuture<List<String>> sendSalesBatch(List<String> conversations, String objective) {
+        StringBuilder prompt = new StringBuilder(String.format(
+            "Eres un experto consultor de ventas. A continuación hay %d conversaciones independientes entre un " +
+            "cliente y un vendedor. Analiza cada una por separado y proporciona consejos específicos para lograr " +
+            "el objetivo: %s.\n\n" +
+            "Para cada conversación proporciona consejos concretos y actionables para el vendedor, incluyendo:\n" +
+            "1. Análisis de la situación actual\n" +
+            "2. Estrategias recomendadas\n" +
+            "3. Frases o argumentos específicos que puede usar\n" +
+            "4. Qué evitar en esta situación\n\n" +
+            "Empieza la respuesta de cada conversación con su marcador en una línea propia (por ejemplo ",
+            conversations.size(), objective))
+            .append(String.format(BATCH_MARKER, 1))
+            .append(").\n\n");
+        appendBatchItems(prompt, "Conversación", conversations);
+        return sendBatch(prompt.toString(), conversations.size(), config.getAiTimeoutSalesMs());
+    }
+    
+    private static void appendBatchItems(StringBuilder prompt, String label, List<String> items) {
+        for (int i = 0; i < items.size(); i++) {
+            prompt.append(label).append(' ').append(i + 1).append(":\n")
+                  .append(items.get(i)).append("\n\n");
+        }
+    }
+    
+    /**
+     * Envía el prompt del lote con espacio de respuesta para todos sus elementos y reparte el resultado
+     */
+    private CompletableFuture<List<String>> sendBatch(String prompt, int size, int timeoutMs) {
+        meterRegistry.summary("ai.batch.size").record(size);
+        int maxTokens = Math.min(DEFAULT_MAX_TOKENS * size, Math.max(DEFAULT_MAX_TOKENS, config.getAiBatchMaxTokens()));
+        return sendWithRetries(prompt, maxTokens, timeoutMs, null)
+            .thenApply(content -> {
+                List<String> answers = splitBatchResponse(content, size);
+                long missing = answers.stream().filter(Objects::isNull).count();
+                String outcome = missing == 0 ? "repartido" : missing < size ? "parcial" : "fallido";
+                meterRegistry.counter("ai.batch.calls", "resultado", outcome).increment();
+                if (missing > 0) {
+                    meterRegistry.counter("ai.batch.items.resent").increment(missing);
+                }
+                return answers;
+            });
+    }
+    
+    /**
+     * Separa la respuesta del lote por sus marcadores. Cada marcador identifica su elemento por
+     * número, así que un marcador perdido o repetido solo invalida los elementos afectados.
+     * @return una respuesta por elemento en orden, con null en los que no pudieron separarse
+     */
+    private static List<String> splitBatchResponse(String content, int expected) {
+        List<String> answers = new ArrayList<>(Collections.nCopies(expected, null));
+        boolean[] seen = new boolean[expected];
+        Matcher marker = BATCH_MARKER_LINE.matcher(content);
+        int previousItem = -1;
+        int previousEnd = -1;
+        while (marker.find()) {
+            if (previousEnd >= 0) {
+                assignBatchAnswer(answers, seen, previousItem, content.substring(previousEnd, marker.start()));
+            }
+            previousItem = Integer.parseInt(marker.group(1)) - 1;
+            previousEnd = marker.end();
+        }
+        if (previousEnd >= 0) {
+            assignBatchAnswer(answers, seen, previousItem, content.substring(previousEnd));
+        }
+        return answers;
+    }
+    
+    private static void assignBatchAnswer(List<String> answers, boolean[] seen, int item, String segment) {
+        if (item < 0 || item >= answers.size()) {
+            return;
+        }
+        if (seen[item]) {
+            // Dos respuestas para el mismo elemento: no se sabe cuál es la buena
+            answers.set(item, null);
+            return;
+        }
+        seen[item] = true;
+        String answer = segment.trim();
+        if (!answer.isEmpty()) {
+            answers.set(item, answer);
+        }
+    }
+    
+    /**
+     * Envía la petición con el cliente asíncrono, reintentando los errores transitorios con backoff.
+     * Las esperas entre intentos no ocupan ningún hilo. En streaming solo se reintenta
+     * si aún no se ha notificado texto parcial, para no mezclar dos respuestas distintas.
+     * @param onPartial consumidor del proveedor del texto parcial, o null para una respuesta completa
+     */
+    private CompletableFuture<String> sendWithRetries(String prompt, int timeoutMs,
+                                                      Consumer<Supplier<String>> onPartial) {
+        return sendWithRetries(prompt, DEFAULT_MAX_TOKENS, timeoutMs, onPartial);
+    }
+    
+    private CompletableFuture<String> sendWithRetries(String prompt, int maxTokens, int timeoutMs,
+                                                      Consumer<Supplier<String>> onPartial) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        byte[] requestBody = buildRequestBody(prompt, maxTokens, onPartial != null);
+        
+        AtomicBoolean partialDelivered = new AtomicBoolean();
+        Consumer<Supplier<String>> trackedPartial = onPartial == null ? null : partial -> {
+            partialDelivered.set(true);
+            onPartial.accept(partial);
+        };
+        attemptAsync(requestBody, timeoutMs, trackedPartial, partialDelivered, 1, result);
+        return result;
+    }
+    
+    private void attemptAsync(byte[] requestBody, int timeoutMs, Consumer<Supplier<String>> onPartial,
+                              AtomicBoolean partialDelivered, int attempt, CompletableFuture<String> result) {
+        CompletableFuture<String> response = onPartial != null
+            ? sendStreaming(requestBody, timeoutMs, onPartial)
+            : sendOnce(requestBody, timeoutMs);
+        
+        response.whenComplete((content, error) -> {
+            if (error == null) {
+                result.complete(content);
+                return;
+            }
+            
+            Throwable cause = AIServiceException.unwrap(error);
+            if (cause instanceof AIServiceException && !partialDelivered.get()
+                && shouldRetry((AIServiceException) cause, attempt)) {
+                long delay = backoffDelay(attempt, (AIServiceException) cause);
+                logger.warn("Reintentando petición a la IA ({}/{}) en {} ms: {}",
+                           attempt + 1, config.getAiRetryMaxAttempts(), delay, cause.getMessage());
+                Executor delayed = CompletableFuture.delayedExecutor(
+                    delay, TimeUnit.MILLISECONDS, httpClientManager.getCallbackExecutor());
+                delayed.execute(() -> attemptAsync(requestBody, timeoutMs, onPartial, partialDelivered,
+                                                   attempt + 1, result));
+            } else {
+                result.completeExceptionally(cause);
+            }
+        });
+    }
+    
+    /**
+     * Realiza un único intento con el cliente asíncrono: el hilo que llama queda libre
+     * mientras la respuesta está en vuelo, y el resultado se procesa en el executor de callbacks
+     */
+    private CompletableFuture<String> sendOnce(byte[] requestBody, int timeoutMs) {
+        if (!circuitBreaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(circuitOpenException());
+        }
+        
+        CompletableFuture<String> result = new CompletableFuture<>();
+        long startNanos = System.nanoTime();
+        try {
+            SimpleHttpRequest request = SimpleRequestBuilder.post(config.getAiApiUrl())
+                .setHeader("Authorization", "Bearer " + config.getAiApiKey())
+                .setBody(requestBody, ContentType.APPLICATION_JSON)
+                .setRequestConfig(requestConfig(timeoutMs))
+                .build();
+            
+            httpClientManager.getAsyncHttpClient().execute(request, new FutureCallback<SimpleHttpResponse>() {
+                @Override
+                public void completed(SimpleHttpResponse response) {
+                    recordLatency(MODE_COMPLETE, startNanos, outcomeOf(response.getCode()));
+                    completeOnCallbackExecutor(result, () -> handleResponse(response.getCode(),
+                        response.getBodyBytes(), response.getFirstHeader("Retry-After")));
+                }
+            
+                @Override
+                public void failed(Exception ex) {
+                    recordLatency(MODE_COMPLETE, startNanos, OUTCOME_NETWORK_ERROR);
+                    result.completeExceptionally(transportFailure(ex));
+                }
+                
+                @Override
+                public void cancelled() {
+                    recordLatency(MODE_COMPLETE, startNanos, OUTCOME_CANCELLED);
+                    circuitBreaker.recordFailure();
+                    result.completeExceptionally(new AIServiceException("Petición a la API de IA cancelada"));
+                }
+            });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(localFailure(e));
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Realiza un único intento en modo streaming (SSE): el texto parcial se notifica
+     * desde los hilos de I/O a medida que llegan los tokens, y el resultado final
+     * se completa en el executor de callbacks
+     */
+    private CompletableFuture<String> sendStreaming(byte[] requestBody, int timeoutMs,
+                                                    Consumer<Supplier<String>> onPartial) {
+        if (!circuitBreaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(circuitOpenException());
+        }
+        
+        CompletableFuture<String> result = new CompletableFuture<>();
+        long startNanos = System.nanoTime();
+        try {
+            SimpleHttpRequest request = SimpleRequestBuilder.post(config.getAiApiUrl())
+                .setHeader("Authorization", "Bearer " + config.getAiApiKey())
+                .setHeader("Accept", "text/event-stream")
+                .setBody(requestBody, ContentType.APPLICATION_JSON)
+                .setRequestConfig(requestConfig(timeoutMs))
+                .build();
+            ChatCompletionStreamConsumer consumer = new ChatCompletionStreamConsumer(jsonCodec, onPartial);
+            
+            httpClientManager.getAsyncHttpClient().execute(SimpleRequestProducer.create(request), consumer,
+                new FutureCallback<String>() {
+                    @Override
+                    public void completed(String content) {
+                        recordLatency(MODE_STREAMING, startNanos, outcomeOf(consumer.getStatusCode()));
+                        completeOnCallbackExecutor(result, () -> handleStreamResponse(consumer.getStatusCode(),
+                            content, consumer.getRetryAfter()));
+                    }
+                    
+                    @Override
+                    public void failed(Exception ex) {
+                        recordLatency(MODE_STREAMING, startNanos, OUTCOME_NETWORK_ERROR);
+                        result.completeExceptionally(transportFailure(ex));
+                    }
+                    
+                    @Override
+                    public void cancelled() {
+                        recordLatency(MODE_STREAMING, startNanos, OUTCOME_CANCELLED);
+                        circuitBreaker.recordFailure();
+                        result.completeExceptionally(new AIServiceException("Petición a la API de IA cancelada"));
+                    }
+                });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(localFailure(e));
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Respuesta del proveedor ya recibida, pendiente de interpretar
+     */
+    @FunctionalInterface
+    private interface ResponseHandler {
+        String handle() throws AIServiceException;
+    }
+    
+    /**
+     * Interpreta la respuesta en el executor de callbacks (o en el hilo actual si está detenido).
+     * Cualquier error inesperado completa el resultado y devuelve el permiso del circuit breaker.
+     */
+    private void completeOnCallbackExecutor(CompletableFuture<String> result, ResponseHandler handler) {
+        Runnable completion = () -> {
+            try {
+                result.complete(handler.handle());
+            } catch (AIServiceException e) {
+                result.completeExceptionally(e);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(localFailure(e));
+            }
+        };
+        try {
+            httpClientManager.getCallbackExecutor().execute(completion);
+        } catch (RejectedExecutionException e) {
+            completion.run();
+        }
+    }
+    
+    /**
+     * Construye el prompt para generar un chiste a partir del contexto
+     */
+    private String buildJokePrompt(String conversationContext) {
+        return String.format(
             "Basándote en el siguiente contexto de conversación, genera un chiste apropiado y divertido " +
             "que sea relevante al tema discutido. El chiste debe ser respetuoso y adecuado para un entorno de grupo. " +
             "Contexto: %s\n\nGenera solo el chiste, sin explicaciones adicionales.", 
             conversationContext
         );
-        return generateResponse(jokePrompt);
     }
     
-    @Override
-    public String analyzeSalesConversation(String conversation, String objective) throws AIServiceException {
-        String salesPrompt = String.format(
+    /**
+     * Construye el prompt para analizar una conversación de ventas
+     */
+    private String buildSalesPrompt(String conversation, String objective) {
+        return String.format(
             "Eres un experto consultor de ventas. Analiza la siguiente conversación entre un cliente y un vendedor, " +
             "y proporciona consejos específicos para lograr el objetivo: %s.\n\n" +
             "Conversación:\n%s\n\n" +
@@ -68,95 +501,265 @@ public class GrokAIAdapter implements AIServiceAdapter {
             "4. Qué evitar en esta situación",
             objective, conversation
         );
-        return generateResponse(salesPrompt);
     }
     
+    /**
+     * Devuelve el último estado conocido del proveedor sin realizar ninguna llamada.
+     * El estado lo mantiene {@link AIHealthMonitor} a partir del tráfico real y de su sonda.
+     */
     @Override
     public boolean isServiceAvailable() {
-        try {
-            String testPrompt = "Di 'OK' si puedes responder";
-            String response = generateResponse(testPrompt);
-            return response != null && !response.trim().isEmpty();
-        } catch (Exception e) {
-            logger.warn("Servicio de IA no disponible", e);
-            return false;
-        }
+        return healthMonitor.isAvailable();
     }
     
     /**
-     * Construye el cuerpo de la petición HTTP para la API de Grok
+     * Sonda mínima (un solo token) usada por el monitor cuando no hay tráfico reciente.
+     * Pasa por el circuit breaker y no se reintenta: con el circuito abierto no se envía,
+     * y pasado el tiempo de apertura es la petición de prueba que puede volver a cerrarlo.
      */
-    private String buildRequestBody(String prompt) throws JsonProcessingException {
-        return String.format(
-            "{\"model\":\"%s\",\"messages\":[{\"role\":\"user\",\"content\":\"%s\"}],\"max_tokens\":1000,\"temperature\":0.7}",
-            config.getAiModel(),
-            prompt.replace("\"", "\\\"").replace("\n", "\\n")
-        );
+    private void probeService() throws AIServiceException {
+        callAIAPI(buildRequestBody("Di 'OK'", PROBE_MAX_TOKENS, false), config.getAiTimeoutDefaultMs());
+    }
+    
+    /**
+     * Construye el cuerpo de la petición HTTP para la API de Grok, indicando si la respuesta
+     * debe enviarse en streaming. Jackson escapa cualquier carácter del prompt.
+     */
+    private byte[] buildRequestBody(String prompt, int maxTokens, boolean stream) {
+        return jsonCodec.writeRequest(config.getAiModel(), prompt, maxTokens, stream);
+    }
+    
+    /**
+     * Realiza un único intento síncrono si el circuit breaker lo permite
+     */
+    private String callAIAPI(byte[] requestBody, int timeoutMs) throws AIServiceException {
+        if (!circuitBreaker.tryAcquire()) {
+            throw circuitOpenException();
+        }
+        try {
+            return executeRequest(requestBody, timeoutMs);
+        } catch (RuntimeException e) {
+            throw localFailure(e);
+        }
     }
     
     /**
-     * Realiza la llamada HTTP a la API de IA
+     * Realiza la llamada HTTP a la API de IA usando el cliente compartido del pool.
+     * La respuesta se consume por completo para que la conexión vuelva al pool.
      */
-    private String callAIAPI(String requestBody) throws AIServiceException {
-        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+    private String executeRequest(byte[] requestBody, int timeoutMs) throws AIServiceException {
+        long startNanos = System.nanoTime();
+        try {
             HttpPost httpPost = new HttpPost(config.getAiApiUrl());
             
             // Headers
             httpPost.setHeader("Authorization", "Bearer " + config.getAiApiKey());
             httpPost.setHeader("Content-Type", "application/json");
+            httpPost.setConfig(requestConfig(timeoutMs));
             
             // Body
-            httpPost.setEntity(new StringEntity(requestBody, ContentType.APPLICATION_JSON));
+            httpPost.setEntity(new ByteArrayEntity(requestBody, ContentType.APPLICATION_JSON));
             
             @SuppressWarnings("deprecation")
-            CloseableHttpResponse response = httpClient.execute(httpPost);
+            CloseableHttpResponse response = httpClientManager.getHttpClient().execute(httpPost);
             try {
                 int statusCode = response.getCode();
-                String responseBody = new String(
-                    response.getEntity().getContent().readAllBytes(), 
-                    StandardCharsets.UTF_8
-                );
-                
-                if (statusCode == 200) {
-                    return extractResponseContent(responseBody);
-                } else {
-                    logger.error("Error en API de IA. Status: {}, Response: {}", statusCode, responseBody);
-                    throw new AIServiceException("Error en API de IA. Status: " + statusCode);
+                recordLatency(MODE_COMPLETE, startNanos, outcomeOf(statusCode));
+                HttpEntity entity = response.getEntity();
+                if (statusCode == 200 && entity != null) {
+                    // La respuesta correcta se decodifica directamente del flujo de la conexión
+                    recordProviderSuccess();
+                    try (InputStream content = entity.getContent()) {
+                        return extractResponseContent(jsonCodec.readCompletion(content));
+                    } catch (JsonProcessingException e) {
+                        throw malformedResponse(e);
+                    }
                 }
+                
+                byte[] responseBody = entity != null ? EntityUtils.toByteArray(entity) : new byte[0];
+                return handleResponse(statusCode, responseBody, response.getFirstHeader("Retry-After"));
             } finally {
                 response.close();
             }
         } catch (IOException e) {
-            logger.error("Error de comunicación con API de IA", e);
-            throw new AIServiceException("Error de comunicación con API de IA", e);
+            recordLatency(MODE_COMPLETE, startNanos, OUTCOME_NETWORK_ERROR);
+            throw transportFailure(e);
         }
     }
     
     /**
-     * Extrae el contenido de la respuesta de la API de IA
+     * Tiempos máximos de una petición: obtener conexión del pool y esperar la respuesta
      */
-    private String extractResponseContent(String responseBody) throws AIServiceException {
-        try {
-            JsonNode root = objectMapper.readTree(responseBody);
-            JsonNode choices = root.get("choices");
-            
-            if (choices != null && choices.isArray() && choices.size() > 0) {
-                JsonNode firstChoice = choices.get(0);
-                JsonNode message = firstChoice.get("message");
-                if (message != null) {
-                    JsonNode content = message.get("content");
-                    if (content != null) {
-                        return content.asText().trim();
-                    }
-                }
+    private RequestConfig requestConfig(int responseTimeoutMs) {
+        return RequestConfig.custom()
+            .setConnectionRequestTimeout(Timeout.ofMilliseconds(config.getAiTimeoutConnectionRequestMs()))
+            .setResponseTimeout(Timeout.ofMilliseconds(responseTimeoutMs))
+            .build();
+    }
+    
+    /**
+     * Interpreta el código de estado de la API de IA y actualiza el monitor de salud y el circuit breaker.
+     * Los 429 y 5xx se consideran transitorios y pueden reintentarse.
+     */
+    private String handleResponse(int statusCode, byte[] responseBody, Header retryAfter) throws AIServiceException {
+        if (statusCode == 200) {
+            recordProviderSuccess();
+            try {
+                return extractResponseContent(jsonCodec.readCompletion(responseBody));
+            } catch (IOException e) {
+                throw malformedResponse(e);
             }
-            
-            logger.error("Formato de respuesta inesperado: {}", responseBody);
+        }
+        
+        logger.error("Error en API de IA. Status: {}, Response: {}", statusCode,
+                    new String(responseBody, StandardCharsets.UTF_8));
+        return rejectStatus(statusCode, retryAfter);
+    }
+    
+    /**
+     * Interpreta el resultado de una respuesta en streaming y actualiza el monitor de salud
+     */
+    private String handleStreamResponse(int statusCode, String content, Header retryAfter)
+            throws AIServiceException {
+        if (statusCode != 200) {
+            // Con un estado de error el contenido es el cuerpo completo de la respuesta
+            logger.error("Error en API de IA. Status: {}, Response: {}", statusCode, content);
+            return rejectStatus(statusCode, retryAfter);
+        }
+        
+        recordProviderSuccess();
+        if (content.isEmpty()) {
+            logger.error("Respuesta en streaming sin contenido");
             throw new AIServiceException("Formato de respuesta inesperado de la API de IA");
-            
-        } catch (JsonProcessingException e) {
-            logger.error("Error al parsear respuesta JSON", e);
-            throw new AIServiceException("Error al parsear respuesta de IA", e);
         }
+        return content;
+    }
+    
+    private void recordProviderSuccess() {
+        healthMonitor.recordSuccess();
+        circuitBreaker.recordSuccess();
+    }
+    
+    /**
+     * Registra un estado de error y lanza la excepción correspondiente
+     */
+    private String rejectStatus(int statusCode, Header retryAfter) throws AIServiceException {
+        String message = "Error en API de IA. Status: " + statusCode;
+        // Un 400 se debe a la petición concreta, no al estado del proveedor
+        if (statusCode != 400) {
+            healthMonitor.recordFailure("HTTP " + statusCode);
+        }
+        
+        if (statusCode == 429 || statusCode >= 500) {
+            circuitBreaker.recordFailure();
+            throw AIServiceException.retryable(message, null, parseRetryAfterMillis(retryAfter));
+        }
+        // El proveedor respondió: un error de la petición no debe abrir el circuito
+        circuitBreaker.recordSuccess();
+        throw new AIServiceException(message);
+    }
+    
+    /**
+     * Registra un fallo de red o un timeout, que se considera transitorio
+     */
+    private AIServiceException transportFailure(Exception error) {
+        healthMonitor.recordFailure(error.getMessage());
+        circuitBreaker.recordFailure();
+        logger.error("Error de comunicación con API de IA: {}", error.toString());
+        return AIServiceException.retryable("Error de comunicación con API de IA", error, 0);
+    }
+    
+    /**
+     * Registra un error local (cliente detenido, respuesta imposible de procesar...), que no dice
+     * nada del proveedor: solo devuelve el permiso del circuit breaker para no dejarlo semiabierto
+     */
+    private AIServiceException localFailure(RuntimeException error) {
+        circuitBreaker.release();
+        logger.error("Error interno en la petición a la API de IA: {}", error.toString(), error);
+        return new AIServiceException("Error interno en la petición a la API de IA", error);
+    }
+    
+    private AIServiceException circuitOpenException() {
+        return new AIServiceException("Servicio de IA temporalmente no disponible (circuito abierto)");
+    }
+    
+    /**
+     * Solo se reintentan errores transitorios, dentro del máximo de intentos y con el circuito cerrado
+     */
+    private boolean shouldRetry(AIServiceException error, int attempt) {
+        return error.isRetryable() && attempt < config.getAiRetryMaxAttempts()
+               && circuitBreaker.getState() != AICircuitBreaker.State.OPEN;
+    }
+    
+    /**
+     * Backoff exponencial con jitter: la mitad del retardo es fija y la otra mitad aleatoria,
+     * para que los clientes que fallaron a la vez no reintenten a la vez.
+     * Nunca es menor que el Retry-After indicado por el proveedor.
+     */
+    private long backoffDelay(int attempt, AIServiceException error) {
+        long exponential = Math.min(config.getAiRetryMaxDelayMs(),
+                                    (long) config.getAiRetryBaseDelayMs() << Math.min(attempt - 1, 20));
+        long half = exponential / 2;
+        long delay = half + ThreadLocalRandom.current().nextLong(half + 1);
+        return Math.max(delay, error.getRetryAfterMillis());
+    }
+    
+    /**
+     * Interpreta la cabecera Retry-After en segundos; el formato de fecha HTTP se ignora
+     */
+    private long parseRetryAfterMillis(Header retryAfter) {
+        if (retryAfter == null) {
+            return 0;
+        }
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.getValue().trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    /**
+     * Extrae el contenido de la respuesta de la API de IA
+     */
+    private String extractResponseContent(ChatCompletionJsonCodec.ChatCompletion completion)
+            throws AIServiceException {
+        if (completion.getContent() == null) {
+            logger.error("Formato de respuesta inesperado: sin choices[0].message.content");
+            throw new AIServiceException("Formato de respuesta inesperado de la API de IA");
+        }
+        
+        logger.debug("Tokens consumidos: {} de prompt, {} de respuesta",
+                    completion.getPromptTokens(), completion.getCompletionTokens());
+        meterRegistry.counter("ai.tokens", "tipo", "prompt").increment(completion.getPromptTokens());
+        meterRegistry.counter("ai.tokens", "tipo", "respuesta").increment(completion.getCompletionTokens());
+        return completion.getContent().trim();
+    }
+    
+    /**
+     * Registra la latencia de un intento hasta recibir la respuesta completa o el error
+     */
+    private void recordLatency(String mode, long startNanos, String outcome) {
+        Timer.builder("ai.request.duration")
+            .description("Latencia de las peticiones a la API de IA")
+            .tag("modo", mode)
+            .tag("resultado", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    private static String outcomeOf(int statusCode) {
+        if (statusCode == 200) {
+            return "exito";
+        }
+        if (statusCode == 429) {
+            return "limitado";
+        }
+        return statusCode >= 500 ? "error_servidor" : "error_peticion";
+    }
+    
+    private AIServiceException malformedResponse(IOException error) {
+        logger.error("Error al parsear respuesta JSON", error);
+        return new AIServiceException("Error al parsear respuesta de IA", error);
     }
 }
\ No newline at end of file
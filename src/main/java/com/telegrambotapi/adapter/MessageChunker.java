@@ -0,0 +1,96 @@
+package com.telegrambotapi.adapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Divide textos largos en fragmentos que caben en un mensaje de Telegram.
+ * Los cortes se hacen, por orden de preferencia, en un salto de párrafo, en un salto de línea,
+ * al final de una frase o en un espacio; solo si no hay ninguno en la segunda mitad del fragmento
+ * se corta a mitad de palabra, y nunca entre las dos mitades de un par sustituto UTF-16 (p. ej. un emoji).
+ */
+public final class MessageChunker {
+
+    /**
+     * Longitud máxima del texto de un mensaje, en unidades UTF-16
+     */
+    public static final int MAX_MESSAGE_LENGTH = 4096;
+
+    private static final String[] SENTENCE_ENDS = {". ", "! ", "? "};
+
+    private MessageChunker() {
+    }
+
+    /**
+     * Calcula dónde termina el primer fragmento del texto
+     * @param text el texto a dividir
+     * @param maxLength longitud máxima del fragmento
+     * @return la longitud del primer fragmento; la del texto completo si ya cabe
+     */
+    public static int splitPoint(CharSequence text, int maxLength) {
+        if (text.length() <= maxLength) {
+            return text.length();
+        }
+        // Un separador demasiado temprano dejaría fragmentos muy cortos
+        int minimum = maxLength / 2;
+
+        int cut = lastSeparator(text, "\n\n", maxLength, minimum);
+        if (cut < 0) {
+            cut = lastSeparator(text, "\n", maxLength, minimum);
+        }
+        if (cut < 0) {
+            // La frase que termina más tarde, sea cual sea su signo
+            for (String end : SENTENCE_ENDS) {
+                cut = Math.max(cut, lastSeparator(text, end, maxLength, minimum));
+            }
+        }
+        if (cut < 0) {
+            cut = lastSeparator(text, " ", maxLength, minimum);
+        }
+        if (cut < 0) {
+            cut = maxLength;
+            if (Character.isHighSurrogate(text.charAt(cut - 1)) && Character.isLowSurrogate(text.charAt(cut))) {
+                cut--;
+            }
+        }
+        return cut;
+    }
+
+    /**
+     * Divide el texto en fragmentos de como mucho maxLength, sin espacios sobrantes en los bordes
+     * @return los fragmentos en orden; vacío si el texto solo contiene espacios
+     */
+    public static List<String> split(String text, int maxLength) {
+        List<String> chunks = new ArrayList<>();
+        String remaining = text.strip();
+        while (!remaining.isEmpty()) {
+            int cut = splitPoint(remaining, maxLength);
+            String chunk = remaining.substring(0, cut).stripTrailing();
+            if (!chunk.isEmpty()) {
+                chunks.add(chunk);
+            }
+            remaining = remaining.substring(cut).stripLeading();
+        }
+        return chunks;
+    }
+
+    /**
+     * Posición justo después del último separador que deja un fragmento entre minimum y maxLength
+     */
+    private static int lastSeparator(CharSequence text, String separator, int maxLength, int minimum) {
+        for (int end = maxLength; end >= minimum; end--) {
+            int start = end - separator.length();
+            if (start < 0) {
+                return -1;
+            }
+            boolean matches = true;
+            for (int i = 0; i < separator.length() && matches; i++) {
+                matches = text.charAt(start + i) == separator.charAt(i);
+            }
+            if (matches) {
+                return end;
+            }
+        }
+        return -1;
+    }
+}
@@ -1,14 +1,25 @@
 package com.telegrambotapi.adapter;
 
 import com.telegrambotapi.config.ConfigurationManager;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.Chat;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.BotSession;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Implementación del patrón Adapter para la API de Telegram.
@@ -20,11 +31,41 @@ public class TelegramBotAdapter extends TelegramLongPollingBot implements Telegr
     private static final Logger logger = LoggerFactory.getLogger(TelegramBotAdapter.class);
     private final ConfigurationManager config;
     
+    // Receptor al que se entregan los updates (registrado por la capa de servicio)
+    private volatile Consumer<Update> updateHandler;
+    
+    // Sesión con Telegram: registrada al arrancar; en modo webhook no hay sesión de polling
+    private volatile boolean registered;
+    private volatile BotSession pollingSession;
+    
+    @Autowired
+    private TelegramOutboundQueue outboundQueue;
+    
     public TelegramBotAdapter() {
-        super(ConfigurationManager.getInstance().getTelegramBotToken());
+        super(botOptions(ConfigurationManager.getInstance()), ConfigurationManager.getInstance().getTelegramBotToken());
         this.config = ConfigurationManager.getInstance();
     }
     
+    /**
+     * Opciones del cliente de Telegram, con la URL base de la Bot API configurada
+     */
+    private static DefaultBotOptions botOptions(ConfigurationManager config) {
+        DefaultBotOptions options = new DefaultBotOptions();
+        String baseUrl = config.getTelegramApiBaseUrl();
+        if (baseUrl != null && !baseUrl.isBlank()) {
+            options.setBaseUrl(baseUrl);
+        }
+        return options;
+    }
+    
+    /**
+     * Registra este bot como el cliente con el que la cola de salida ejecuta los envíos
+     */
+    @PostConstruct
+    public void registerSender() {
+        outboundQueue.registerSender(this);
+    }
+    
     @Override
     public String getBotToken() {
         return config.getTelegramBotToken();
@@ -37,26 +78,122 @@ public class TelegramBotAdapter extends TelegramLongPollingBot implements Telegr
     
     @Override
     public void onUpdateReceived(Update update) {
-        // Este método será manejado por el servicio principal
-        // Aquí solo registramos la recepción del update
-        logger.info("Update recibido: {}", update.getUpdateId());
+        // El procesamiento lo realiza el receptor registrado por la capa de servicio
+        Consumer<Update> handler = updateHandler;
+        if (handler == null) {
+            logger.info("Update recibido sin receptor registrado: {}", update.getUpdateId());
+            return;
+        }
+        
+        try {
+            handler.accept(update);
+        } catch (Exception e) {
+            logger.error("Error procesando update en adapter: {}", e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Marca el bot como registrado en Telegram
+     * @param session la sesión de long polling, o null en modo webhook
+     */
+    public void markRegistered(BotSession session) {
+        this.pollingSession = session;
+        this.registered = true;
+    }
+    
+    /**
+     * Indica si el bot está registrado y, en long polling, si la sesión sigue en marcha.
+     * Solo lee el estado local: no realiza ninguna petición a Telegram.
+     */
+    public boolean isSessionActive() {
+        BotSession session = pollingSession;
+        return registered && (session == null || session.isRunning());
     }
     
+    /**
+     * Registra el receptor que procesará los updates recibidos
+     * @param updateHandler el receptor de updates
+     */
+    public void setUpdateHandler(Consumer<Update> updateHandler) {
+        this.updateHandler = updateHandler;
+    }
+    
+    /**
+     * Encola el mensaje en la cola de salida; el envío se realiza en segundo plano
+     * respetando los límites de Telegram y el orden de los mensajes del chat
+     */
     @Override
     public boolean sendTextMessage(String chatId, String text) {
-        try {
-            SendMessage message = new SendMessage();
-            message.setChatId(chatId);
-            message.setText(text);
-            
-            execute(message);
-            logger.info("Mensaje enviado al chat {}: {}", chatId, text.substring(0, Math.min(50, text.length())));
-            return true;
-            
-        } catch (TelegramApiException e) {
-            logger.error("Error enviando mensaje al chat {}: {}", chatId, e.getMessage(), e);
-            return false;
+        CompletableFuture<Integer> sent = sendTextMessageAsync(chatId, text);
+        // Solo puede estar completado con null si la cola rechazó el mensaje
+        return !sent.isDone() || sent.join() != null;
+    }
+    
+    /**
+     * Los textos que superan el límite de Telegram se dividen y todas las partes se encolan
+     * a la vez; la cola de salida las envía en orden según el límite del chat
+     * @return un futuro con el ID del primer mensaje, o con null si alguna parte no se envió
+     */
+    @Override
+    public CompletableFuture<Integer> sendTextMessageAsync(String chatId, String text) {
+        if (text.length() <= MessageChunker.MAX_MESSAGE_LENGTH) {
+            return sendSingleMessage(chatId, text);
+        }
+        
+        List<String> parts = MessageChunker.split(text, MessageChunker.MAX_MESSAGE_LENGTH);
+        if (parts.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        logger.info("Mensaje de {} caracteres para el chat {} dividido en {} partes", text.length(), chatId, parts.size());
+        List<CompletableFuture<Integer>> sent = new ArrayList<>(parts.size());
+        for (String part : parts) {
+            sent.add(sendSingleMessage(chatId, part));
         }
+        return CompletableFuture.allOf(sent.toArray(new CompletableFuture<?>[0]))
+            .thenApply(done -> sent.stream().anyMatch(part -> part.join() == null) ? null : sent.get(0).join());
+    }
+    
+    private CompletableFuture<Integer> sendSingleMessage(String chatId, String text) {
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId);
+        message.setText(text);
+        
+        return outboundQueue.submit(chatId, message, null)
+            .handle((sent, error) -> {
+                if (error != null) {
+                    logger.error("Error enviando mensaje al chat {}: {}", chatId, error.getMessage());
+                    return null;
+                }
+                logger.info("Mensaje enviado al chat {}: {}", chatId, text.substring(0, Math.min(50, text.length())));
+                return sent.getMessageId();
+            });
+    }
+    
+    /**
+     * Encola la edición; si la misma edición sigue pendiente, se sustituye su texto
+     * en lugar de encolar otra, de modo que solo se envía el texto más reciente
+     */
+    @Override
+    public CompletableFuture<Boolean> editTextMessageAsync(String chatId, Integer messageId, String text) {
+        EditMessageText edit = new EditMessageText();
+        edit.setChatId(chatId);
+        edit.setMessageId(messageId);
+        edit.setText(text);
+        
+        return outboundQueue.submit(chatId, edit, "edit:" + messageId)
+            .handle((edited, error) -> {
+                if (error == null) {
+                    logger.debug("Mensaje {} editado en el chat {}", messageId, chatId);
+                    return true;
+                }
+                String reason = error.getMessage();
+                // Telegram rechaza una edición que no cambia el texto; el mensaje ya está como se quería
+                if (reason != null && reason.contains("message is not modified")) {
+                    return true;
+                }
+                logger.error("Error editando mensaje {} del chat {}: {}", messageId, chatId, reason);
+                return false;
+            });
     }
     
     @Override
@@ -123,11 +260,11 @@ public class TelegramBotAdapter extends TelegramLongPollingBot implements Telegr
     }
     
     /**
-     * Verifica si el mensaje proviene de un grupo
+     * Verifica si el mensaje proviene de un grupo o supergrupo
      */
     public boolean isGroupMessage(Update update) {
         Message message = extractMessage(update);
-        return message != null && message.getChat().isGroupChat();
+        return message != null && isGroupChat(message.getChat());
     }
     
     /**
@@ -135,9 +272,13 @@ public class TelegramBotAdapter extends TelegramLongPollingBot implements Telegr
      */
     public String getGroupTitle(Update update) {
         Message message = extractMessage(update);
-        if (message != null && message.getChat().isGroupChat()) {
+        if (message != null && isGroupChat(message.getChat())) {
             return message.getChat().getTitle();
         }
         return null;
     }
+    
+    private static boolean isGroupChat(Chat chat) {
+        return chat.isGroupChat() || chat.isSuperGroupChat();
+    }
 }
\ No newline at end of file
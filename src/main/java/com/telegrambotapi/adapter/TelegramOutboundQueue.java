@@ -0,0 +1,437 @@
+package com.telegrambotapi.adapter;
+
+import com.telegrambotapi.config.ConfigurationManager;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cola de salida hacia la API de Telegram con límites de frecuencia.
+ * Cada chat tiene su propia cola y su cubeta de tokens (1 mensaje/s en privados,
+ * 20 mensajes/min en grupos), y todos comparten una cubeta global (30 mensajes/s).
+ * Los envíos se realizan en segundo plano y de uno en uno por chat, de modo que se conserva
+ * el orden; una respuesta 429 pausa el chat durante el retry_after indicado y reintenta.
+ */
+@Component
+public class TelegramOutboundQueue {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TelegramOutboundQueue.class);
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int MAX_RETRIES = 5;
+    private static final int BACKLOG_REPORT_LIMIT = 20;
+    
+    @Autowired
+    private ConfigurationManager config;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private volatile AbsSender sender;
+    private ExecutorService senderPool;
+    private Thread scheduler;
+    private volatile boolean running;
+    private TokenBucket globalBucket;
+    
+    // Colas por chat en orden de servicio (round-robin); protegidas por el lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition wakeUp = lock.newCondition();
+    private final LinkedHashMap<String, ChatOutbox> outboxes = new LinkedHashMap<>();
+    // Solo se modifica con el lock tomado; volatile para poder leerlo sin él
+    private volatile int queuedCount;
+    
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong rateLimitedCount = new AtomicLong();
+    private volatile long lastSentMillis;
+    private volatile long lastFailureMillis;
+    
+    /**
+     * Mensajes pendientes de un chat, su cubeta y si hay un envío en curso
+     */
+    private static final class ChatOutbox {
+        private final Deque<OutboundRequest> pending = new ArrayDeque<>();
+        private final TokenBucket bucket;
+        private boolean inFlight;
+        private long retryAtMillis;
+        
+        private ChatOutbox(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+    
+    /**
+     * Petición pendiente; su método puede sustituirse mientras no se haya enviado
+     */
+    private static final class OutboundRequest {
+        private final String coalesceKey;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private BotApiMethod<? extends Serializable> method;
+        private int attempts;
+        
+        private OutboundRequest(String coalesceKey, BotApiMethod<? extends Serializable> method) {
+            this.coalesceKey = coalesceKey;
+            this.method = method;
+        }
+    }
+    
+    /**
+     * Arranca el planificador y el pool de envío
+     */
+    @PostConstruct
+    public void initialize() {
+        globalBucket = new TokenBucket(config.getOutboundGlobalPerSecond(), config.getOutboundGlobalPerSecond());
+        
+        AtomicInteger threadCounter = new AtomicInteger();
+        senderPool = Executors.newFixedThreadPool(Math.max(1, config.getOutboundSenderThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "telegram-sender-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        Gauge.builder("telegram.outbound.queue", this, TelegramOutboundQueue::getQueueDepth)
+            .description("Mensajes en espera de envío a Telegram")
+            .register(meterRegistry);
+        
+        running = true;
+        scheduler = new Thread(this::runScheduler, "telegram-outbound-scheduler");
+        scheduler.setDaemon(true);
+        scheduler.start();
+        
+        logger.info("Cola de envío inicializada: {} mensajes/s globales, {} por chat/s, {} por grupo/min",
+                   config.getOutboundGlobalPerSecond(), config.getOutboundPerChatPerSecond(),
+                   config.getOutboundPerGroupPerMinute());
+    }
+    
+    /**
+     * Registra el cliente que ejecuta las peticiones contra Telegram
+     */
+    public void registerSender(AbsSender sender) {
+        this.sender = sender;
+    }
+    
+    /**
+     * Encola una petición para un chat
+     * @param chatId el ID del chat destino
+     * @param method la petición de la API de Telegram
+     * @param coalesceKey si no es null, una petición pendiente del mismo chat con la misma clave
+     *                    se sustituye por esta (p. ej. ediciones sucesivas de un mismo mensaje)
+     * @return un futuro con la respuesta de Telegram, completado excepcionalmente si la petición
+     *         se rechaza por cola llena o falla definitivamente
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Serializable> CompletableFuture<T> submit(String chatId, BotApiMethod<T> method,
+                                                               String coalesceKey) {
+        lock.lock();
+        try {
+            ChatOutbox outbox = outboxes.get(chatId);
+            if (outbox != null && coalesceKey != null) {
+                for (OutboundRequest queued : outbox.pending) {
+                    if (coalesceKey.equals(queued.coalesceKey)) {
+                        queued.method = method;
+                        return (CompletableFuture<T>) (CompletableFuture<?>) queued.result;
+                    }
+                }
+            }
+            
+            if (!running || queuedCount >= config.getOutboundMaxQueueSize()) {
+                rejectedCount.incrementAndGet();
+                logger.warn("Cola de envío llena, se descarta un mensaje para el chat {}", chatId);
+                return CompletableFuture.failedFuture(
+                    new TelegramApiException("Cola de envío llena (" + queuedCount + " mensajes)"));
+            }
+            
+            if (outbox == null) {
+                outbox = new ChatOutbox(createChatBucket(chatId));
+                outboxes.put(chatId, outbox);
+            }
+            OutboundRequest request = new OutboundRequest(coalesceKey, method);
+            outbox.pending.addLast(request);
+            queuedCount++;
+            wakeUp.signal();
+            return (CompletableFuture<T>) (CompletableFuture<?>) request.result;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Los IDs negativos corresponden a grupos y canales, con un límite por minuto más estricto
+     */
+    private TokenBucket createChatBucket(String chatId) {
+        int burst = config.getOutboundChatBurst();
+        if (chatId.startsWith("-")) {
+            return new TokenBucket(burst, config.getOutboundPerGroupPerMinute() / 60.0);
+        }
+        return new TokenBucket(burst, config.getOutboundPerChatPerSecond());
+    }
+    
+    /**
+     * Bucle del planificador: despacha los chats con token disponible y duerme hasta el siguiente
+     */
+    private void runScheduler() {
+        lock.lock();
+        try {
+            while (running) {
+                long waitMillis = dispatchReady(System.currentTimeMillis());
+                if (waitMillis == Long.MAX_VALUE) {
+                    wakeUp.await();
+                } else {
+                    wakeUp.await(waitMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Envía un mensaje de cada chat que pueda hacerlo ahora. Debe llamarse con el lock tomado.
+     * @return milisegundos hasta que otro envío pueda ser posible, o Long.MAX_VALUE si no hay pendientes
+     */
+    private long dispatchReady(long now) {
+        long minWait = Long.MAX_VALUE;
+        List<String> served = new ArrayList<>();
+        
+        Iterator<Map.Entry<String, ChatOutbox>> iterator = outboxes.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, ChatOutbox> entry = iterator.next();
+            ChatOutbox outbox = entry.getValue();
+            if (outbox.inFlight) {
+                continue;
+            }
+            if (outbox.pending.isEmpty()) {
+                // La cola se conserva mientras su cubeta recuerde envíos recientes
+                if (outbox.bucket.isFull(now)) {
+                    iterator.remove();
+                }
+                continue;
+            }
+            
+            long chatWait = Math.max(outbox.retryAtMillis - now, outbox.bucket.millisUntilAvailable(now));
+            if (chatWait > 0) {
+                minWait = Math.min(minWait, chatWait);
+                continue;
+            }
+            long globalWait = globalBucket.millisUntilAvailable(now);
+            if (globalWait > 0) {
+                minWait = Math.min(minWait, globalWait);
+                break;
+            }
+            
+            globalBucket.consume();
+            outbox.bucket.consume();
+            OutboundRequest request = outbox.pending.pollFirst();
+            queuedCount--;
+            outbox.inFlight = true;
+            served.add(entry.getKey());
+            
+            try {
+                senderPool.execute(() -> send(entry.getKey(), outbox, request));
+            } catch (RejectedExecutionException e) {
+                outbox.inFlight = false;
+                request.result.completeExceptionally(new TelegramApiException("Cola de envío detenida"));
+            }
+        }
+        
+        // Los chats atendidos pasan al final para repartir la cuota global por turnos
+        for (String chatId : served) {
+            outboxes.put(chatId, outboxes.remove(chatId));
+        }
+        return minWait;
+    }
+    
+    /**
+     * Ejecuta la petición fuera del lock y reprograma el chat al terminar
+     */
+    private void send(String chatId, ChatOutbox outbox, OutboundRequest request) {
+        Object response = null;
+        TelegramApiException error = null;
+        long startNanos = System.nanoTime();
+        try {
+            response = execute(request.method);
+        } catch (TelegramApiException e) {
+            error = e;
+        }
+        recordLatency(request.method, startNanos, error);
+        
+        lock.lock();
+        try {
+            outbox.inFlight = false;
+            if (error == null) {
+                sentCount.incrementAndGet();
+                lastSentMillis = System.currentTimeMillis();
+                request.result.complete(response);
+            } else if (isRateLimited(error) && ++request.attempts <= MAX_RETRIES) {
+                int retryAfter = ((TelegramApiRequestException) error).getParameters().getRetryAfter();
+                rateLimitedCount.incrementAndGet();
+                outbox.retryAtMillis = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(retryAfter);
+                outbox.pending.addFirst(request);
+                queuedCount++;
+                logger.warn("Telegram limitó el chat {}, reintento en {}s", chatId, retryAfter);
+            } else {
+                failedCount.incrementAndGet();
+                lastFailureMillis = System.currentTimeMillis();
+                request.result.completeExceptionally(error);
+            }
+            wakeUp.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Registra la latencia de cada petición a Telegram; los 429 se etiquetan como "limitado"
+     */
+    private void recordLatency(BotApiMethod<?> method, long startNanos, TelegramApiException error) {
+        String outcome = error == null ? "exito" : isRateLimited(error) ? "limitado" : "error";
+        Timer.builder("telegram.send.duration")
+            .description("Latencia de las peticiones a la API de Telegram")
+            .tag("metodo", method.getMethod())
+            .tag("resultado", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    private <T extends Serializable> T execute(BotApiMethod<T> method) throws TelegramApiException {
+        AbsSender currentSender = sender;
+        if (currentSender == null) {
+            throw new TelegramApiException("Cliente de Telegram no registrado");
+        }
+        return currentSender.execute(method);
+    }
+    
+    private boolean isRateLimited(TelegramApiException error) {
+        if (!(error instanceof TelegramApiRequestException)) {
+            return false;
+        }
+        TelegramApiRequestException requestError = (TelegramApiRequestException) error;
+        return requestError.getErrorCode() != null && requestError.getErrorCode() == TOO_MANY_REQUESTS
+               && requestError.getParameters() != null && requestError.getParameters().getRetryAfter() != null;
+    }
+    
+    /**
+     * Obtiene el número total de mensajes en espera de envío, sin esperar al lock de la cola
+     */
+    public int getQueueDepth() {
+        return queuedCount;
+    }
+    
+    /**
+     * Momento (epoch ms) del último envío correcto a Telegram, o 0 si aún no hubo ninguno
+     */
+    public long getLastSentMillis() {
+        return lastSentMillis;
+    }
+    
+    /**
+     * Momento (epoch ms) del último envío fallido definitivamente, o 0 si aún no hubo ninguno
+     */
+    public long getLastFailureMillis() {
+        return lastFailureMillis;
+    }
+    
+    /**
+     * Obtiene el número de mensajes en espera para un chat
+     */
+    public int getBacklog(String chatId) {
+        lock.lock();
+        try {
+            ChatOutbox outbox = outboxes.get(chatId);
+            return outbox != null ? outbox.pending.size() : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Obtiene estadísticas de la cola, incluidos los chats con más mensajes en espera
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Integer> backlogs = new HashMap<>();
+        int depth;
+        lock.lock();
+        try {
+            depth = queuedCount;
+            for (Map.Entry<String, ChatOutbox> entry : outboxes.entrySet()) {
+                if (!entry.getValue().pending.isEmpty()) {
+                    backlogs.put(entry.getKey(), entry.getValue().pending.size());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        Map<String, Integer> topBacklogs = new LinkedHashMap<>();
+        backlogs.entrySet().stream()
+            .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()))
+            .limit(BACKLOG_REPORT_LIMIT)
+            .forEach(entry -> topBacklogs.put(entry.getKey(), entry.getValue()));
+        
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("profundidad", depth);
+        stats.put("chatsConCola", backlogs.size());
+        stats.put("colaPorChat", topBacklogs);
+        stats.put("enviados", sentCount.get());
+        stats.put("fallidos", failedCount.get());
+        stats.put("descartados", rejectedCount.get());
+        stats.put("limitadosPorTelegram", rateLimitedCount.get());
+        return stats;
+    }
+    
+    /**
+     * Detiene el planificador y da un margen a los envíos en curso
+     */
+    @PreDestroy
+    public void shutdown() {
+        lock.lock();
+        try {
+            running = false;
+            wakeUp.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        senderPool.shutdown();
+        try {
+            if (!senderPool.awaitTermination(5, TimeUnit.SECONDS)) {
+                senderPool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            senderPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
@@ -3,6 +3,8 @@ package com.telegrambotapi.adapter;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Interfaz del patrón Adapter para el servicio de Telegram.
  * Permite desacoplar la lógica interna de los detalles específicos de la API de Telegram
@@ -10,13 +12,30 @@ import org.telegram.telegrambots.meta.api.objects.Update;
 public interface TelegramServiceAdapter {
     
     /**
-     * Envía un mensaje de texto a un chat específico
+     * Envía un mensaje de texto a un chat específico sin esperar a que Telegram lo confirme
      * @param chatId el ID del chat donde enviar el mensaje
      * @param text el texto del mensaje a enviar
-     * @return true si el mensaje se envió correctamente, false en caso contrario
+     * @return true si el mensaje se aceptó para su envío, false en caso contrario
      */
     boolean sendTextMessage(String chatId, String text);
     
+    /**
+     * Envía un mensaje de texto y devuelve su ID para poder editarlo después
+     * @param chatId el ID del chat donde enviar el mensaje
+     * @param text el texto del mensaje a enviar
+     * @return un futuro con el ID del mensaje enviado, o con null si no se pudo enviar
+     */
+    CompletableFuture<Integer> sendTextMessageAsync(String chatId, String text);
+    
+    /**
+     * Reemplaza el texto de un mensaje enviado previamente por el bot
+     * @param chatId el ID del chat del mensaje
+     * @param messageId el ID del mensaje a editar
+     * @param text el nuevo texto
+     * @return un futuro con true si el mensaje quedó con el texto indicado, false en caso contrario
+     */
+    CompletableFuture<Boolean> editTextMessageAsync(String chatId, Integer messageId, String text);
+    
     /**
      * Extrae el texto del mensaje de un update de Telegram
      * @param update el update recibido de Telegram
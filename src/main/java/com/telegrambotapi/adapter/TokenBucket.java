@@ -0,0 +1,60 @@
+package com.telegrambotapi.adapter;
+
+/**
+ * Cubeta de tokens para limitar la frecuencia de envío.
+ * Se recarga de forma continua hasta su capacidad; cada envío consume un token.
+ * No es segura entre hilos: quien la usa debe protegerla con su propio lock.
+ */
+class TokenBucket {
+    
+    private final double capacity;
+    private final double refillPerMilli;
+    private double tokens;
+    private long lastRefillMillis;
+    
+    /**
+     * @param capacity número máximo de envíos en ráfaga
+     * @param refillPerSecond tokens recuperados por segundo
+     */
+    TokenBucket(double capacity, double refillPerSecond) {
+        this.capacity = Math.max(1, capacity);
+        this.refillPerMilli = refillPerSecond / 1000.0;
+        this.tokens = this.capacity;
+        this.lastRefillMillis = System.currentTimeMillis();
+    }
+    
+    /**
+     * Calcula cuánto falta para disponer de un token
+     * @param now instante actual en milisegundos
+     * @return 0 si hay un token disponible, o los milisegundos de espera
+     */
+    long millisUntilAvailable(long now) {
+        refill(now);
+        if (tokens >= 1) {
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / refillPerMilli);
+    }
+    
+    /**
+     * Consume un token; debe llamarse solo tras comprobar que hay uno disponible
+     */
+    void consume() {
+        tokens -= 1;
+    }
+    
+    /**
+     * Indica si la cubeta está llena, es decir, si no conserva historial de envíos recientes
+     */
+    boolean isFull(long now) {
+        refill(now);
+        return tokens >= capacity;
+    }
+    
+    private void refill(long now) {
+        if (now > lastRefillMillis) {
+            tokens = Math.min(capacity, tokens + (now - lastRefillMillis) * refillPerMilli);
+            lastRefillMillis = now;
+        }
+    }
+}
\ No newline at end of file
@@ -29,6 +29,221 @@ public class ConfigurationManager {
     @Value("${ai.model}")
     private String aiModel;
     
+    // Pool de conexiones HTTP hacia la API de IA
+    @Value("${ai.http.max-connections-total:50}")
+    private int aiHttpMaxConnectionsTotal;
+    
+    @Value("${ai.http.max-connections-per-route:20}")
+    private int aiHttpMaxConnectionsPerRoute;
+    
+    @Value("${ai.http.keep-alive-seconds:30}")
+    private long aiHttpKeepAliveSeconds;
+    
+    @Value("${ai.http.connection-ttl-seconds:300}")
+    private long aiHttpConnectionTtlSeconds;
+    
+    @Value("${ai.http.compression-enabled:true}")
+    private boolean aiHttpCompressionEnabled;
+    
+    // Monitor de disponibilidad del proveedor de IA
+    @Value("${ai.health.ttl-seconds:120}")
+    private long aiHealthTtlSeconds;
+    
+    @Value("${ai.health.probe-interval-seconds:30}")
+    private long aiHealthProbeIntervalSeconds;
+    
+    @Value("${ai.health.failure-threshold:3}")
+    private int aiHealthFailureThreshold;
+    
+    // Transporte asíncrono hacia la API de IA
+    @Value("${ai.http.http2-enabled:false}")
+    private boolean aiHttpHttp2Enabled;
+    
+    @Value("${ai.http.io-threads:2}")
+    private int aiHttpIoThreads;
+    
+    @Value("${ai.http.callback-threads:4}")
+    private int aiHttpCallbackThreads;
+    
+    // Despacho concurrente de updates
+    @Value("${bot.dispatcher.threads:8}")
+    private int dispatcherThreads;
+    
+    @Value("${bot.dispatcher.max-pending-per-chat:50}")
+    private int dispatcherMaxPendingPerChat;
+    
+    @Value("${bot.dispatcher.max-pending-total:10000}")
+    private int dispatcherMaxPendingTotal;
+    
+    // Carriles de ejecución: comandos instantáneos aparte del trabajo que espera a la IA
+    @Value("${bot.dispatcher.fast-lane-threads:2}")
+    private int dispatcherFastLaneThreads;
+    
+    @Value("${bot.dispatcher.ai-lane-max-concurrent:64}")
+    private int dispatcherAiLaneMaxConcurrent;
+    
+    // Almacén de estado por chat
+    @Value("${bot.chat-store.shards:16}")
+    private int chatStoreShards;
+    
+    @Value("${bot.chat-store.max-chats:100000}")
+    private int chatStoreMaxChats;
+    
+    @Value("${bot.chat-store.max-memory-mb:64}")
+    private long chatStoreMaxMemoryMb;
+    
+    @Value("${bot.chat-store.idle-ttl-minutes:720}")
+    private long chatStoreIdleTtlMinutes;
+    
+    @Value("${bot.chat-store.sweep-interval-seconds:60}")
+    private long chatStoreSweepIntervalSeconds;
+    
+    // Caché de respuestas de estrategias de ventas
+    @Value("${ai.cache.enabled:true}")
+    private boolean aiCacheEnabled;
+    
+    @Value("${ai.cache.max-entries:500}")
+    private int aiCacheMaxEntries;
+    
+    @Value("${ai.cache.ttl-minutes:30}")
+    private long aiCacheTtlMinutes;
+    
+    // Respuestas de IA en streaming con edición progresiva del mensaje
+    @Value("${bot.streaming.enabled:true}")
+    private boolean streamingEnabled;
+    
+    @Value("${bot.streaming.edit-interval-ms:1000}")
+    private int streamingEditIntervalMs;
+    
+    // Cola de envío hacia Telegram con límites de frecuencia
+    @Value("${bot.outbound.global-per-second:30}")
+    private int outboundGlobalPerSecond;
+    
+    @Value("${bot.outbound.per-chat-per-second:1}")
+    private int outboundPerChatPerSecond;
+    
+    @Value("${bot.outbound.per-group-per-minute:20}")
+    private int outboundPerGroupPerMinute;
+    
+    @Value("${bot.outbound.chat-burst:3}")
+    private int outboundChatBurst;
+    
+    @Value("${bot.outbound.sender-threads:4}")
+    private int outboundSenderThreads;
+    
+    @Value("${bot.outbound.max-queue-size:5000}")
+    private int outboundMaxQueueSize;
+    
+    // Ocupación (en %) de las colas a partir de la cual el bot deja de estar listo
+    @Value("${bot.health.saturation-percent:90}")
+    private int healthSaturationPercent;
+    
+    // Modo de recepción de updates: polling (long polling) o webhook
+    @Value("${bot.ingestion.mode:polling}")
+    private String ingestionMode;
+    
+    @Value("${bot.webhook.url:}")
+    private String webhookUrl;
+    
+    @Value("${bot.webhook.secret-token:}")
+    private String webhookSecretToken;
+    
+    // Tiempos máximos de las peticiones a la IA (por estrategia)
+    @Value("${ai.timeout.connect-ms:5000}")
+    private int aiTimeoutConnectMs;
+    
+    @Value("${ai.timeout.connection-request-ms:2000}")
+    private int aiTimeoutConnectionRequestMs;
+    
+    @Value("${ai.timeout.default-ms:30000}")
+    private int aiTimeoutDefaultMs;
+    
+    @Value("${ai.timeout.joke-ms:15000}")
+    private int aiTimeoutJokeMs;
+    
+    @Value("${ai.timeout.sales-ms:60000}")
+    private int aiTimeoutSalesMs;
+    
+    // Reintentos con backoff exponencial y jitter ante 429/5xx
+    @Value("${ai.retry.max-attempts:3}")
+    private int aiRetryMaxAttempts;
+    
+    @Value("${ai.retry.base-delay-ms:500}")
+    private int aiRetryBaseDelayMs;
+    
+    @Value("${ai.retry.max-delay-ms:8000}")
+    private int aiRetryMaxDelayMs;
+    
+    // Circuit breaker del proveedor de IA
+    @Value("${ai.breaker.failure-threshold:5}")
+    private int aiBreakerFailureThreshold;
+    
+    @Value("${ai.breaker.open-seconds:30}")
+    private int aiBreakerOpenSeconds;
+    
+    // URL base de la API de Telegram (permite un servidor Bot API local o un stub)
+    @Value("${telegram.api.base-url:https://api.telegram.org/bot}")
+    private String telegramApiBaseUrl;
+    
+    // Léxico de temas sensibles para los chistes (ubicación de recurso Spring: classpath: o file:)
+    @Value("${bot.joke.sensitive-topics:classpath:sensitive-topics.txt}")
+    private String jokeSensitiveTopics;
+    
+    // Persistencia del estado de chats (diario mapeado en memoria con snapshots compactados)
+    @Value("${bot.persistence.enabled:true}")
+    private boolean persistenceEnabled;
+    
+    @Value("${bot.persistence.dir:data/chat-state}")
+    private String persistenceDir;
+    
+    @Value("${bot.persistence.flush-interval-ms:200}")
+    private long persistenceFlushIntervalMs;
+    
+    @Value("${bot.persistence.region-mb:16}")
+    private int persistenceRegionMb;
+    
+    @Value("${bot.persistence.compaction-threshold-mb:64}")
+    private int persistenceCompactionThresholdMb;
+    
+    // Presupuesto de tokens de la entrada de cada estrategia (0 = sin recorte)
+    @Value("${ai.prompt.joke-budget-tokens:300}")
+    private int aiPromptJokeBudgetTokens;
+    
+    @Value("${ai.prompt.sales-budget-tokens:1500}")
+    private int aiPromptSalesBudgetTokens;
+    
+    // Disparo de chistes automáticos: tras una pausa en la conversación o al acumular mensajes
+    @Value("${bot.joke.idle-seconds:20}")
+    private int jokeIdleSeconds;
+    
+    @Value("${bot.joke.min-messages:3}")
+    private int jokeMinMessages;
+    
+    @Value("${bot.joke.max-messages:8}")
+    private int jokeMaxMessages;
+    
+    // Agrupación de peticiones compatibles a la IA en una sola llamada (por estrategia)
+    @Value("${ai.batch.joke-enabled:false}")
+    private boolean aiBatchJokeEnabled;
+    
+    @Value("${ai.batch.refund-enabled:false}")
+    private boolean aiBatchRefundEnabled;
+    
+    @Value("${ai.batch.upselling-enabled:false}")
+    private boolean aiBatchUpsellingEnabled;
+    
+    @Value("${ai.batch.motivation-enabled:false}")
+    private boolean aiBatchMotivationEnabled;
+    
+    @Value("${ai.batch.max-size:5}")
+    private int aiBatchMaxSize;
+    
+    @Value("${ai.batch.max-wait-ms:250}")
+    private long aiBatchMaxWaitMs;
+    
+    @Value("${ai.batch.max-tokens:4000}")
+    private int aiBatchMaxTokens;
+    
     /**
      * Constructor privado para evitar la instanciación directa
      */
@@ -76,6 +291,273 @@ public class ConfigurationManager {
         return aiModel;
     }
     
+    public int getAiHttpMaxConnectionsTotal() {
+        return aiHttpMaxConnectionsTotal;
+    }
+    
+    public int getAiHttpMaxConnectionsPerRoute() {
+        return aiHttpMaxConnectionsPerRoute;
+    }
+    
+    public long getAiHttpKeepAliveSeconds() {
+        return aiHttpKeepAliveSeconds;
+    }
+    
+    public long getAiHttpConnectionTtlSeconds() {
+        return aiHttpConnectionTtlSeconds;
+    }
+    
+    public boolean isAiHttpCompressionEnabled() {
+        return aiHttpCompressionEnabled;
+    }
+    
+    public long getAiHealthTtlSeconds() {
+        return aiHealthTtlSeconds;
+    }
+    
+    public long getAiHealthProbeIntervalSeconds() {
+        return aiHealthProbeIntervalSeconds;
+    }
+    
+    public int getAiHealthFailureThreshold() {
+        return aiHealthFailureThreshold;
+    }
+    
+    public boolean isAiHttpHttp2Enabled() {
+        return aiHttpHttp2Enabled;
+    }
+    
+    public int getAiHttpIoThreads() {
+        return aiHttpIoThreads;
+    }
+    
+    public int getAiHttpCallbackThreads() {
+        return aiHttpCallbackThreads;
+    }
+    
+    public int getDispatcherThreads() {
+        return dispatcherThreads;
+    }
+    
+    public int getDispatcherMaxPendingPerChat() {
+        return dispatcherMaxPendingPerChat;
+    }
+    
+    public int getDispatcherMaxPendingTotal() {
+        return dispatcherMaxPendingTotal;
+    }
+    
+    public int getDispatcherFastLaneThreads() {
+        return dispatcherFastLaneThreads;
+    }
+    
+    public int getDispatcherAiLaneMaxConcurrent() {
+        return dispatcherAiLaneMaxConcurrent;
+    }
+    
+    public int getChatStoreShards() {
+        return chatStoreShards;
+    }
+    
+    public int getChatStoreMaxChats() {
+        return chatStoreMaxChats;
+    }
+    
+    public long getChatStoreMaxMemoryMb() {
+        return chatStoreMaxMemoryMb;
+    }
+    
+    public long getChatStoreIdleTtlMinutes() {
+        return chatStoreIdleTtlMinutes;
+    }
+    
+    public long getChatStoreSweepIntervalSeconds() {
+        return chatStoreSweepIntervalSeconds;
+    }
+    
+    public boolean isAiCacheEnabled() {
+        return aiCacheEnabled;
+    }
+    
+    public int getAiCacheMaxEntries() {
+        return aiCacheMaxEntries;
+    }
+    
+    public long getAiCacheTtlMinutes() {
+        return aiCacheTtlMinutes;
+    }
+    
+    public boolean isStreamingEnabled() {
+        return streamingEnabled;
+    }
+    
+    public int getStreamingEditIntervalMs() {
+        return streamingEditIntervalMs;
+    }
+    
+    public int getOutboundGlobalPerSecond() {
+        return outboundGlobalPerSecond;
+    }
+    
+    public int getOutboundPerChatPerSecond() {
+        return outboundPerChatPerSecond;
+    }
+    
+    public int getOutboundPerGroupPerMinute() {
+        return outboundPerGroupPerMinute;
+    }
+    
+    public int getOutboundChatBurst() {
+        return outboundChatBurst;
+    }
+    
+    public int getOutboundSenderThreads() {
+        return outboundSenderThreads;
+    }
+    
+    public int getOutboundMaxQueueSize() {
+        return outboundMaxQueueSize;
+    }
+    
+    public int getHealthSaturationPercent() {
+        return healthSaturationPercent;
+    }
+    
+    public String getIngestionMode() {
+        return ingestionMode;
+    }
+    
+    public String getWebhookUrl() {
+        return webhookUrl;
+    }
+    
+    public String getWebhookSecretToken() {
+        return webhookSecretToken;
+    }
+    
+    /**
+     * Indica si los updates se reciben por webhook en lugar de long polling
+     */
+    public boolean isWebhookMode() {
+        return "webhook".equalsIgnoreCase(ingestionMode);
+    }
+    
+    public int getAiTimeoutConnectMs() {
+        return aiTimeoutConnectMs;
+    }
+    
+    public int getAiTimeoutConnectionRequestMs() {
+        return aiTimeoutConnectionRequestMs;
+    }
+    
+    public int getAiTimeoutDefaultMs() {
+        return aiTimeoutDefaultMs;
+    }
+    
+    public int getAiTimeoutJokeMs() {
+        return aiTimeoutJokeMs;
+    }
+    
+    public int getAiTimeoutSalesMs() {
+        return aiTimeoutSalesMs;
+    }
+    
+    public int getAiRetryMaxAttempts() {
+        return aiRetryMaxAttempts;
+    }
+    
+    public int getAiRetryBaseDelayMs() {
+        return aiRetryBaseDelayMs;
+    }
+    
+    public int getAiRetryMaxDelayMs() {
+        return aiRetryMaxDelayMs;
+    }
+    
+    public int getAiBreakerFailureThreshold() {
+        return aiBreakerFailureThreshold;
+    }
+    
+    public int getAiBreakerOpenSeconds() {
+        return aiBreakerOpenSeconds;
+    }
+    
+    public String getTelegramApiBaseUrl() {
+        return telegramApiBaseUrl;
+    }
+    
+    public String getJokeSensitiveTopics() {
+        return jokeSensitiveTopics;
+    }
+    
+    public boolean isPersistenceEnabled() {
+        return persistenceEnabled;
+    }
+    
+    public String getPersistenceDir() {
+        return persistenceDir;
+    }
+    
+    public long getPersistenceFlushIntervalMs() {
+        return persistenceFlushIntervalMs;
+    }
+    
+    public int getPersistenceRegionMb() {
+        return persistenceRegionMb;
+    }
+    
+    public int getPersistenceCompactionThresholdMb() {
+        return persistenceCompactionThresholdMb;
+    }
+    
+    public int getAiPromptJokeBudgetTokens() {
+        return aiPromptJokeBudgetTokens;
+    }
+    
+    public int getAiPromptSalesBudgetTokens() {
+        return aiPromptSalesBudgetTokens;
+    }
+    
+    public int getJokeIdleSeconds() {
+        return jokeIdleSeconds;
+    }
+    
+    public int getJokeMinMessages() {
+        return jokeMinMessages;
+    }
+    
+    public int getJokeMaxMessages() {
+        return jokeMaxMessages;
+    }
+    
+    public boolean isAiBatchJokeEnabled() {
+        return aiBatchJokeEnabled;
+    }
+    
+    public boolean isAiBatchRefundEnabled() {
+        return aiBatchRefundEnabled;
+    }
+    
+    public boolean isAiBatchUpsellingEnabled() {
+        return aiBatchUpsellingEnabled;
+    }
+    
+    public boolean isAiBatchMotivationEnabled() {
+        return aiBatchMotivationEnabled;
+    }
+    
+    public int getAiBatchMaxSize() {
+        return aiBatchMaxSize;
+    }
+    
+    public long getAiBatchMaxWaitMs() {
+        return aiBatchMaxWaitMs;
+    }
+    
+    public int getAiBatchMaxTokens() {
+        return aiBatchMaxTokens;
+    }
+    
     // Setters (necesarios para Spring)
     
     public void setTelegramBotToken(String telegramBotToken) {
@@ -98,14 +580,278 @@ public class ConfigurationManager {
         this.aiModel = aiModel;
     }
     
+    public void setAiHttpMaxConnectionsTotal(int aiHttpMaxConnectionsTotal) {
+        this.aiHttpMaxConnectionsTotal = aiHttpMaxConnectionsTotal;
+    }
+    
+    public void setAiHttpMaxConnectionsPerRoute(int aiHttpMaxConnectionsPerRoute) {
+        this.aiHttpMaxConnectionsPerRoute = aiHttpMaxConnectionsPerRoute;
+    }
+    
+    public void setAiHttpKeepAliveSeconds(long aiHttpKeepAliveSeconds) {
+        this.aiHttpKeepAliveSeconds = aiHttpKeepAliveSeconds;
+    }
+    
+    public void setAiHttpConnectionTtlSeconds(long aiHttpConnectionTtlSeconds) {
+        this.aiHttpConnectionTtlSeconds = aiHttpConnectionTtlSeconds;
+    }
+    
+    public void setAiHttpCompressionEnabled(boolean aiHttpCompressionEnabled) {
+        this.aiHttpCompressionEnabled = aiHttpCompressionEnabled;
+    }
+    
+    public void setAiHealthTtlSeconds(long aiHealthTtlSeconds) {
+        this.aiHealthTtlSeconds = aiHealthTtlSeconds;
+    }
+    
+    public void setAiHealthProbeIntervalSeconds(long aiHealthProbeIntervalSeconds) {
+        this.aiHealthProbeIntervalSeconds = aiHealthProbeIntervalSeconds;
+    }
+    
+    public void setAiHealthFailureThreshold(int aiHealthFailureThreshold) {
+        this.aiHealthFailureThreshold = aiHealthFailureThreshold;
+    }
+    
+    public void setAiHttpHttp2Enabled(boolean aiHttpHttp2Enabled) {
+        this.aiHttpHttp2Enabled = aiHttpHttp2Enabled;
+    }
+    
+    public void setAiHttpIoThreads(int aiHttpIoThreads) {
+        this.aiHttpIoThreads = aiHttpIoThreads;
+    }
+    
+    public void setAiHttpCallbackThreads(int aiHttpCallbackThreads) {
+        this.aiHttpCallbackThreads = aiHttpCallbackThreads;
+    }
+    
+    public void setDispatcherThreads(int dispatcherThreads) {
+        this.dispatcherThreads = dispatcherThreads;
+    }
+    
+    public void setDispatcherMaxPendingPerChat(int dispatcherMaxPendingPerChat) {
+        this.dispatcherMaxPendingPerChat = dispatcherMaxPendingPerChat;
+    }
+    
+    public void setDispatcherMaxPendingTotal(int dispatcherMaxPendingTotal) {
+        this.dispatcherMaxPendingTotal = dispatcherMaxPendingTotal;
+    }
+    
+    public void setDispatcherFastLaneThreads(int dispatcherFastLaneThreads) {
+        this.dispatcherFastLaneThreads = dispatcherFastLaneThreads;
+    }
+    
+    public void setDispatcherAiLaneMaxConcurrent(int dispatcherAiLaneMaxConcurrent) {
+        this.dispatcherAiLaneMaxConcurrent = dispatcherAiLaneMaxConcurrent;
+    }
+    
+    public void setChatStoreShards(int chatStoreShards) {
+        this.chatStoreShards = chatStoreShards;
+    }
+    
+    public void setChatStoreMaxChats(int chatStoreMaxChats) {
+        this.chatStoreMaxChats = chatStoreMaxChats;
+    }
+    
+    public void setChatStoreMaxMemoryMb(long chatStoreMaxMemoryMb) {
+        this.chatStoreMaxMemoryMb = chatStoreMaxMemoryMb;
+    }
+    
+    public void setChatStoreIdleTtlMinutes(long chatStoreIdleTtlMinutes) {
+        this.chatStoreIdleTtlMinutes = chatStoreIdleTtlMinutes;
+    }
+    
+    public void setChatStoreSweepIntervalSeconds(long chatStoreSweepIntervalSeconds) {
+        this.chatStoreSweepIntervalSeconds = chatStoreSweepIntervalSeconds;
+    }
+    
+    public void setAiCacheEnabled(boolean aiCacheEnabled) {
+        this.aiCacheEnabled = aiCacheEnabled;
+    }
+    
+    public void setAiCacheMaxEntries(int aiCacheMaxEntries) {
+        this.aiCacheMaxEntries = aiCacheMaxEntries;
+    }
+    
+    public void setAiCacheTtlMinutes(long aiCacheTtlMinutes) {
+        this.aiCacheTtlMinutes = aiCacheTtlMinutes;
+    }
+    
+    public void setStreamingEnabled(boolean streamingEnabled) {
+        this.streamingEnabled = streamingEnabled;
+    }
+    
+    public void setStreamingEditIntervalMs(int streamingEditIntervalMs) {
+        this.streamingEditIntervalMs = streamingEditIntervalMs;
+    }
+    
+    public void setOutboundGlobalPerSecond(int outboundGlobalPerSecond) {
+        this.outboundGlobalPerSecond = outboundGlobalPerSecond;
+    }
+    
+    public void setOutboundPerChatPerSecond(int outboundPerChatPerSecond) {
+        this.outboundPerChatPerSecond = outboundPerChatPerSecond;
+    }
+    
+    public void setOutboundPerGroupPerMinute(int outboundPerGroupPerMinute) {
+        this.outboundPerGroupPerMinute = outboundPerGroupPerMinute;
+    }
+    
+    public void setOutboundChatBurst(int outboundChatBurst) {
+        this.outboundChatBurst = outboundChatBurst;
+    }
+    
+    public void setOutboundSenderThreads(int outboundSenderThreads) {
+        this.outboundSenderThreads = outboundSenderThreads;
+    }
+    
+    public void setOutboundMaxQueueSize(int outboundMaxQueueSize) {
+        this.outboundMaxQueueSize = outboundMaxQueueSize;
+    }
+    
+    public void setHealthSaturationPercent(int healthSaturationPercent) {
+        this.healthSaturationPercent = healthSaturationPercent;
+    }
+    
+    public void setIngestionMode(String ingestionMode) {
+        this.ingestionMode = ingestionMode;
+    }
+    
+    public void setWebhookUrl(String webhookUrl) {
+        this.webhookUrl = webhookUrl;
+    }
+    
+    public void setWebhookSecretToken(String webhookSecretToken) {
+        this.webhookSecretToken = webhookSecretToken;
+    }
+    
+    public void setAiTimeoutConnectMs(int aiTimeoutConnectMs) {
+        this.aiTimeoutConnectMs = aiTimeoutConnectMs;
+    }
+    
+    public void setAiTimeoutConnectionRequestMs(int aiTimeoutConnectionRequestMs) {
+        this.aiTimeoutConnectionRequestMs = aiTimeoutConnectionRequestMs;
+    }
+    
+    public void setAiTimeoutDefaultMs(int aiTimeoutDefaultMs) {
+        this.aiTimeoutDefaultMs = aiTimeoutDefaultMs;
+    }
+    
+    public void setAiTimeoutJokeMs(int aiTimeoutJokeMs) {
+        this.aiTimeoutJokeMs = aiTimeoutJokeMs;
+    }
+    
+    public void setAiTimeoutSalesMs(int aiTimeoutSalesMs) {
+        this.aiTimeoutSalesMs = aiTimeoutSalesMs;
+    }
+    
+    public void setAiRetryMaxAttempts(int aiRetryMaxAttempts) {
+        this.aiRetryMaxAttempts = aiRetryMaxAttempts;
+    }
+    
+    public void setAiRetryBaseDelayMs(int aiRetryBaseDelayMs) {
+        this.aiRetryBaseDelayMs = aiRetryBaseDelayMs;
+    }
+    
+    public void setAiRetryMaxDelayMs(int aiRetryMaxDelayMs) {
+        this.aiRetryMaxDelayMs = aiRetryMaxDelayMs;
+    }
+    
+    public void setAiBreakerFailureThreshold(int aiBreakerFailureThreshold) {
+        this.aiBreakerFailureThreshold = aiBreakerFailureThreshold;
+    }
+    
+    public void setAiBreakerOpenSeconds(int aiBreakerOpenSeconds) {
+        this.aiBreakerOpenSeconds = aiBreakerOpenSeconds;
+    }
+    
+    public void setTelegramApiBaseUrl(String telegramApiBaseUrl) {
+        this.telegramApiBaseUrl = telegramApiBaseUrl;
+    }
+    
+    public void setJokeSensitiveTopics(String jokeSensitiveTopics) {
+        this.jokeSensitiveTopics = jokeSensitiveTopics;
+    }
+    
+    public void setPersistenceEnabled(boolean persistenceEnabled) {
+        this.persistenceEnabled = persistenceEnabled;
+    }
+    
+    public void setPersistenceDir(String persistenceDir) {
+        this.persistenceDir = persistenceDir;
+    }
+    
+    public void setPersistenceFlushIntervalMs(long persistenceFlushIntervalMs) {
+        this.persistenceFlushIntervalMs = persistenceFlushIntervalMs;
+    }
+    
+    public void setPersistenceRegionMb(int persistenceRegionMb) {
+        this.persistenceRegionMb = persistenceRegionMb;
+    }
+    
+    public void setPersistenceCompactionThresholdMb(int persistenceCompactionThresholdMb) {
+        this.persistenceCompactionThresholdMb = persistenceCompactionThresholdMb;
+    }
+    
+    public void setAiPromptJokeBudgetTokens(int aiPromptJokeBudgetTokens) {
+        this.aiPromptJokeBudgetTokens = aiPromptJokeBudgetTokens;
+    }
+    
+    public void setAiPromptSalesBudgetTokens(int aiPromptSalesBudgetTokens) {
+        this.aiPromptSalesBudgetTokens = aiPromptSalesBudgetTokens;
+    }
+    
+    public void setJokeIdleSeconds(int jokeIdleSeconds) {
+        this.jokeIdleSeconds = jokeIdleSeconds;
+    }
+    
+    public void setJokeMinMessages(int jokeMinMessages) {
+        this.jokeMinMessages = jokeMinMessages;
+    }
+    
+    public void setJokeMaxMessages(int jokeMaxMessages) {
+        this.jokeMaxMessages = jokeMaxMessages;
+    }
+    
+    public void setAiBatchJokeEnabled(boolean aiBatchJokeEnabled) {
+        this.aiBatchJokeEnabled = aiBatchJokeEnabled;
+    }
+    
+    public void setAiBatchRefundEnabled(boolean aiBatchRefundEnabled) {
+        this.aiBatchRefundEnabled = aiBatchRefundEnabled;
+    }
+    
+    public void setAiBatchUpsellingEnabled(boolean aiBatchUpsellingEnabled) {
+        this.aiBatchUpsellingEnabled = aiBatchUpsellingEnabled;
+    }
+    
+    public void setAiBatchMotivationEnabled(boolean aiBatchMotivationEnabled) {
+        this.aiBatchMotivationEnabled = aiBatchMotivationEnabled;
+    }
+    
+    public void setAiBatchMaxSize(int aiBatchMaxSize) {
+        this.aiBatchMaxSize = aiBatchMaxSize;
+    }
+    
+    public void setAiBatchMaxWaitMs(long aiBatchMaxWaitMs) {
+        this.aiBatchMaxWaitMs = aiBatchMaxWaitMs;
+    }
+    
+    public void setAiBatchMaxTokens(int aiBatchMaxTokens) {
+        this.aiBatchMaxTokens = aiBatchMaxTokens;
+    }
+    
     /**
      * Valida que todas las configuraciones requeridas estén presentes
+     * En modo webhook exige además la URL y el token secreto: sin él, cualquiera podría
+     * enviar updates falsos al endpoint público.
      * @return true si la configuración es válida, false en caso contrario
      */
     public boolean isConfigurationValid() {
         return telegramBotToken != null && !telegramBotToken.isEmpty() &&
                telegramBotUsername != null && !telegramBotUsername.isEmpty() &&
-               aiApiKey != null && !aiApiKey.isEmpty();
+               aiApiKey != null && !aiApiKey.isEmpty() &&
+               (!isWebhookMode() || (webhookUrl != null && !webhookUrl.isEmpty() &&
+                                     webhookSecretToken != null && !webhookSecretToken.isEmpty()));
     }
     
     @Override
@@ -114,6 +860,7 @@ public class ConfigurationManager {
                 "telegramBotUsername='" + telegramBotUsername + '\'' +
                 ", aiApiUrl='" + aiApiUrl + '\'' +
                 ", aiModel='" + aiModel + '\'' +
+                ", ingestionMode='" + ingestionMode + '\'' +
                 ", configurationValid=" + isConfigurationValid() +
                 '}';
     }
@@ -1,10 +1,19 @@
 package com.telegrambotapi.controller;
 
+import com.telegrambotapi.adapter.AICircuitBreaker;
+import com.telegrambotapi.adapter.TelegramOutboundQueue;
 import com.telegrambotapi.config.ConfigurationManager;
+import com.telegrambotapi.service.BotHealthService;
 import com.telegrambotapi.service.JokeBotService;
 import com.telegrambotapi.service.SalesAdvisorService;
+import com.telegrambotapi.service.StreamingReplyService;
 import com.telegrambotapi.service.TelegramBotService;
+import com.telegrambotapi.stats.BotStatistics;
+import com.telegrambotapi.strategy.PromptTrimmer;
+import com.telegrambotapi.strategy.ResponseContext;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -32,33 +41,95 @@ public class BotController {
     @Autowired
     private SalesAdvisorService salesAdvisorService;
     
+    @Autowired
+    private ResponseContext responseContext;
+    
+    @Autowired
+    private PromptTrimmer promptTrimmer;
+    
+    @Autowired
+    private StreamingReplyService streamingReplyService;
+    
+    @Autowired
+    private TelegramOutboundQueue outboundQueue;
+    
+    @Autowired
+    private AICircuitBreaker circuitBreaker;
+    
+    @Autowired
+    private BotStatistics botStatistics;
+    
+    @Autowired
+    private BotHealthService botHealthService;
+    
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+    
     /**
-     * Endpoint de health check
+     * Registra las secciones de /stats, que se recogen en la instantánea periódica
+     */
+    @PostConstruct
+    public void registerStatisticsSections() {
+        botStatistics.registerSection("general", telegramBotService::getServiceStatistics);
+        botStatistics.registerSection("jokes", jokeBotService::getStatistics);
+        botStatistics.registerSection("sales", salesAdvisorService::getStatistics);
+        botStatistics.registerSection("coalescing", responseContext::getCoalescingStatistics);
+        botStatistics.registerSection("prompts", promptTrimmer::getStatistics);
+        botStatistics.registerSection("streaming", streamingReplyService::getStatistics);
+        botStatistics.registerSection("outbound", outboundQueue::getStatistics);
+        botStatistics.registerSection("circuitBreaker", circuitBreaker::getStatus);
+    }
+    
+    /**
+     * Endpoint de health check con el resumen de los servicios (estado en caché, sin llamadas a la IA)
      */
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> health() {
         Map<String, Object> health = new HashMap<>();
         health.put("status", "UP");
-        health.put("timestamp", LocalDateTime.now().format(
-            DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")));
+        health.put("timestamp", LocalDateTime.now().format(TIMESTAMP_FORMAT));
         health.put("bot", configurationManager.getTelegramBotUsername());
         health.put("services", Map.of(
             "jokes", jokeBotService.isServiceAvailable(),
             "sales", salesAdvisorService.isServiceAvailable()
         ));
+        health.put("aiCircuitBreaker", circuitBreaker.getState().name());
         
         return ResponseEntity.ok(health);
     }
     
     /**
-     * Obtiene estadísticas generales del bot
+     * Liveness: el proceso responde peticiones HTTP. No consulta ninguna dependencia,
+     * así que un proveedor de IA lento o caído nunca provoca el reinicio del contenedor.
+     */
+    @GetMapping("/health/live")
+    public ResponseEntity<Map<String, Object>> liveness() {
+        Map<String, Object> liveness = new HashMap<>();
+        liveness.put("status", BotHealthService.STATUS_UP);
+        liveness.put("timestamp", LocalDateTime.now().format(TIMESTAMP_FORMAT));
+        return ResponseEntity.ok(liveness);
+    }
+    
+    /**
+     * Readiness: último estado conocido de la IA, la sesión con Telegram y las colas.
+     * Responde 503 si el bot no puede atender mensajes; con la IA caída responde 200 con estado DEGRADED.
+     */
+    @GetMapping("/health/ready")
+    public ResponseEntity<Map<String, Object>> readiness() {
+        Map<String, Object> readiness = botHealthService.getReadiness();
+        readiness.put("timestamp", LocalDateTime.now().format(TIMESTAMP_FORMAT));
+        HttpStatus status = Boolean.TRUE.equals(readiness.get("listo")) ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status).body(readiness);
+    }
+    
+    /**
+     * Obtiene estadísticas generales del bot desde la última instantánea periódica, con tasas y
+     * latencias por estrategia y por comando en ventanas de 1 minuto, 5 minutos y 1 hora.
+     * Consultarlo no toca el estado de los chats ni las colas.
      */
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getStatistics() {
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("general", telegramBotService.getServiceStatistics());
-        stats.put("jokes", jokeBotService.getStatistics());
-        stats.put("sales", salesAdvisorService.getStatistics());
+        Map<String, Object> snapshot = botStatistics.getSnapshot();
+        Map<String, Object> stats = snapshot.isEmpty() ? collectStatistics() : new HashMap<>(snapshot);
         stats.put("config", Map.of(
             "botUsername", configurationManager.getTelegramBotUsername(),
             "aiModel", configurationManager.getAiModel(),
@@ -68,6 +139,22 @@ public class BotController {
         return ResponseEntity.ok(stats);
     }
     
+    /**
+     * Recoge las estadísticas en el momento, solo hasta que se publica la primera instantánea
+     */
+    private Map<String, Object> collectStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("general", telegramBotService.getServiceStatistics());
+        stats.put("jokes", jokeBotService.getStatistics());
+        stats.put("sales", salesAdvisorService.getStatistics());
+        stats.put("coalescing", responseContext.getCoalescingStatistics());
+        stats.put("prompts", promptTrimmer.getStatistics());
+        stats.put("streaming", streamingReplyService.getStatistics());
+        stats.put("outbound", outboundQueue.getStatistics());
+        stats.put("circuitBreaker", circuitBreaker.getStatus());
+        return stats;
+    }
+    
     /**
      * Limpia el contexto de un chat específico
      */
@@ -77,8 +164,20 @@ public class BotController {
         
         Map<String, String> response = new HashMap<>();
         response.put("message", "Contexto limpiado para chat: " + chatId);
-        response.put("timestamp", LocalDateTime.now().format(
-            DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")));
+        response.put("timestamp", LocalDateTime.now().format(TIMESTAMP_FORMAT));
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Obtiene los mensajes en espera de envío para un chat específico
+     */
+    @GetMapping("/chat/{chatId}/outbound")
+    public ResponseEntity<Map<String, Object>> getChatOutboundBacklog(@PathVariable String chatId) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("chatId", chatId);
+        response.put("mensajesEnEspera", outboundQueue.getBacklog(chatId));
+        response.put("profundidadTotal", outboundQueue.getQueueDepth());
         
         return ResponseEntity.ok(response);
     }
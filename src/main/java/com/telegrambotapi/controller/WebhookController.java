@@ -0,0 +1,69 @@
+package com.telegrambotapi.controller;
+
+import com.telegrambotapi.config.ConfigurationManager;
+import com.telegrambotapi.service.UpdateDispatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Punto de entrada de los updates en modo webhook.
+ * Cada update se entrega al despachador y se confirma de inmediato; el procesamiento
+ * continúa en segundo plano, por lo que Telegram nunca espera a la IA.
+ */
+@RestController
+@RequestMapping("/api/telegram")
+public class WebhookController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(WebhookController.class);
+    private static final String SECRET_TOKEN_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+    
+    @Autowired
+    private ConfigurationManager configurationManager;
+    
+    @Autowired
+    private UpdateDispatcher updateDispatcher;
+    
+    /**
+     * Recibe un update enviado por Telegram
+     * @return 200 si el update se encoló, 503 si la cola está llena (Telegram lo reenviará más tarde)
+     */
+    @PostMapping("/webhook")
+    public ResponseEntity<Void> receiveUpdate(
+            @RequestHeader(value = SECRET_TOKEN_HEADER, required = false) String secretToken,
+            @RequestBody Update update) {
+        if (!configurationManager.isWebhookMode()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        if (!isValidSecretToken(secretToken)) {
+            logger.warn("Update {} rechazado: token secreto del webhook inválido", update.getUpdateId());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        
+        if (!updateDispatcher.dispatch(update)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok().build();
+    }
+    
+    /**
+     * Compara el token recibido con el configurado en tiempo constante.
+     * Sin token configurado se rechaza cualquier petición (la configuración ya es inválida).
+     */
+    private boolean isValidSecretToken(String secretToken) {
+        String expected = configurationManager.getWebhookSecretToken();
+        if (expected == null || expected.isEmpty()) {
+            return false;
+        }
+        return secretToken != null && MessageDigest.isEqual(
+            expected.getBytes(StandardCharsets.UTF_8), secretToken.getBytes(StandardCharsets.UTF_8));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,105 @@
+package com.telegrambotapi.service;
+
+import com.telegrambotapi.adapter.AICircuitBreaker;
+import com.telegrambotapi.adapter.AIHealthMonitor;
+import com.telegrambotapi.adapter.TelegramBotAdapter;
+import com.telegrambotapi.adapter.TelegramOutboundQueue;
+import com.telegrambotapi.config.ConfigurationManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Calcula la disponibilidad (readiness) del bot a partir de señales ya en memoria:
+ * el último estado conocido del proveedor de IA y de su circuit breaker, la sesión con Telegram
+ * y la ocupación de las colas de entrada y salida. Nunca realiza llamadas a la IA ni a Telegram,
+ * de modo que responde al instante aunque el proveedor esté lento.
+ */
+@Service
+public class BotHealthService {
+
+    public static final String STATUS_UP = "UP";
+    public static final String STATUS_DEGRADED = "DEGRADED";
+    public static final String STATUS_DOWN = "DOWN";
+
+    @Autowired
+    private ConfigurationManager config;
+
+    @Autowired
+    private AIHealthMonitor aiHealthMonitor;
+
+    @Autowired
+    private AICircuitBreaker circuitBreaker;
+
+    @Autowired
+    private TelegramBotAdapter telegramAdapter;
+
+    @Autowired
+    private TelegramOutboundQueue outboundQueue;
+
+    @Autowired
+    private UpdateDispatcher updateDispatcher;
+
+    /**
+     * Evalúa la disponibilidad del bot.
+     * No está listo si la configuración es inválida, la sesión con Telegram no está activa
+     * o alguna cola supera el umbral de saturación. Con la IA caída sigue listo pero degradado:
+     * los comandos instantáneos funcionan y las estrategias responden con su mensaje alternativo.
+     * @return el estado global ("status"), si está listo ("listo") y el detalle por componente
+     */
+    public Map<String, Object> getReadiness() {
+        boolean configValid = config.isConfigurationValid();
+        boolean sessionActive = telegramAdapter.isSessionActive();
+
+        int pending = updateDispatcher.getPendingCount();
+        int outboundDepth = outboundQueue.getQueueDepth();
+        boolean inboundSaturated = isSaturated(pending, config.getDispatcherMaxPendingTotal());
+        boolean outboundSaturated = isSaturated(outboundDepth, config.getOutboundMaxQueueSize());
+
+        boolean aiAvailable = aiHealthMonitor.isAvailable();
+        AICircuitBreaker.State circuitState = circuitBreaker.getState();
+        boolean aiHealthy = aiAvailable && circuitState != AICircuitBreaker.State.OPEN;
+
+        boolean ready = configValid && sessionActive && !inboundSaturated && !outboundSaturated;
+        String status = !ready ? STATUS_DOWN : aiHealthy ? STATUS_UP : STATUS_DEGRADED;
+
+        Map<String, Object> telegram = new HashMap<>();
+        telegram.put("sesionActiva", sessionActive);
+        telegram.put("modo", config.getIngestionMode());
+        telegram.put("ultimoUpdate", updateDispatcher.getLastUpdateMillis());
+        telegram.put("ultimoEnvio", outboundQueue.getLastSentMillis());
+        telegram.put("ultimoFalloEnvio", outboundQueue.getLastFailureMillis());
+
+        Map<String, Object> ai = new HashMap<>(aiHealthMonitor.getStatus());
+        ai.put("circuito", circuitState.name());
+
+        Map<String, Object> queues = new HashMap<>();
+        queues.put("entradaPendientes", pending);
+        queues.put("entradaMaximo", config.getDispatcherMaxPendingTotal());
+        queues.put("entradaSaturada", inboundSaturated);
+        queues.put("salidaPendientes", outboundDepth);
+        queues.put("salidaMaximo", config.getOutboundMaxQueueSize());
+        queues.put("salidaSaturada", outboundSaturated);
+
+        Map<String, Object> components = new HashMap<>();
+        components.put("configuracion", Map.of("valida", configValid));
+        components.put("telegram", telegram);
+        components.put("ia", ai);
+        components.put("colas", queues);
+
+        Map<String, Object> readiness = new HashMap<>();
+        readiness.put("status", status);
+        readiness.put("listo", ready);
+        readiness.put("componentes", components);
+        return readiness;
+    }
+
+    /**
+     * Indica si la ocupación de una cola alcanza el porcentaje configurado de su capacidad
+     */
+    private boolean isSaturated(int size, int capacity) {
+        return capacity > 0 && (long) size * 100 >= (long) capacity * config.getHealthSaturationPercent();
+    }
+}
@@ -0,0 +1,116 @@
+package com.telegrambotapi.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Carril de ejecución con un límite propio de tareas en curso.
+ * Una tarea ocupa su plaza hasta que se completa el futuro que devuelve, no solo mientras
+ * ocupa un hilo, de modo que el límite acota también las respuestas que esperan a la IA.
+ * Las tareas que no caben esperan en orden de llegada sin tomar ningún lock.
+ */
+final class ExecutionLane {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionLane.class);
+
+    private final String name;
+    private final int maxConcurrent;
+    private final Executor executor;
+    private final Queue<Supplier<CompletableFuture<?>>> waiting = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waitingCount = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+
+    ExecutionLane(String name, int maxConcurrent, Executor executor) {
+        this.name = name;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.executor = executor;
+    }
+
+    /**
+     * Encola la tarea; se ejecuta en el executor del carril en cuanto haya una plaza libre
+     * @param task devuelve un futuro que se completa cuando la tarea ha terminado por completo
+     */
+    void submit(Supplier<CompletableFuture<?>> task) {
+        waitingCount.incrementAndGet();
+        waiting.add(task);
+        drain();
+    }
+
+    /**
+     * Arranca tareas en espera mientras haya plazas. Quien libera una plaza también llama aquí,
+     * así que una tarea encolada justo cuando otra termina no queda olvidada.
+     */
+    private void drain() {
+        while (!waiting.isEmpty()) {
+            int current = active.get();
+            if (current >= maxConcurrent) {
+                return;
+            }
+            if (!active.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            Supplier<CompletableFuture<?>> task = waiting.poll();
+            if (task == null) {
+                active.decrementAndGet();
+                continue;
+            }
+            waitingCount.decrementAndGet();
+            start(task);
+        }
+    }
+
+    private void start(Supplier<CompletableFuture<?>> task) {
+        try {
+            executor.execute(() -> {
+                CompletableFuture<?> completion;
+                try {
+                    completion = task.get();
+                } catch (RuntimeException e) {
+                    logger.error("Error en una tarea del carril {}: {}", name, e.getMessage(), e);
+                    completion = CompletableFuture.completedFuture(null);
+                }
+                completion.whenComplete((result, error) -> release());
+            });
+        } catch (RejectedExecutionException e) {
+            // Executor detenido: ninguna tarea del carril podrá ejecutarse ya
+            active.decrementAndGet();
+            int discarded = 1;
+            while (waiting.poll() != null) {
+                waitingCount.decrementAndGet();
+                discarded++;
+            }
+            logger.warn("Carril {} detenido, se descartan {} tareas", name, discarded);
+        }
+    }
+
+    private void release() {
+        active.decrementAndGet();
+        drain();
+    }
+
+    /**
+     * Tareas en curso, incluidas las que esperan a la IA sin ocupar un hilo
+     */
+    int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * Tareas a la espera de una plaza
+     */
+    int getWaitingCount() {
+        return waitingCount.get();
+    }
+
+    int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+}
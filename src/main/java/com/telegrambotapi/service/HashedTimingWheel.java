@@ -0,0 +1,162 @@
+package com.telegrambotapi.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Rueda de temporización con hash (hashed timing wheel) para muchos temporizadores de poca
+ * precisión: programar y cancelar cuestan O(1) y un único hilo avanza la rueda tick a tick.
+ * <p>
+ * Cada tick corresponde a una casilla; un temporizador cae en la casilla de su vencimiento y
+ * guarda cuántas vueltas completas le faltan. Los temporizadores nuevos entran por una cola
+ * concurrente y el hilo de la rueda los reparte al comienzo de cada tick, así que los hilos
+ * que programan nunca toman un lock. Las tareas vencidas se ejecutan en el hilo de la rueda:
+ * deben ser cortas y delegar el trabajo pesado.
+ */
+final class HashedTimingWheel implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    private final long tickNanos;
+    private final int mask;
+    private final Queue<Timeout>[] buckets;
+    private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final long startNanos;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    // Solo lo usa el hilo de la rueda
+    private long tick;
+
+    /**
+     * Temporizador programado en la rueda
+     */
+    static final class Timeout {
+
+        private final Runnable task;
+        private final long deadlineNanos;
+        private long remainingRounds;
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Cancela el temporizador; la rueda lo descarta cuando pasa por su casilla
+         */
+        void cancel() {
+            cancelled = true;
+        }
+    }
+
+    /**
+     * @param name nombre del hilo de la rueda
+     * @param tickDuration duración de cada tick (la precisión de los temporizadores)
+     * @param wheelSize número de casillas; se redondea a potencia de 2
+     */
+    @SuppressWarnings("unchecked")
+    HashedTimingWheel(String name, long tickDuration, TimeUnit unit, int wheelSize) {
+        this.tickNanos = Math.max(1, unit.toNanos(tickDuration));
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.mask = size - 1;
+        this.buckets = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Programa una tarea para dentro de delay; vence en el primer tick posterior al plazo
+     */
+    Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        long deadline = System.nanoTime() - startNanos + Math.max(0, unit.toNanos(delay));
+        Timeout timeout = new Timeout(task, deadline);
+        pending.incrementAndGet();
+        newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Temporizadores programados que aún no han vencido ni se han descartado
+     */
+    int pendingTimeouts() {
+        return pending.get();
+    }
+
+    private void run() {
+        while (running) {
+            long tickDeadline = tickNanos * (tick + 1);
+            long sleepNanos;
+            while ((sleepNanos = startNanos + tickDeadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+                if (!running) {
+                    return;
+                }
+            }
+            transferNewTimeouts();
+            expire(buckets[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void transferNewTimeouts() {
+        Timeout timeout;
+        while ((timeout = newTimeouts.poll()) != null) {
+            if (timeout.cancelled) {
+                pending.decrementAndGet();
+                continue;
+            }
+            // Un plazo ya pasado va a la casilla actual en lugar de esperar una vuelta entera
+            long dueTick = Math.max(timeout.deadlineNanos / tickNanos, tick);
+            timeout.remainingRounds = (dueTick - tick) / buckets.length;
+            buckets[(int) (dueTick & mask)].add(timeout);
+        }
+    }
+
+    private void expire(Queue<Timeout> bucket) {
+        for (int remaining = bucket.size(); remaining > 0; remaining--) {
+            Timeout timeout = bucket.poll();
+            if (timeout.cancelled) {
+                pending.decrementAndGet();
+            } else if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+                bucket.add(timeout);
+            } else {
+                pending.decrementAndGet();
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    logger.error("Error en una tarea de la rueda de temporización", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Detiene el hilo de la rueda; los temporizadores pendientes no se ejecutan
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,29 +1,49 @@
 package com.telegrambotapi.service;
 
 import com.telegrambotapi.adapter.AIServiceException;
+import com.telegrambotapi.adapter.TelegramBotAdapter;
+import com.telegrambotapi.config.ConfigurationManager;
+import com.telegrambotapi.state.ChatState;
+import com.telegrambotapi.state.ChatStateStore;
 import com.telegrambotapi.strategy.JokeGenerationStrategy;
 import com.telegrambotapi.strategy.ResponseContext;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Servicio para manejar el bot de chistes que analiza conversaciones grupales
- * y genera chistes cada 3-4 mensajes basados en el contexto.
+ * y genera chistes basados en el contexto.
+ * Los chistes automáticos no se generan al recibir el mensaje: cada chat con suficientes
+ * mensajes nuevos arma un temporizador en una rueda de temporización que dispara el chiste
+ * tras una pausa en la conversación, o de inmediato al acumular el máximo de mensajes.
  */
 @Service
 public class JokeBotService {
     
     private static final Logger logger = LoggerFactory.getLogger(JokeBotService.class);
-    private static final int MIN_MESSAGES_FOR_JOKE = 3;
-    private static final int MAX_MESSAGES_FOR_JOKE = 4;
-    private static final int MAX_CONTEXT_LENGTH = 1000; // caracteres
+    // Pre-corte grueso en caracteres; el presupuesto de tokens (PromptTrimmer) decide lo que se envía
+    private static final int MAX_CONTEXT_LENGTH = 2000; // caracteres
+    private static final int MAX_CONTEXT_MESSAGES = 10;
+    // Precisión de la pausa: los chistes no necesitan más de un cuarto de segundo
+    private static final long WHEEL_TICK_MS = 250;
+    private static final int WHEEL_SIZE = 512;
+    
+    @Autowired
+    private ConfigurationManager config;
     
     @Autowired
     private ResponseContext responseContext;
@@ -31,104 +51,194 @@ public class JokeBotService {
     @Autowired
     private JokeGenerationStrategy jokeGenerationStrategy;
     
-    // Almacena los mensajes por chat para mantener el contexto
-    private final Map<String, List<String>> chatMessages = new HashMap<>();
-    // Contador de mensajes por chat
-    private final Map<String, Integer> messageCounters = new HashMap<>();
+    @Autowired
+    private TelegramBotAdapter telegramAdapter;
+    
+    // Almacena los mensajes y el contador de cada chat para mantener el contexto
+    @Autowired
+    private ChatStateStore chatStateStore;
+    
+    private HashedTimingWheel timingWheel;
+    private ExecutorService triggerExecutor;
+    
+    // Chats con un chiste programado a la espera de una pausa
+    private final ConcurrentHashMap<String, PendingJoke> pendingJokes = new ConcurrentHashMap<>();
+    private final AtomicLong jokesTriggered = new AtomicLong();
+    private final AtomicLong jokesSkipped = new AtomicLong();
+    
+    /**
+     * Chiste programado para un chat; cada mensaje nuevo solo actualiza la marca de tiempo
+     * y la rueda vuelve a programarlo si la pausa aún no se ha cumplido
+     */
+    private static final class PendingJoke {
+        private volatile long lastMessageNanos;
+        private volatile HashedTimingWheel.Timeout timeout;
+        
+        private PendingJoke(long lastMessageNanos) {
+            this.lastMessageNanos = lastMessageNanos;
+        }
+    }
+    
+    /**
+     * Crea la rueda de temporización y el hilo que lanza la generación de chistes
+     */
+    @PostConstruct
+    public void initialize() {
+        timingWheel = new HashedTimingWheel("joke-timing-wheel", WHEEL_TICK_MS, TimeUnit.MILLISECONDS, WHEEL_SIZE);
+        // Construir el contexto y filtrar temas sensibles no debe ocupar el hilo de la rueda
+        triggerExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "joke-trigger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Chistes automáticos tras {} s de pausa (mínimo {} mensajes) o al llegar a {} mensajes",
+                   config.getJokeIdleSeconds(), config.getJokeMinMessages(), config.getJokeMaxMessages());
+    }
     
     /**
-     * Procesa un nuevo mensaje y determina si debe generar un chiste
+     * Registra un nuevo mensaje del grupo y programa el chiste automático si corresponde.
+     * No espera a la IA: el chiste se envía al chat cuando se dispara el temporizador.
      * @param chatId el ID del chat
      * @param message el mensaje recibido
      * @param userName el nombre del usuario que envió el mensaje
-     * @return un chiste si corresponde, null si no debe generar chiste
      */
-    public String processMessage(String chatId, String message, String userName) {
+    public void processMessage(String chatId, String message, String userName) {
         if (chatId == null || message == null || message.trim().isEmpty()) {
-            return null;
+            return;
         }
         
-        // Agregar mensaje al contexto del chat
-        addMessageToContext(chatId, message, userName);
+        // Agregar mensaje al contexto del chat e incrementar contador de mensajes
+        int messageCount = addMessageToContext(chatId, message, userName);
         
-        // Incrementar contador de mensajes
-        int messageCount = messageCounters.getOrDefault(chatId, 0) + 1;
-        messageCounters.put(chatId, messageCount);
-        
-        // Verificar si es momento de generar un chiste
-        if (shouldGenerateJoke(messageCount)) {
-            try {
-                String context = buildConversationContext(chatId);
-                
-                // Verificar si el contexto es apropiado para un chiste
-                if (jokeGenerationStrategy.isAppropriateForJoke(context)) {
-                    String joke = responseContext.executeStrategy(
-                        ResponseContext.StrategyType.JOKE_GENERATION, context);
-                    
-                    // Reiniciar contador después de generar chiste
-                    messageCounters.put(chatId, 0);
-                    
-                    logger.info("Chiste generado para chat {}", chatId);
-                    return joke;
-                } else {
-                    logger.info("Contexto no apropiado para chiste en chat {}", chatId);
-                }
-            } catch (AIServiceException e) {
-                logger.error("Error generando chiste para chat {}: {}", chatId, e.getMessage());
+        if (messageCount >= config.getJokeMaxMessages()) {
+            // Ráfaga larga: no esperar a la pausa
+            PendingJoke pending = pendingJokes.remove(chatId);
+            if (pending != null && pending.timeout != null) {
+                pending.timeout.cancel();
             }
+            submitTrigger(chatId);
+        } else if (messageCount >= config.getJokeMinMessages()) {
+            scheduleAfterPause(chatId);
         }
-        
-        return null;
     }
     
     /**
-     * Determina si debe generar un chiste basado en el número de mensajes
+     * Arma el temporizador del chat o, si ya existe, retrasa su disparo hasta la nueva pausa
      */
-    private boolean shouldGenerateJoke(int messageCount) {
-        return messageCount >= MIN_MESSAGES_FOR_JOKE && messageCount <= MAX_MESSAGES_FOR_JOKE;
+    private void scheduleAfterPause(String chatId) {
+        long now = System.nanoTime();
+        pendingJokes.compute(chatId, (id, pending) -> {
+            if (pending != null) {
+                pending.lastMessageNanos = now;
+                return pending;
+            }
+            PendingJoke created = new PendingJoke(now);
+            created.timeout = timingWheel.schedule(() -> onPauseElapsed(id, created),
+                                                   config.getJokeIdleSeconds(), TimeUnit.SECONDS);
+            return created;
+        });
     }
     
     /**
-     * Agrega un mensaje al contexto de conversación del chat
+     * Se ejecuta en el hilo de la rueda: si llegaron mensajes durante la espera vuelve a
+     * programarse por el tiempo restante; si no, lanza la generación del chiste
      */
-    private void addMessageToContext(String chatId, String message, String userName) {
-        List<String> messages = chatMessages.computeIfAbsent(chatId, k -> new ArrayList<>());
-        
-        String formattedMessage = String.format("%s: %s", userName, message);
-        messages.add(formattedMessage);
-        
-        // Mantener solo los últimos mensajes para evitar contextos muy largos
-        if (messages.size() > 10) {
-            messages.remove(0);
+    private void onPauseElapsed(String chatId, PendingJoke pending) {
+        long idleNanos = TimeUnit.SECONDS.toNanos(config.getJokeIdleSeconds());
+        long remaining = pending.lastMessageNanos + idleNanos - System.nanoTime();
+        if (remaining > 0) {
+            pending.timeout = timingWheel.schedule(() -> onPauseElapsed(chatId, pending),
+                                                   remaining, TimeUnit.NANOSECONDS);
+            return;
+        }
+        if (pendingJokes.remove(chatId, pending)) {
+            submitTrigger(chatId);
+        }
+    }
+    
+    private void submitTrigger(String chatId) {
+        try {
+            triggerExecutor.execute(() -> triggerJoke(chatId));
+        } catch (RejectedExecutionException e) {
+            // Aplicación deteniéndose: el chiste se descarta
         }
     }
     
     /**
-     * Construye el contexto de conversación para generar el chiste
+     * Genera y envía el chiste automático del chat.
+     * El contador se reinicia al intentarlo, haya éxito o no, para que un fallo o un contexto
+     * no apropiado no bloqueen los chistes siguientes.
      */
-    private String buildConversationContext(String chatId) {
-        List<String> messages = chatMessages.get(chatId);
-        if (messages == null || messages.isEmpty()) {
-            return "";
+    private void triggerJoke(String chatId) {
+        int minMessages = config.getJokeMinMessages();
+        boolean due = chatStateStore.read(chatId, state -> state.getMessageCount() >= minMessages, false)
+            && chatStateStore.compute(chatId, state -> {
+                if (state.getMessageCount() < minMessages) {
+                    return false;
+                }
+                state.resetMessageCount();
+                return true;
+            });
+        if (!due) {
+            // Otro disparo del mismo chat ya consumió estos mensajes, o se limpió el contexto
+            return;
         }
         
-        StringBuilder context = new StringBuilder();
-        for (String message : messages) {
-            if (context.length() + message.length() > MAX_CONTEXT_LENGTH) {
-                break;
-            }
-            context.append(message).append("\n");
+        String context = buildConversationContext(chatId);
+        
+        // Verificar si el contexto es apropiado para un chiste
+        if (!jokeGenerationStrategy.isAppropriateForJoke(context)) {
+            jokesSkipped.incrementAndGet();
+            logger.info("Contexto no apropiado para chiste en chat {}", chatId);
+            return;
         }
         
-        return context.toString().trim();
+        jokesTriggered.incrementAndGet();
+        responseContext.executeStrategyAsync(ResponseContext.StrategyType.JOKE_GENERATION, context)
+            .whenComplete((joke, error) -> {
+                if (error != null) {
+                    logger.error("Error generando chiste para chat {}: {}", chatId, 
+                                AIServiceException.unwrap(error).getMessage());
+                    return;
+                }
+                
+                logger.info("Chiste generado para chat {}", chatId);
+                telegramAdapter.sendTextMessage(chatId, joke);
+            });
+    }
+    
+    /**
+     * Agrega un mensaje al contexto de conversación del chat
+     * @return el número de mensajes desde el último chiste
+     */
+    private int addMessageToContext(String chatId, String message, String userName) {
+        String formattedMessage = userName + ": " + message.trim();
+        
+        // Mantener solo los últimos mensajes para evitar contextos muy largos
+        return chatStateStore.compute(chatId, state -> {
+            state.addMessage(formattedMessage, MAX_CONTEXT_MESSAGES);
+            return state.incrementMessageCount();
+        });
+    }
+    
+    /**
+     * Construye el contexto de conversación para generar el chiste,
+     * priorizando los mensajes más recientes que caben en MAX_CONTEXT_LENGTH.
+     * Visible en el paquete para los benchmarks.
+     */
+    String buildConversationContext(String chatId) {
+        return chatStateStore.read(chatId, state -> state.buildContext(MAX_CONTEXT_LENGTH), "");
     }
     
     /**
      * Limpia el contexto de un chat específico
      */
     public void clearChatContext(String chatId) {
-        chatMessages.remove(chatId);
-        messageCounters.remove(chatId);
+        PendingJoke pending = pendingJokes.remove(chatId);
+        if (pending != null && pending.timeout != null) {
+            pending.timeout.cancel();
+        }
+        chatStateStore.updateIfPresent(chatId, ChatState::clearConversationContext);
         logger.info("Contexto limpiado para chat {}", chatId);
     }
     
@@ -136,15 +246,23 @@ public class JokeBotService {
      * Obtiene estadísticas del bot de chistes
      */
     public Map<String, Object> getStatistics() {
+        int[] activeChats = {0};
+        int[] totalMessages = {0};
+        chatStateStore.forEach((chatId, state) -> {
+            if (state.hasMessages()) {
+                activeChats[0]++;
+            }
+            totalMessages[0] += state.getMessageCount();
+        });
+        
         Map<String, Object> stats = new HashMap<>();
-        stats.put("chatsActivos", chatMessages.size());
+        stats.put("chatsActivos", activeChats[0]);
         stats.put("servicioDisponible", responseContext.isStrategyAvailable(
             ResponseContext.StrategyType.JOKE_GENERATION));
-        
-        int totalMessages = messageCounters.values().stream()
-            .mapToInt(Integer::intValue)
-            .sum();
-        stats.put("mensajesTotales", totalMessages);
+        stats.put("mensajesTotales", totalMessages[0]);
+        stats.put("chistesProgramados", pendingJokes.size());
+        stats.put("chistesAutomaticos", jokesTriggered.get());
+        stats.put("chistesDescartados", jokesSkipped.get());
         
         return stats;
     }
@@ -160,17 +278,37 @@ public class JokeBotService {
      * Genera un chiste manual para un chat específico
      */
     public String generateManualJoke(String chatId) {
-        try {
-            String context = buildConversationContext(chatId);
-            if (context.isEmpty()) {
-                context = "conversación general";
-            }
-            
-            return responseContext.executeStrategy(
-                ResponseContext.StrategyType.JOKE_GENERATION, context);
-        } catch (AIServiceException e) {
-            logger.error("Error generando chiste manual: {}", e.getMessage());
-            return "😅 Lo siento, no puedo generar un chiste en este momento.";
+        return generateManualJokeAsync(chatId).join();
+    }
+    
+    /**
+     * Genera un chiste manual para un chat específico sin bloquear el hilo que lo solicita
+     * @param chatId el ID del chat
+     * @return un futuro con el chiste, o con un mensaje de disculpa si la IA falla
+     */
+    public CompletableFuture<String> generateManualJokeAsync(String chatId) {
+        String context = buildConversationContext(chatId);
+        if (context.isEmpty()) {
+            context = "conversación general";
+        }
+        
+        return responseContext.executeStrategyAsync(ResponseContext.StrategyType.JOKE_GENERATION, context)
+            .exceptionally(error -> {
+                logger.error("Error generando chiste manual: {}", AIServiceException.unwrap(error).getMessage());
+                return "😅 Lo siento, no puedo generar un chiste en este momento.";
+            });
+    }
+    
+    /**
+     * Detiene la rueda de temporización; los chistes pendientes se descartan
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (timingWheel != null) {
+            timingWheel.close();
+        }
+        if (triggerExecutor != null) {
+            triggerExecutor.shutdownNow();
         }
     }
-}
\ No newline at end of file
+}
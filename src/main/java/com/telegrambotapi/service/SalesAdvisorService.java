@@ -1,6 +1,7 @@
 package com.telegrambotapi.service;
 
 import com.telegrambotapi.adapter.AIServiceException;
+import com.telegrambotapi.strategy.ResponseCache;
 import com.telegrambotapi.strategy.ResponseContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +12,11 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Servicio para proporcionar asesoría de ventas basada en análisis de conversaciones
@@ -20,12 +26,18 @@ import java.util.Map;
 public class SalesAdvisorService {
     
     private static final Logger logger = LoggerFactory.getLogger(SalesAdvisorService.class);
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+    private static final DateTimeFormatter ADVICE_TIME_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+    private static final String ADVICE_FOOTER = "\n\n📋 Consejo generado por IA";
     
     @Autowired
     private ResponseContext responseContext;
     
-    // Estadísticas del servicio
-    private final Map<String, Integer> advisoryCount = new HashMap<>();
+    @Autowired
+    private ResponseCache responseCache;
+    
+    // Estadísticas del servicio: un contador sin locks por tipo de asesoría
+    private final Map<String, LongAdder> advisoryCount = new ConcurrentHashMap<>();
     
     /**
      * Analiza una conversación de ventas y proporciona consejos para rechazar una devolución
@@ -34,22 +46,44 @@ public class SalesAdvisorService {
      * @return consejo para rechazar la devolución
      */
     public String analyzeForRefundRejection(String conversation, String advisorChatId) {
+        return analyzeForRefundRejectionAsync(conversation, advisorChatId).join();
+    }
+    
+    /**
+     * Versión no bloqueante de {@link #analyzeForRefundRejection(String, String)}
+     * @return un futuro con el consejo formateado o con el mensaje de error para el usuario
+     */
+    public CompletableFuture<String> analyzeForRefundRejectionAsync(String conversation, String advisorChatId) {
+        return analyzeForRefundRejectionAsync(conversation, advisorChatId, false);
+    }
+    
+    /**
+     * Versión no bloqueante que permite ignorar la caché de respuestas
+     * @param bypassCache true para forzar una nueva consulta a la IA
+     * @return un futuro con el consejo formateado o con el mensaje de error para el usuario
+     */
+    public CompletableFuture<String> analyzeForRefundRejectionAsync(String conversation, String advisorChatId,
+                                                     boolean bypassCache) {
         logger.info("Analizando conversación para rechazo de devolución");
         
-        try {
-            String advice = responseContext.executeStrategy(
-                ResponseContext.StrategyType.REFUND_REJECTION, conversation);
-            
-            incrementAdvisoryCount("refund_rejection");
-            logAdvice(advisorChatId, "Rechazo de Devolución", conversation);
-            
-            return formatAdvice("🚫 ESTRATEGIA: Rechazo de Devolución", advice);
-            
-        } catch (AIServiceException e) {
-            logger.error("Error analizando para rechazo de devolución: {}", e.getMessage());
-            return "❌ Error: No pude analizar la conversación para rechazo de devolución. " +
-                   "Verifica que el servicio de IA esté disponible.";
-        }
+        return analyzeAsync(ResponseContext.StrategyType.REFUND_REJECTION, conversation, advisorChatId,
+                           "refund_rejection", "Rechazo de Devolución", "🚫 ESTRATEGIA: Rechazo de Devolución",
+                           "rechazo de devolución", bypassCache, null);
+    }
+    
+    /**
+     * Versión no bloqueante que notifica el consejo formateado a medida que la IA lo genera
+     * @param onPartial recibe un proveedor del consejo parcial ya formateado (null para no usar streaming);
+     *                  no debe bloquear
+     * @return un futuro con el consejo definitivo o con el mensaje de error para el usuario
+     */
+    public CompletableFuture<String> analyzeForRefundRejectionAsync(String conversation, String advisorChatId,
+                                                     Consumer<Supplier<String>> onPartial) {
+        logger.info("Analizando conversación en streaming para rechazo de devolución");
+        
+        return analyzeAsync(ResponseContext.StrategyType.REFUND_REJECTION, conversation, advisorChatId,
+                           "refund_rejection", "Rechazo de Devolución", "🚫 ESTRATEGIA: Rechazo de Devolución",
+                           "rechazo de devolución", false, onPartial);
     }
     
     /**
@@ -59,22 +93,44 @@ public class SalesAdvisorService {
      * @return consejo para realizar upselling
      */
     public String analyzeForUpselling(String conversation, String advisorChatId) {
+        return analyzeForUpsellingAsync(conversation, advisorChatId).join();
+    }
+    
+    /**
+     * Versión no bloqueante de {@link #analyzeForUpselling(String, String)}
+     * @return un futuro con el consejo formateado o con el mensaje de error para el usuario
+     */
+    public CompletableFuture<String> analyzeForUpsellingAsync(String conversation, String advisorChatId) {
+        return analyzeForUpsellingAsync(conversation, advisorChatId, false);
+    }
+    
+    /**
+     * Versión no bloqueante que permite ignorar la caché de respuestas
+     * @param bypassCache true para forzar una nueva consulta a la IA
+     * @return un futuro con el consejo formateado o con el mensaje de error para el usuario
+     */
+    public CompletableFuture<String> analyzeForUpsellingAsync(String conversation, String advisorChatId,
+                                                     boolean bypassCache) {
         logger.info("Analizando conversación para upselling");
         
-        try {
-            String advice = responseContext.executeStrategy(
-                ResponseContext.StrategyType.UPSELLING, conversation);
-            
-            incrementAdvisoryCount("upselling");
-            logAdvice(advisorChatId, "Upselling", conversation);
-            
-            return formatAdvice("📈 ESTRATEGIA: Upselling", advice);
-            
-        } catch (AIServiceException e) {
-            logger.error("Error analizando para upselling: {}", e.getMessage());
-            return "❌ Error: No pude analizar la conversación para upselling. " +
-                   "Verifica que el servicio de IA esté disponible.";
-        }
+        return analyzeAsync(ResponseContext.StrategyType.UPSELLING, conversation, advisorChatId,
+                           "upselling", "Upselling", "📈 ESTRATEGIA: Upselling",
+                           "upselling", bypassCache, null);
+    }
+    
+    /**
+     * Versión no bloqueante que notifica el consejo formateado a medida que la IA lo genera
+     * @param onPartial recibe un proveedor del consejo parcial ya formateado (null para no usar streaming);
+     *                  no debe bloquear
+     * @return un futuro con el consejo definitivo o con el mensaje de error para el usuario
+     */
+    public CompletableFuture<String> analyzeForUpsellingAsync(String conversation, String advisorChatId,
+                                                     Consumer<Supplier<String>> onPartial) {
+        logger.info("Analizando conversación en streaming para upselling");
+        
+        return analyzeAsync(ResponseContext.StrategyType.UPSELLING, conversation, advisorChatId,
+                           "upselling", "Upselling", "📈 ESTRATEGIA: Upselling",
+                           "upselling", false, onPartial);
     }
     
     /**
@@ -84,22 +140,88 @@ public class SalesAdvisorService {
      * @return consejo para motivar la compra
      */
     public String analyzeForPurchaseMotivation(String conversation, String advisorChatId) {
+        return analyzeForPurchaseMotivationAsync(conversation, advisorChatId).join();
+    }
+    
+    /**
+     * Versión no bloqueante de {@link #analyzeForPurchaseMotivation(String, String)}
+     * @return un futuro con el consejo formateado o con el mensaje de error para el usuario
+     */
+    public CompletableFuture<String> analyzeForPurchaseMotivationAsync(String conversation, String advisorChatId) {
+        return analyzeForPurchaseMotivationAsync(conversation, advisorChatId, false);
+    }
+    
+    /**
+     * Versión no bloqueante que permite ignorar la caché de respuestas
+     * @param bypassCache true para forzar una nueva consulta a la IA
+     * @return un futuro con el consejo formateado o con el mensaje de error para el usuario
+     */
+    public CompletableFuture<String> analyzeForPurchaseMotivationAsync(String conversation, String advisorChatId,
+                                                     boolean bypassCache) {
         logger.info("Analizando conversación para motivación de compra");
         
-        try {
-            String advice = responseContext.executeStrategy(
-                ResponseContext.StrategyType.PURCHASE_MOTIVATION, conversation);
-            
-            incrementAdvisoryCount("purchase_motivation");
-            logAdvice(advisorChatId, "Motivación de Compra", conversation);
+        return analyzeAsync(ResponseContext.StrategyType.PURCHASE_MOTIVATION, conversation, advisorChatId,
+                           "purchase_motivation", "Motivación de Compra", "💪 ESTRATEGIA: Motivación de Compra",
+                           "motivación de compra", bypassCache, null);
+    }
+    
+    /**
+     * Versión no bloqueante que notifica el consejo formateado a medida que la IA lo genera
+     * @param onPartial recibe un proveedor del consejo parcial ya formateado (null para no usar streaming);
+     *                  no debe bloquear
+     * @return un futuro con el consejo definitivo o con el mensaje de error para el usuario
+     */
+    public CompletableFuture<String> analyzeForPurchaseMotivationAsync(String conversation, String advisorChatId,
+                                                     Consumer<Supplier<String>> onPartial) {
+        logger.info("Analizando conversación en streaming para motivación de compra");
+        
+        return analyzeAsync(ResponseContext.StrategyType.PURCHASE_MOTIVATION, conversation, advisorChatId,
+                           "purchase_motivation", "Motivación de Compra", "💪 ESTRATEGIA: Motivación de Compra",
+                           "motivación de compra", false, onPartial);
+    }
+    
+    /**
+     * Ejecuta una estrategia de ventas de forma asíncrona, registra el consejo y le da formato.
+     * Una conversación ya analizada con la misma estrategia se responde desde la caché;
+     * en ese caso no hay texto parcial que notificar.
+     * Los errores de IA se convierten en un mensaje para el usuario, por lo que el futuro nunca falla.
+     */
+    private CompletableFuture<String> analyzeAsync(ResponseContext.StrategyType strategyType, String conversation,
+                                                   String advisorChatId, String counterKey, String adviceType,
+                                                   String header, String objectiveDescription, boolean bypassCache,
+                                                   Consumer<Supplier<String>> onPartial) {
+        if (!bypassCache) {
+            String cachedAdvice = responseCache.get(strategyType, conversation);
+            if (cachedAdvice != null) {
+                logger.info("Consejo '{}' servido desde caché", adviceType);
+                incrementAdvisoryCount(counterKey);
+                logAdvice(advisorChatId, adviceType, conversation);
+                return CompletableFuture.completedFuture(formatAdvice(header, cachedAdvice));
+            }
+        }
+        
+        // Mismo encabezado para los parciales y el texto definitivo: cada parcial continúa al anterior,
+        // lo que permite fijar los fragmentos ya completos de una respuesta larga
+        String prefix = advicePrefix(header);
+        CompletableFuture<String> response = onPartial != null
+            ? responseContext.executeStrategyStreaming(strategyType, conversation,
+                                                       partial -> onPartial.accept(() -> prefix + partial.get()))
+            : responseContext.executeStrategyAsync(strategyType, conversation);
+        
+        return response.handle((advice, error) -> {
+            if (error != null) {
+                logger.error("Error analizando para {}: {}", objectiveDescription, 
+                            AIServiceException.unwrap(error).getMessage());
+                return "❌ Error: No pude analizar la conversación para " + objectiveDescription + ". " +
+                       "Verifica que el servicio de IA esté disponible.";
+            }
             
-            return formatAdvice("💪 ESTRATEGIA: Motivación de Compra", advice);
+            responseCache.put(strategyType, conversation, advice);
+            incrementAdvisoryCount(counterKey);
+            logAdvice(advisorChatId, adviceType, conversation);
             
-        } catch (AIServiceException e) {
-            logger.error("Error analizando para motivación de compra: {}", e.getMessage());
-            return "❌ Error: No pude analizar la conversación para motivación de compra. " +
-                   "Verifica que el servicio de IA esté disponible.";
-        }
+            return prefix + advice + ADVICE_FOOTER;
+        });
     }
     
     /**
@@ -128,7 +250,7 @@ public class SalesAdvisorService {
         analysis.append("  - /motivar_compra - Para motivar la compra\n\n");
         
         analysis.append("⏰ Análisis realizado: ");
-        analysis.append(LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
+        analysis.append(LocalDateTime.now().format(ADVICE_TIME_FORMAT));
         
         logAdvice(advisorChatId, "Análisis General", conversation);
         
@@ -136,24 +258,25 @@ public class SalesAdvisorService {
     }
     
     /**
-     * Formatea un consejo con un encabezado y timestamp
+     * Formatea un consejo con un encabezado y timestamp.
+     * Visible en el paquete para los benchmarks.
      */
-    private String formatAdvice(String header, String advice) {
-        StringBuilder formatted = new StringBuilder();
-        formatted.append(header).append("\n");
-        formatted.append("⏰ ").append(LocalDateTime.now().format(
-            DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"))).append("\n\n");
-        formatted.append(advice);
-        formatted.append("\n\n📋 Consejo generado por IA");
-        
-        return formatted.toString();
+    String formatAdvice(String header, String advice) {
+        return advicePrefix(header) + advice + ADVICE_FOOTER;
+    }
+    
+    /**
+     * Encabezado y timestamp que preceden al consejo
+     */
+    private String advicePrefix(String header) {
+        return header + "\n⏰ " + LocalDateTime.now().format(ADVICE_TIME_FORMAT) + "\n\n";
     }
     
     /**
      * Incrementa el contador para un tipo específico de asesoría
      */
     private void incrementAdvisoryCount(String type) {
-        advisoryCount.put(type, advisoryCount.getOrDefault(type, 0) + 1);
+        advisoryCount.computeIfAbsent(type, key -> new LongAdder()).increment();
     }
     
     /**
@@ -168,13 +291,20 @@ public class SalesAdvisorService {
      * Obtiene estadísticas del servicio de asesoría
      */
     public Map<String, Object> getStatistics() {
+        Map<String, Long> countsByType = new HashMap<>();
+        long total = 0;
+        for (Map.Entry<String, LongAdder> entry : advisoryCount.entrySet()) {
+            long count = entry.getValue().sum();
+            countsByType.put(entry.getKey(), count);
+            total += count;
+        }
+        
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalConsejos", advisoryCount.values().stream()
-            .mapToInt(Integer::intValue).sum());
-        stats.put("consejosPorTipo", new HashMap<>(advisoryCount));
+        stats.put("totalConsejos", total);
+        stats.put("consejosPorTipo", countsByType);
         stats.put("serviciosDisponibles", getAvailableServices());
-        stats.put("ultimaActualizacion", LocalDateTime.now().format(
-            DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")));
+        stats.put("cacheRespuestas", responseCache.getStatistics());
+        stats.put("ultimaActualizacion", LocalDateTime.now().format(TIMESTAMP_FORMAT));
         
         return stats;
     }
@@ -0,0 +1,274 @@
+package com.telegrambotapi.service;
+
+import com.telegrambotapi.adapter.MessageChunker;
+import com.telegrambotapi.adapter.TelegramServiceAdapter;
+import com.telegrambotapi.config.ConfigurationManager;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Entrega las respuestas de IA de forma progresiva: publica un mensaje provisional
+ * y lo edita con el texto parcial a medida que llegan los tokens.
+ * Las ediciones de cada mensaje se espacian según el intervalo configurado y pasan por la
+ * cola de salida, que aplica los límites de Telegram; la última edición deja el texto definitivo.
+ * Las respuestas que superan el límite de un mensaje continúan en mensajes nuevos a medida que
+ * cada fragmento se completa.
+ */
+@Service
+public class StreamingReplyService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(StreamingReplyService.class);
+    private static final long MIN_EDIT_INTERVAL_MS = 100;
+    private static final int MAX_MESSAGE_LENGTH = MessageChunker.MAX_MESSAGE_LENGTH;
+    private static final String TYPING_SUFFIX = " ▌";
+    
+    @Autowired
+    private ConfigurationManager config;
+    
+    @Autowired
+    private TelegramServiceAdapter telegramAdapter;
+    
+    private ScheduledExecutorService editScheduler;
+    
+    private final AtomicLong streamedReplies = new AtomicLong();
+    private final AtomicLong editsSent = new AtomicLong();
+    private final AtomicLong continuationMessages = new AtomicLong();
+    
+    /**
+     * Crea el planificador de ediciones
+     */
+    @PostConstruct
+    public void initialize() {
+        // Las ediciones solo se encolan, por lo que un hilo basta para todos los mensajes
+        editScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "telegram-stream-editor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Envía la respuesta generada al chat, mostrando su progreso si el streaming está habilitado
+     * @param chatId el ID del chat destino
+     * @param placeholder texto del mensaje provisional
+     * @param generator recibe el consumidor de texto parcial (null si no se usa streaming)
+     *                  y devuelve un futuro con el texto definitivo
+     * @return un futuro que se completa cuando el texto definitivo se ha entregado
+     */
+    public CompletableFuture<Void> reply(String chatId, String placeholder,
+                                         Function<Consumer<Supplier<String>>, CompletableFuture<String>> generator) {
+        if (!config.isStreamingEnabled()) {
+            return sendWhenReady(chatId, generator);
+        }
+        
+        return telegramAdapter.sendTextMessageAsync(chatId, placeholder).thenCompose(messageId -> {
+            if (messageId == null) {
+                // Sin mensaje provisional no hay nada que editar
+                return sendWhenReady(chatId, generator);
+            }
+            
+            streamedReplies.incrementAndGet();
+            ProgressiveMessage message = new ProgressiveMessage(chatId, messageId);
+            long interval = Math.max(MIN_EDIT_INTERVAL_MS, config.getStreamingEditIntervalMs());
+            ScheduledFuture<?> ticker = editScheduler.scheduleWithFixedDelay(
+                message::flush, interval, interval, TimeUnit.MILLISECONDS);
+            
+            return generator.apply(message::offer)
+                .whenComplete((text, error) -> ticker.cancel(false))
+                .thenCompose(message::finish);
+        });
+    }
+    
+    /**
+     * Envía la respuesta completa en un único mensaje cuando está lista
+     */
+    private CompletableFuture<Void> sendWhenReady(
+            String chatId, Function<Consumer<Supplier<String>>, CompletableFuture<String>> generator) {
+        return generator.apply(null)
+            .thenAccept(text -> telegramAdapter.sendTextMessage(chatId, text));
+    }
+    
+    /**
+     * Obtiene estadísticas de las respuestas entregadas en streaming
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("habilitado", config.isStreamingEnabled());
+        stats.put("intervaloEdicionMs", config.getStreamingEditIntervalMs());
+        stats.put("respuestasEnStreaming", streamedReplies.get());
+        stats.put("edicionesEnviadas", editsSent.get());
+        stats.put("mensajesDeContinuacion", continuationMessages.get());
+        return stats;
+    }
+    
+    /**
+     * Mensaje provisional que se edita con el último texto parcial recibido.
+     * Cuando el texto ya no cabe en un mensaje, el fragmento completo queda fijo en el mensaje
+     * actual y el resto continúa en uno nuevo, sin esperar al final de la respuesta.
+     * <p>
+     * Todas las ediciones, incluida la definitiva, se encadenan en una única cola ({@code lastEdit}):
+     * cada una se encola en la cola de salida cuando la anterior ya lo está, aunque el ID del mensaje
+     * de continuación llegue tarde. Así el texto definitivo es siempre la última edición aplicada.
+     */
+    private final class ProgressiveMessage {
+        private final String chatId;
+        private final AtomicBoolean firstPartialSeen = new AtomicBoolean();
+        private volatile Supplier<String> latest;
+        private String shown;
+        private boolean finished;
+        // Mensaje que se está editando; tras pasar a un mensaje nuevo, su ID llega al enviarse
+        private CompletableFuture<Integer> current;
+        // Parte del texto ya fijada en mensajes anteriores
+        private String committed = "";
+        // Última edición encadenada; se completa cuando esa edición ya está en la cola de salida
+        private CompletableFuture<Void> lastEdit = CompletableFuture.completedFuture(null);
+        
+        private ProgressiveMessage(String chatId, Integer messageId) {
+            this.chatId = chatId;
+            this.current = CompletableFuture.completedFuture(messageId);
+        }
+        
+        /**
+         * Recibe el texto acumulado desde los hilos de I/O; solo guarda su proveedor (el texto se
+         * construye al editar, una vez por intervalo) y, la primera vez, adelanta una edición para
+         * mostrar salida cuanto antes
+         */
+        private void offer(Supplier<String> partial) {
+            latest = partial;
+            if (firstPartialSeen.compareAndSet(false, true)) {
+                try {
+                    editScheduler.execute(this::flush);
+                } catch (RejectedExecutionException e) {
+                    // Aplicación deteniéndose: el texto definitivo se entrega igualmente al terminar
+                }
+            }
+        }
+        
+        /**
+         * Encola la edición con el último texto parcial si cambió desde la anterior.
+         * La cola de salida sustituye una edición aún pendiente, por lo que no se acumulan.
+         */
+        private synchronized void flush() {
+            Supplier<String> partial = latest;
+            if (finished || partial == null) {
+                return;
+            }
+            String text = partial.get();
+            if (text == null || text.equals(shown) || !text.startsWith(committed)) {
+                return;
+            }
+            shown = text;
+            
+            String pending = text.substring(committed.length());
+            int limit = MAX_MESSAGE_LENGTH - TYPING_SUFFIX.length();
+            while (pending.length() > limit) {
+                int cut = MessageChunker.splitPoint(pending, limit);
+                String chunk = pending.substring(0, cut).stripTrailing();
+                if (!chunk.isEmpty()) {
+                    edit(chunk);
+                    current = telegramAdapter.sendTextMessageAsync(chatId, TYPING_SUFFIX.strip());
+                    continuationMessages.incrementAndGet();
+                }
+                committed = text.substring(0, committed.length() + cut);
+                pending = pending.substring(cut);
+            }
+            
+            String display = pending.strip();
+            if (!display.isEmpty()) {
+                edit(display + TYPING_SUFFIX);
+            }
+        }
+        
+        /**
+         * Deja el texto definitivo: lo que falta por fijar completa el mensaje actual y,
+         * si no cabe, el resto se envía como mensajes nuevos
+         */
+        private synchronized CompletableFuture<Void> finish(String text) {
+            finished = true;
+            String remainder;
+            if (text.startsWith(committed)) {
+                remainder = text.substring(committed.length()).strip();
+            } else {
+                // El texto definitivo no continúa el ya mostrado (p. ej. un mensaje de error)
+                logger.warn("El texto definitivo del chat {} no continúa el mostrado, se envía completo", chatId);
+                remainder = text.strip();
+            }
+            if (remainder.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            
+            int cut = MessageChunker.splitPoint(remainder, MAX_MESSAGE_LENGTH);
+            String first = remainder.substring(0, cut).stripTrailing();
+            String rest = remainder.substring(cut).strip();
+            CompletableFuture<Integer> target = current;
+            return lastEdit
+                .thenCompose(previous -> target)
+                .thenCompose(messageId -> messageId != null
+                    ? telegramAdapter.editTextMessageAsync(chatId, messageId, first)
+                    : CompletableFuture.completedFuture(false))
+                .thenAccept(edited -> {
+                    countEdit(edited);
+                    if (!edited) {
+                        logger.warn("No se pudo completar el mensaje del chat {}, se envía como mensaje nuevo", chatId);
+                        telegramAdapter.sendTextMessage(chatId, first);
+                    }
+                    if (!rest.isEmpty()) {
+                        telegramAdapter.sendTextMessage(chatId, rest);
+                    }
+                });
+        }
+        
+        /**
+         * Encola la edición del mensaje actual en cuanto se conoce su ID, detrás de las anteriores
+         */
+        private void edit(String text) {
+            CompletableFuture<Integer> target = current;
+            lastEdit = lastEdit
+                .thenCompose(previous -> target)
+                .thenAccept(messageId -> {
+                    if (messageId != null) {
+                        telegramAdapter.editTextMessageAsync(chatId, messageId, text).thenAccept(this::countEdit);
+                    }
+                })
+                .exceptionally(error -> {
+                    // Una edición parcial perdida no debe bloquear las siguientes
+                    logger.debug("Edición parcial descartada en el chat {}: {}", chatId, error.getMessage());
+                    return null;
+                });
+        }
+        
+        private void countEdit(boolean edited) {
+            if (edited) {
+                editsSent.incrementAndGet();
+            }
+        }
+    }
+    
+    /**
+     * Detiene el planificador de ediciones al cerrar la aplicación
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (editScheduler != null) {
+            editScheduler.shutdownNow();
+        }
+    }
+}
\ No newline at end of file
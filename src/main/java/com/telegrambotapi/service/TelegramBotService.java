@@ -1,16 +1,26 @@
 package com.telegrambotapi.service;
 
 import com.telegrambotapi.adapter.TelegramBotAdapter;
+import com.telegrambotapi.state.ChatState;
+import com.telegrambotapi.state.ChatStateStore;
+import com.telegrambotapi.stats.BotStatistics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.objects.Update;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Servicio principal que coordina todos los componentes del bot y maneja
@@ -30,9 +40,18 @@ public class TelegramBotService {
     @Autowired
     private SalesAdvisorService salesAdvisorService;
     
-    // Estados del servicio
-    private final Map<String, String> chatStates = new HashMap<>();
-    private final Map<String, LocalDateTime> lastActivity = new HashMap<>();
+    @Autowired
+    private StreamingReplyService streamingReplyService;
+    
+    // Estado de conversación y última actividad de cada chat
+    @Autowired
+    private ChatStateStore chatStateStore;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private BotStatistics botStatistics;
     
     // Constantes
     private static final String STATE_NORMAL = "NORMAL";
@@ -40,14 +59,65 @@ public class TelegramBotService {
     private static final String STATE_REFUND_REJECTION = "REFUND_REJECTION";
     private static final String STATE_UPSELLING = "UPSELLING";
     private static final String STATE_PURCHASE_MOTIVATION = "PURCHASE_MOTIVATION";
+    private static final String ANALYSIS_PLACEHOLDER = "⏳ Analizando la conversación...";
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+    // Comandos con etiqueta propia en las métricas; el resto se agrupa para acotar la cardinalidad
+    private static final Set<String> KNOWN_COMMANDS = Set.of(
+        "/start", "/help", "/chiste", "/rechazar_devolucion", "/upselling", "/motivar_compra",
+        "/analisis_general", "/ayuda_ventas", "/estado", "/limpiar_contexto");
+    // Comandos que se responden con texto fijo o datos locales: van por el carril rápido del despachador
+    // Solo comandos que no modifican el estado del chat: /start lo reinicia y debe ir en orden con el resto
+    private static final Set<String> INSTANT_COMMANDS = Set.of("/help", "/ayuda_ventas", "/estado");
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+    private static final String WELCOME_MESSAGE = 
+        "🤖 ¡Hola! Soy tu Asistente de IA\n\n" +
+        "🎭 En grupos: Genero chistes basados en la conversación en las pausas\n" +
+        "💼 En chats privados: Asesoro ventas analizando conversaciones\n\n" +
+        "📋 Comandos disponibles:\n" +
+        "• /help - Ver todos los comandos\n" +
+        "• /chiste - Generar chiste manual\n" +
+        "• /ayuda_ventas - Ayuda para asesoría de ventas\n" +
+        "• /estado - Ver estado del bot\n\n" +
+        "✨ ¡Empecemos!";
+    private static final String HELP_MESSAGE = 
+        "🆘 AYUDA - Comandos disponibles:\n\n" +
+        "🎭 CHISTES:\n" +
+        "• /chiste - Generar chiste manual\n" +
+        "• /limpiar_contexto - Limpiar historial de mensajes\n\n" +
+        "💼 ASESORÍA DE VENTAS:\n" +
+        "• /rechazar_devolucion - Consejos para rechazar devoluciones\n" +
+        "• /upselling - Estrategias de upselling\n" +
+        "• /motivar_compra - Técnicas de motivación\n" +
+        "• /analisis_general - Análisis general de conversación\n" +
+        "• /ayuda_ventas - Ayuda detallada de ventas\n\n" +
+        "🔧 UTILIDADES:\n" +
+        "• /estado - Estado del bot y servicios\n" +
+        "• /help - Esta ayuda\n\n" +
+        "💡 Tip: En grupos genero chistes automáticamente. " +
+        "En chats privados uso los comandos de ventas.";
+    
+    /**
+     * Indica si el texto es un comando que se responde sin la IA, sin depender
+     * de los mensajes anteriores del chat y sin modificar su estado
+     */
+    public boolean isInstantCommand(String messageText) {
+        if (messageText == null || !messageText.startsWith("/")) {
+            return false;
+        }
+        int end = messageText.indexOf(' ');
+        String cmd = end < 0 ? messageText : messageText.substring(0, end);
+        return INSTANT_COMMANDS.contains(cmd.toLowerCase());
+    }
     
     /**
-     * Procesa un update recibido de Telegram
+     * Procesa un update recibido de Telegram.
+     * Las respuestas que dependen de la IA se envían cuando la IA responde, sin bloquear al llamador.
+     * @return un futuro que se completa cuando la respuesta del update se ha enviado
      */
-    public void processUpdate(Update update) {
+    public CompletableFuture<Void> processUpdate(Update update) {
         try {
             if (!telegramAdapter.hasTextMessage(update)) {
-                return;
+                return DONE;
             }
             
             String chatId = telegramAdapter.extractChatId(update);
@@ -55,31 +125,55 @@ public class TelegramBotService {
             String userInfo = telegramAdapter.getUserInfo(update);
             
             if (chatId == null || messageText == null) {
-                return;
+                return DONE;
             }
             
             // Actualizar última actividad
-            lastActivity.put(chatId, LocalDateTime.now());
+            chatStateStore.update(chatId, ChatState::touch);
             
             logger.info("Procesando mensaje de {}: {}", 
                        userInfo, messageText.substring(0, Math.min(50, messageText.length())));
             
             // Procesar comando o mensaje normal
-            if (messageText.startsWith("/")) {
-                processCommand(chatId, messageText, userInfo);
-            } else {
-                processNormalMessage(chatId, messageText, userInfo);
-            }
+            long startNanos = System.nanoTime();
+            CompletableFuture<Void> reply = messageText.startsWith("/")
+                ? processCommand(chatId, messageText, userInfo)
+                : processNormalMessage(chatId, messageText, userInfo, telegramAdapter.isGroupMessage(update));
             
+            return reply.exceptionally(error -> {
+                logger.error("Error procesando update: {}", error.getMessage(), error);
+                return null;
+            }).whenComplete((result, error) -> recordCommandLatency(messageText, startNanos));
+        
         } catch (Exception e) {
             logger.error("Error procesando update: {}", e.getMessage(), e);
+            return DONE;
         }
     }
     
+    /**
+     * Registra el tiempo hasta que la respuesta del mensaje quedó enviada o encolada
+     */
+    private void recordCommandLatency(String messageText, long startNanos) {
+        String command = "mensaje";
+        if (messageText.startsWith("/")) {
+            String cmd = messageText.split(" ", 2)[0].toLowerCase();
+            command = KNOWN_COMMANDS.contains(cmd) ? cmd : "desconocido";
+        }
+        long durationNanos = System.nanoTime() - startNanos;
+        botStatistics.recordCommand(command, durationNanos);
+        Timer.builder("bot.command.duration")
+            .description("Tiempo de procesamiento por comando")
+            .tag("comando", command)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+    
     /**
      * Procesa comandos del bot
      */
-    private void processCommand(String chatId, String command, String userInfo) {
+    private CompletableFuture<Void> processCommand(String chatId, String command, String userInfo) {
         String[] parts = command.split(" ", 2);
         String cmd = parts[0].toLowerCase();
         String argument = parts.length > 1 ? parts[1] : "";
@@ -87,58 +181,53 @@ public class TelegramBotService {
         switch (cmd) {
             case "/start":
                 handleStartCommand(chatId);
-                break;
+                return DONE;
             case "/help":
                 handleHelpCommand(chatId);
-                break;
+                return DONE;
             case "/chiste":
-                handleJokeCommand(chatId);
-                break;
+                return handleJokeCommand(chatId);
             case "/rechazar_devolucion":
-                handleRefundRejectionCommand(chatId, argument);
-                break;
+                return handleRefundRejectionCommand(chatId, argument);
             case "/upselling":
-                handleUpsellingCommand(chatId, argument);
-                break;
+                return handleUpsellingCommand(chatId, argument);
             case "/motivar_compra":
-                handlePurchaseMotivationCommand(chatId, argument);
-                break;
+                return handlePurchaseMotivationCommand(chatId, argument);
             case "/analisis_general":
                 handleGeneralAnalysisCommand(chatId, argument);
-                break;
+                return DONE;
             case "/ayuda_ventas":
                 handleSalesHelpCommand(chatId);
-                break;
+                return DONE;
             case "/estado":
                 handleStatusCommand(chatId);
-                break;
+                return DONE;
             case "/limpiar_contexto":
                 handleClearContextCommand(chatId);
-                break;
+                return DONE;
             default:
                 handleUnknownCommand(chatId, cmd);
+                return DONE;
         }
     }
     
     /**
      * Procesa mensajes normales (no comandos)
      */
-    private void processNormalMessage(String chatId, String messageText, String userInfo) {
-        String currentState = chatStates.getOrDefault(chatId, STATE_NORMAL);
+    private CompletableFuture<Void> processNormalMessage(String chatId, String messageText, String userInfo,
+                                                         boolean groupMessage) {
+        String currentState = chatStateStore.read(chatId, ChatState::getConversationState, STATE_NORMAL);
         
         switch (currentState) {
             case STATE_REFUND_REJECTION:
-                processConversationForRefundRejection(chatId, messageText);
-                break;
+                return processConversationForRefundRejection(chatId, messageText);
             case STATE_UPSELLING:
-                processConversationForUpselling(chatId, messageText);
-                break;
+                return processConversationForUpselling(chatId, messageText);
             case STATE_PURCHASE_MOTIVATION:
-                processConversationForPurchaseMotivation(chatId, messageText);
-                break;
+                return processConversationForPurchaseMotivation(chatId, messageText);
             case STATE_NORMAL:
             default:
-                processNormalGroupMessage(chatId, messageText, userInfo);
+                return processNormalGroupMessage(chatId, messageText, userInfo, groupMessage);
         }
     }
     
@@ -146,138 +235,114 @@ public class TelegramBotService {
      * Maneja el comando /start
      */
     private void handleStartCommand(String chatId) {
-        String welcomeMessage = 
-            "🤖 ¡Hola! Soy tu Asistente de IA\n\n" +
-            "🎭 En grupos: Genero chistes basados en la conversación cada 3-4 mensajes\n" +
-            "💼 En chats privados: Asesoro ventas analizando conversaciones\n\n" +
-            "📋 Comandos disponibles:\n" +
-            "• /help - Ver todos los comandos\n" +
-            "• /chiste - Generar chiste manual\n" +
-            "• /ayuda_ventas - Ayuda para asesoría de ventas\n" +
-            "• /estado - Ver estado del bot\n\n" +
-            "✨ ¡Empecemos!";
-        
-        telegramAdapter.sendTextMessage(chatId, welcomeMessage);
-        chatStates.put(chatId, STATE_NORMAL);
+        telegramAdapter.sendTextMessage(chatId, WELCOME_MESSAGE);
+        setConversationState(chatId, STATE_NORMAL);
     }
     
     /**
      * Maneja el comando /help
      */
     private void handleHelpCommand(String chatId) {
-        String helpMessage = 
-            "🆘 AYUDA - Comandos disponibles:\n\n" +
-            "🎭 CHISTES:\n" +
-            "• /chiste - Generar chiste manual\n" +
-            "• /limpiar_contexto - Limpiar historial de mensajes\n\n" +
-            "💼 ASESORÍA DE VENTAS:\n" +
-            "• /rechazar_devolucion - Consejos para rechazar devoluciones\n" +
-            "• /upselling - Estrategias de upselling\n" +
-            "• /motivar_compra - Técnicas de motivación\n" +
-            "• /analisis_general - Análisis general de conversación\n" +
-            "• /ayuda_ventas - Ayuda detallada de ventas\n\n" +
-            "🔧 UTILIDADES:\n" +
-            "• /estado - Estado del bot y servicios\n" +
-            "• /help - Esta ayuda\n\n" +
-            "💡 Tip: En grupos genero chistes automáticamente. " +
-            "En chats privados uso los comandos de ventas.";
-        
-        telegramAdapter.sendTextMessage(chatId, helpMessage);
+        telegramAdapter.sendTextMessage(chatId, HELP_MESSAGE);
     }
     
     /**
      * Maneja comando de chiste manual
      */
-    private void handleJokeCommand(String chatId) {
+    private CompletableFuture<Void> handleJokeCommand(String chatId) {
         if (jokeBotService.isServiceAvailable()) {
-            String joke = jokeBotService.generateManualJoke(chatId);
-            telegramAdapter.sendTextMessage(chatId, joke);
-        } else {
-            telegramAdapter.sendTextMessage(chatId, 
-                "😅 El servicio de chistes no está disponible en este momento.");
+            return jokeBotService.generateManualJokeAsync(chatId)
+                .thenAccept(joke -> telegramAdapter.sendTextMessage(chatId, joke));
         }
+        
+        telegramAdapter.sendTextMessage(chatId, 
+            "😅 El servicio de chistes no está disponible en este momento.");
+        return DONE;
     }
     
     /**
      * Maneja comando de rechazo de devolución
      */
-    private void handleRefundRejectionCommand(String chatId, String conversation) {
+    private CompletableFuture<Void> handleRefundRejectionCommand(String chatId, String conversation) {
         if (conversation.trim().isEmpty()) {
             telegramAdapter.sendTextMessage(chatId, 
                 "📝 Envía la conversación cliente-vendedor después del comando.\n" +
                 "Ejemplo: /rechazar_devolucion Cliente: Quiero devolver... Vendedor: ...");
-            chatStates.put(chatId, STATE_REFUND_REJECTION);
-        } else {
-            processConversationForRefundRejection(chatId, conversation);
+            setConversationState(chatId, STATE_REFUND_REJECTION);
+            return DONE;
         }
+        return processConversationForRefundRejection(chatId, conversation);
     }
     
     /**
      * Procesa conversación para rechazo de devolución
      */
-    private void processConversationForRefundRejection(String chatId, String conversation) {
+    private CompletableFuture<Void> processConversationForRefundRejection(String chatId, String conversation) {
+        setConversationState(chatId, STATE_NORMAL);
         if (salesAdvisorService.isValidConversation(conversation)) {
-            String advice = salesAdvisorService.analyzeForRefundRejection(conversation, chatId);
-            telegramAdapter.sendTextMessage(chatId, advice);
-        } else {
-            telegramAdapter.sendTextMessage(chatId, 
-                "❌ Conversación inválida. Debe tener entre 50 y 10,000 caracteres.");
+            return streamingReplyService.reply(chatId, ANALYSIS_PLACEHOLDER, onPartial ->
+                salesAdvisorService.analyzeForRefundRejectionAsync(conversation, chatId, onPartial));
         }
-        chatStates.put(chatId, STATE_NORMAL);
+        
+        telegramAdapter.sendTextMessage(chatId, 
+            "❌ Conversación inválida. Debe tener entre 50 y 10,000 caracteres.");
+        return DONE;
     }
     
     /**
      * Maneja comando de upselling
      */
-    private void handleUpsellingCommand(String chatId, String conversation) {
+    private CompletableFuture<Void> handleUpsellingCommand(String chatId, String conversation) {
         if (conversation.trim().isEmpty()) {
             telegramAdapter.sendTextMessage(chatId, 
                 "📝 Envía la conversación cliente-vendedor después del comando.");
-            chatStates.put(chatId, STATE_UPSELLING);
-        } else {
-            processConversationForUpselling(chatId, conversation);
+            setConversationState(chatId, STATE_UPSELLING);
+            return DONE;
         }
+        return processConversationForUpselling(chatId, conversation);
     }
     
     /**
      * Procesa conversación para upselling
      */
-    private void processConversationForUpselling(String chatId, String conversation) {
+    private CompletableFuture<Void> processConversationForUpselling(String chatId, String conversation) {
+        setConversationState(chatId, STATE_NORMAL);
         if (salesAdvisorService.isValidConversation(conversation)) {
-            String advice = salesAdvisorService.analyzeForUpselling(conversation, chatId);
-            telegramAdapter.sendTextMessage(chatId, advice);
-        } else {
-            telegramAdapter.sendTextMessage(chatId, 
-                "❌ Conversación inválida. Debe tener entre 50 y 10,000 caracteres.");
+            return streamingReplyService.reply(chatId, ANALYSIS_PLACEHOLDER, onPartial ->
+                salesAdvisorService.analyzeForUpsellingAsync(conversation, chatId, onPartial));
         }
-        chatStates.put(chatId, STATE_NORMAL);
+        
+        telegramAdapter.sendTextMessage(chatId, 
+            "❌ Conversación inválida. Debe tener entre 50 y 10,000 caracteres.");
+        return DONE;
     }
     
     /**
      * Maneja comando de motivación de compra
      */
-    private void handlePurchaseMotivationCommand(String chatId, String conversation) {
+    private CompletableFuture<Void> handlePurchaseMotivationCommand(String chatId, String conversation) {
         if (conversation.trim().isEmpty()) {
             telegramAdapter.sendTextMessage(chatId, 
                 "📝 Envía la conversación cliente-vendedor después del comando.");
-            chatStates.put(chatId, STATE_PURCHASE_MOTIVATION);
-        } else {
-            processConversationForPurchaseMotivation(chatId, conversation);
+            setConversationState(chatId, STATE_PURCHASE_MOTIVATION);
+            return DONE;
         }
+        return processConversationForPurchaseMotivation(chatId, conversation);
     }
     
     /**
      * Procesa conversación para motivación de compra
      */
-    private void processConversationForPurchaseMotivation(String chatId, String conversation) {
+    private CompletableFuture<Void> processConversationForPurchaseMotivation(String chatId, String conversation) {
+        setConversationState(chatId, STATE_NORMAL);
         if (salesAdvisorService.isValidConversation(conversation)) {
-            String advice = salesAdvisorService.analyzeForPurchaseMotivation(conversation, chatId);
-            telegramAdapter.sendTextMessage(chatId, advice);
-        } else {
-            telegramAdapter.sendTextMessage(chatId, 
-                "❌ Conversación inválida. Debe tener entre 50 y 10,000 caracteres.");
+            return streamingReplyService.reply(chatId, ANALYSIS_PLACEHOLDER, onPartial ->
+                salesAdvisorService.analyzeForPurchaseMotivationAsync(conversation, chatId, onPartial));
         }
-        chatStates.put(chatId, STATE_NORMAL);
+        
+        telegramAdapter.sendTextMessage(chatId, 
+            "❌ Conversación inválida. Debe tener entre 50 y 10,000 caracteres.");
+        return DONE;
     }
     
     /**
@@ -308,8 +373,9 @@ public class TelegramBotService {
      * Maneja comando de estado
      */
     private void handleStatusCommand(String chatId) {
-        Map<String, Object> jokeStats = jokeBotService.getStatistics();
-        Map<String, Object> salesStats = salesAdvisorService.getStatistics();
+        // Instantánea periódica: recorrer todos los chats en cada /estado competiría con los mensajes
+        Map<String, Object> jokeStats = botStatistics.getSection("jokes", jokeBotService::getStatistics);
+        Map<String, Object> salesStats = botStatistics.getSection("sales", salesAdvisorService::getStatistics);
         
         String status = String.format(
             "🔧 ESTADO DEL BOT\n\n" +
@@ -326,7 +392,7 @@ public class TelegramBotService {
             jokeStats.get("mensajesTotales"),
             salesAdvisorService.isServiceAvailable() ? "✅ Activo" : "❌ Inactivo",
             salesStats.get("totalConsejos"),
-            LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"))
+            LocalDateTime.now().format(TIMESTAMP_FORMAT)
         );
         
         telegramAdapter.sendTextMessage(chatId, status);
@@ -337,7 +403,7 @@ public class TelegramBotService {
      */
     private void handleClearContextCommand(String chatId) {
         jokeBotService.clearChatContext(chatId);
-        chatStates.put(chatId, STATE_NORMAL);
+        setConversationState(chatId, STATE_NORMAL);
         telegramAdapter.sendTextMessage(chatId, 
             "🧹 Contexto limpiado. El historial de mensajes se ha reiniciado.");
     }
@@ -354,35 +420,46 @@ public class TelegramBotService {
     /**
      * Procesa mensajes normales en grupos (para chistes automáticos)
      */
-    private void processNormalGroupMessage(String chatId, String messageText, String userInfo) {
+    private CompletableFuture<Void> processNormalGroupMessage(String chatId, String messageText, String userInfo,
+                                                              boolean groupMessage) {
         // Solo procesar chistes automáticos en grupos
-        if (telegramAdapter.isGroupMessage(createUpdateFromInfo(chatId, messageText))) {
-            String joke = jokeBotService.processMessage(chatId, messageText, userInfo);
-            if (joke != null) {
-                telegramAdapter.sendTextMessage(chatId, joke);
-            }
+        if (groupMessage) {
+            // El chiste lo envía el planificador de JokeBotService tras una pausa en la conversación
+            jokeBotService.processMessage(chatId, messageText, userInfo);
         }
+        return DONE;
     }
     
     /**
-     * Crea un update simulado para verificaciones
+     * Cambia el estado de conversación del chat
      */
-    private Update createUpdateFromInfo(String chatId, String messageText) {
-        // Implementación simplificada para verificar si es grupo
-        // En una implementación real, se mantendría el Update original
-        return new Update();
+    private void setConversationState(String chatId, String state) {
+        chatStateStore.update(chatId, chatState -> chatState.setConversationState(state));
     }
     
     /**
      * Obtiene estadísticas generales del servicio
      */
     public Map<String, Object> getServiceStatistics() {
+        // Agregados en lugar de mapas por chat: con miles de chats la respuesta debe seguir acotada
+        Map<String, Integer> stateCounts = new HashMap<>();
+        long[] latestActivity = {0};
+        chatStateStore.forEach((chatId, chatState) -> {
+            String state = chatState.getConversationState() != null ? chatState.getConversationState() : STATE_NORMAL;
+            stateCounts.merge(state, 1, Integer::sum);
+            latestActivity[0] = Math.max(latestActivity[0], chatState.getLastActivityMillis());
+        });
+        
         Map<String, Object> stats = new HashMap<>();
-        stats.put("chatsActivos", chatStates.size());
-        stats.put("estadosActivos", chatStates);
+        stats.put("chatsActivos", chatStateStore.size());
+        stats.put("estadosActivos", stateCounts);
         stats.put("servicioChistes", jokeBotService.getStatistics());
         stats.put("servicioVentas", salesAdvisorService.getStatistics());
-        stats.put("ultimaActividad", lastActivity);
+        stats.put("ultimaActividad", latestActivity[0] > 0
+            ? LocalDateTime.ofInstant(Instant.ofEpochMilli(latestActivity[0]), ZoneId.systemDefault())
+                .format(TIMESTAMP_FORMAT)
+            : null);
+        stats.put("almacenEstado", chatStateStore.getStatistics());
         
         return stats;
     }
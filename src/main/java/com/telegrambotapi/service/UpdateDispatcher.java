@@ -0,0 +1,277 @@
+package com.telegrambotapi.service;
+
+import com.telegrambotapi.adapter.TelegramBotAdapter;
+import com.telegrambotapi.config.ConfigurationManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Despacha los updates de Telegram a un pool acotado de hilos.
+ * Los updates de chats distintos se procesan en paralelo, mientras que los de un mismo chat
+ * pasan por una cola serie: el siguiente update no empieza hasta que la respuesta del anterior
+ * se ha enviado, sin ocupar un hilo mientras la IA responde.
+ * Los comandos instantáneos (textos fijos y datos locales) no entran en la cola de su chat:
+ * van a un carril rápido con hilos propios, de modo que nunca esperan detrás de una respuesta
+ * de la IA. El resto comparte un carril con un máximo de respuestas en curso.
+ */
+@Service
+public class UpdateDispatcher {
+    
+    private static final Logger logger = LoggerFactory.getLogger(UpdateDispatcher.class);
+    private static final String NO_CHAT_KEY = "_sin_chat";
+    
+    @Autowired
+    private ConfigurationManager config;
+    
+    @Autowired
+    private TelegramBotService telegramBotService;
+    
+    @Autowired
+    private TelegramBotAdapter telegramAdapter;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private ExecutorService executor;
+    private ExecutorService fastExecutor;
+    private ExecutionLane aiLane;
+    private ExecutionLane fastLane;
+    private Counter acceptedUpdates;
+    private Counter rejectedUpdates;
+    
+    // Cola serie por chat; todas sus mutaciones ocurren dentro de compute() sobre la clave del chat
+    private final Map<String, ChatQueue> chatQueues = new ConcurrentHashMap<>();
+    private final AtomicInteger totalPending = new AtomicInteger();
+    private final AtomicLong dispatchedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private volatile long lastUpdateMillis;
+    
+    /**
+     * Updates pendientes de un chat y si ya hay un procesamiento en curso para él
+     */
+    private static final class ChatQueue {
+        private final Deque<Update> pending = new ArrayDeque<>();
+        private boolean running;
+    }
+    
+    /**
+     * Crea el pool de hilos de procesamiento
+     */
+    @PostConstruct
+    public void initialize() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, config.getDispatcherThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "update-dispatcher-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        aiLane = new ExecutionLane("ia", config.getDispatcherAiLaneMaxConcurrent(), executor);
+        
+        int fastThreads = Math.max(1, config.getDispatcherFastLaneThreads());
+        AtomicInteger fastThreadCounter = new AtomicInteger();
+        fastExecutor = Executors.newFixedThreadPool(fastThreads, runnable -> {
+            Thread thread = new Thread(runnable, "update-fast-" + fastThreadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        fastLane = new ExecutionLane("rapido", fastThreads, fastExecutor);
+        
+        acceptedUpdates = Counter.builder("bot.updates")
+            .description("Updates recibidos de Telegram")
+            .tag("resultado", "aceptado")
+            .register(meterRegistry);
+        rejectedUpdates = Counter.builder("bot.updates")
+            .description("Updates recibidos de Telegram")
+            .tag("resultado", "descartado")
+            .register(meterRegistry);
+        Gauge.builder("bot.dispatcher.pending", totalPending, AtomicInteger::get)
+            .description("Updates en espera de procesamiento")
+            .register(meterRegistry);
+        Gauge.builder("bot.dispatcher.lane.active", aiLane, ExecutionLane::getActiveCount)
+            .description("Updates en curso por carril")
+            .tag("carril", "ia")
+            .register(meterRegistry);
+        Gauge.builder("bot.dispatcher.lane.active", fastLane, ExecutionLane::getActiveCount)
+            .description("Updates en curso por carril")
+            .tag("carril", "rapido")
+            .register(meterRegistry);
+        
+        // El hilo de long polling solo encola: nunca espera a la IA
+        telegramAdapter.setUpdateHandler(this::dispatch);
+        logger.info("Despachador de updates inicializado con {} hilos, {} respuestas de IA en curso y {} hilos rápidos",
+                   config.getDispatcherThreads(), aiLane.getMaxConcurrent(), fastThreads);
+    }
+    
+    /**
+     * Encola un update para su procesamiento respetando el orden de su chat
+     * @param update el update recibido de Telegram
+     * @return true si el update se aceptó, false si se descartó por superar los límites de cola
+     */
+    public boolean dispatch(Update update) {
+        String chatId = telegramAdapter.extractChatId(update);
+        String key = chatId != null ? chatId : NO_CHAT_KEY;
+        lastUpdateMillis = System.currentTimeMillis();
+        
+        if (totalPending.incrementAndGet() > config.getDispatcherMaxPendingTotal()) {
+            totalPending.decrementAndGet();
+            reject(update, key, "cola global llena");
+            return false;
+        }
+        
+        if (telegramBotService.isInstantCommand(telegramAdapter.extractMessageText(update))) {
+            acceptedUpdates.increment();
+            fastLane.submit(() -> process(update));
+            return true;
+        }
+        
+        boolean[] accepted = {false};
+        boolean[] startDrain = {false};
+        chatQueues.compute(key, (id, queue) -> {
+            ChatQueue chatQueue = queue != null ? queue : new ChatQueue();
+            if (chatQueue.pending.size() < config.getDispatcherMaxPendingPerChat()) {
+                chatQueue.pending.addLast(update);
+                accepted[0] = true;
+                if (!chatQueue.running) {
+                    chatQueue.running = true;
+                    startDrain[0] = true;
+                }
+            }
+            return chatQueue;
+        });
+        
+        if (!accepted[0]) {
+            totalPending.decrementAndGet();
+            reject(update, key, "cola del chat llena");
+            return false;
+        }
+        
+        acceptedUpdates.increment();
+        if (startDrain[0]) {
+            scheduleNext(key);
+        }
+        return true;
+    }
+    
+    /**
+     * Programa el siguiente update del chat en el carril de IA
+     */
+    private void scheduleNext(String key) {
+        aiLane.submit(() -> runNext(key));
+    }
+    
+    /**
+     * Procesa el siguiente update pendiente del chat y, al terminar su respuesta, continúa con el resto
+     * @return un futuro que se completa cuando la respuesta del update se ha enviado
+     */
+    private CompletableFuture<Void> runNext(String key) {
+        Update[] next = {null};
+        chatQueues.computeIfPresent(key, (id, queue) -> {
+            next[0] = queue.pending.pollFirst();
+            // Sin trabajo pendiente: se elimina la cola y el chat queda libre
+            return next[0] != null ? queue : null;
+        });
+        
+        if (next[0] == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        CompletableFuture<Void> completion = process(next[0]);
+        completion.whenComplete((result, error) -> scheduleNext(key));
+        return completion;
+    }
+    
+    /**
+     * Procesa un update ya retirado de la espera
+     */
+    private CompletableFuture<Void> process(Update update) {
+        totalPending.decrementAndGet();
+        dispatchedCount.incrementAndGet();
+        try {
+            return telegramBotService.processUpdate(update);
+        } catch (Exception e) {
+            logger.error("Error procesando update {}: {}", update.getUpdateId(), e.getMessage(), e);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+    
+    /**
+     * Registra un update descartado por contrapresión
+     */
+    private void reject(Update update, String key, String reason) {
+        rejectedCount.incrementAndGet();
+        rejectedUpdates.increment();
+        logger.warn("Update {} del chat {} descartado: {}", update.getUpdateId(), key, reason);
+    }
+    
+    /**
+     * Obtiene el número total de updates en espera
+     */
+    public int getPendingCount() {
+        return totalPending.get();
+    }
+    
+    /**
+     * Momento (epoch ms) del último update recibido, o 0 si aún no llegó ninguno
+     */
+    public long getLastUpdateMillis() {
+        return lastUpdateMillis;
+    }
+    
+    /**
+     * Obtiene estadísticas del despachador
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hilos", config.getDispatcherThreads());
+        stats.put("updatesPendientes", totalPending.get());
+        stats.put("chatsEnProceso", chatQueues.size());
+        stats.put("updatesProcesados", dispatchedCount.get());
+        stats.put("updatesDescartados", rejectedCount.get());
+        stats.put("carrilIaEnCurso", aiLane.getActiveCount());
+        stats.put("carrilIaEnEspera", aiLane.getWaitingCount());
+        stats.put("carrilRapidoEnCurso", fastLane.getActiveCount());
+        stats.put("carrilRapidoEnEspera", fastLane.getWaitingCount());
+        return stats;
+    }
+    
+    /**
+     * Detiene los pools dando un margen a los updates en curso
+     */
+    @PreDestroy
+    public void shutdown() {
+        shutdownPool(fastExecutor);
+        shutdownPool(executor);
+    }
+    
+    private static void shutdownPool(ExecutorService pool) {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(5, TimeUnit.SECONDS)) {
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
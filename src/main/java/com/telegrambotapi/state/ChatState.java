@@ -0,0 +1,127 @@
+package com.telegrambotapi.state;
+
+/**
+ * Estado en memoria de un chat: estado de conversación del bot, última actividad
+ * y contexto de mensajes usado para los chistes.
+ * Solo debe leerse o modificarse dentro de las operaciones de {@link ChatStateStore},
+ * que lo protegen con el lock de su fragmento.
+ */
+public class ChatState {
+    
+    // Tamaño aproximado de un estado vacío (objeto, entrada del mapa y clave)
+    private static final long BASE_SIZE_BYTES = 192;
+    private static final long MESSAGE_OVERHEAD_BYTES = 56;
+    private static final long SLOT_SIZE_BYTES = 8;
+    
+    private String conversationState;
+    private long lastActivityMillis;
+    // Se crea con el primer mensaje: los chats privados de ventas no lo necesitan
+    private MessageRingBuffer messages;
+    private int messageCount;
+    
+    ChatState() {
+        this.lastActivityMillis = System.currentTimeMillis();
+    }
+    
+    /**
+     * Reconstruye un estado persistido por {@link ChatStateJournal}
+     */
+    ChatState(String conversationState, long lastActivityMillis, int messageCount, MessageRingBuffer messages) {
+        this.conversationState = conversationState;
+        this.lastActivityMillis = lastActivityMillis;
+        this.messageCount = messageCount;
+        this.messages = messages;
+    }
+    
+    /**
+     * Registra actividad del usuario en el chat
+     */
+    public void touch() {
+        lastActivityMillis = System.currentTimeMillis();
+    }
+    
+    public String getConversationState() {
+        return conversationState;
+    }
+    
+    public void setConversationState(String conversationState) {
+        this.conversationState = conversationState;
+    }
+    
+    public long getLastActivityMillis() {
+        return lastActivityMillis;
+    }
+    
+    /**
+     * Agrega un mensaje al contexto, descartando el más antiguo si se supera el máximo
+     */
+    public void addMessage(String message, int maxMessages) {
+        if (messages == null || messages.capacity() != maxMessages) {
+            MessageRingBuffer resized = new MessageRingBuffer(maxMessages);
+            if (messages != null) {
+                for (int i = 0; i < messages.size(); i++) {
+                    resized.add(messages.get(i));
+                }
+            }
+            messages = resized;
+        }
+        messages.add(message);
+    }
+    
+    /**
+     * Indica si el chat tiene mensajes en su contexto
+     */
+    public boolean hasMessages() {
+        return messages != null && !messages.isEmpty();
+    }
+    
+    /**
+     * Construye el contexto priorizando los mensajes más recientes dentro del presupuesto.
+     * El resultado se reutiliza mientras no lleguen mensajes nuevos.
+     * @param maxChars presupuesto máximo de caracteres
+     * @return el contexto en orden cronológico, o una cadena vacía si no hay mensajes
+     */
+    public String buildContext(int maxChars) {
+        return messages != null ? messages.buildContext(maxChars) : "";
+    }
+    
+    /**
+     * Contexto de mensajes, o null si el chat aún no tiene ninguno (para la persistencia)
+     */
+    MessageRingBuffer getMessages() {
+        return messages;
+    }
+    
+    public int incrementMessageCount() {
+        return ++messageCount;
+    }
+    
+    public int getMessageCount() {
+        return messageCount;
+    }
+    
+    public void resetMessageCount() {
+        messageCount = 0;
+    }
+    
+    /**
+     * Limpia el contexto de mensajes y el contador de chistes
+     */
+    public void clearConversationContext() {
+        if (messages != null) {
+            messages.clear();
+        }
+        messageCount = 0;
+    }
+    
+    /**
+     * Estima la memoria ocupada por este estado, usada para el presupuesto del almacén
+     */
+    long estimateSizeBytes() {
+        if (messages == null) {
+            return BASE_SIZE_BYTES;
+        }
+        return BASE_SIZE_BYTES + SLOT_SIZE_BYTES * messages.capacity()
+               + MESSAGE_OVERHEAD_BYTES * messages.size() + 2L * messages.getTotalChars();
+    }
+}
\ No newline at end of file
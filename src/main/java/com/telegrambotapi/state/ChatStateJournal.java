@@ -0,0 +1,421 @@
+package com.telegrambotapi.state;
+
+import com.telegrambotapi.config.ConfigurationManager;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Persistencia del {@link ChatStateStore} en disco, para que reinicios y despliegues no borren
+ * los contextos de los grupos ni los estados de conversación pendientes.
+ * <p>
+ * El almacén solo anota qué chats cambian (una inserción en un conjunto concurrente); un hilo
+ * propio escribe cada {@code flush-interval-ms} el estado completo de esos chats en un diario de
+ * solo anexado mapeado en memoria y lo fuerza a disco una vez por lote. Varios cambios del mismo
+ * chat dentro de un lote se escriben como un único registro.
+ * <p>
+ * Cuando el diario supera el umbral de compactación (y al apagar) se rota a un diario nuevo y se
+ * escribe un snapshot con todos los chats, que sustituye al anterior de forma atómica; los
+ * diarios anteriores al snapshot se borran. Al arrancar se carga el snapshot y se reproducen
+ * los diarios posteriores; un registro cortado por una caída termina la reproducción.
+ */
+@Component
+public class ChatStateJournal {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChatStateJournal.class);
+    
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final String SNAPSHOT_TEMP_FILE = "snapshot.tmp";
+    private static final Pattern JOURNAL_FILE = Pattern.compile("journal-(\\d+)\\.log");
+    private static final int FORMAT_VERSION = 1;
+    
+    private static final byte RECORD_HEADER = 0;
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_DELETE = 2;
+    
+    @Autowired
+    private ConfigurationManager config;
+    
+    @Autowired
+    private ChatStateStore chatStateStore;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final Set<String> dirtyChats = ConcurrentHashMap.newKeySet();
+    private Path directory;
+    private int regionBytes;
+    private long compactionThresholdBytes;
+    private ScheduledExecutorService flusher;
+    private Timer flushTimer;
+    
+    // Solo los usa el hilo de escritura (o el de arranque/apagado, con el hilo detenido)
+    private MappedRecordFile journal;
+    private long generation;
+    
+    /**
+     * Restaura el estado guardado y arranca el hilo de escritura
+     */
+    @PostConstruct
+    public void initialize() {
+        if (!config.isPersistenceEnabled()) {
+            logger.info("Persistencia del estado de chats desactivada");
+            return;
+        }
+        
+        directory = Paths.get(config.getPersistenceDir());
+        regionBytes = Math.max(1, config.getPersistenceRegionMb()) * 1024 * 1024;
+        compactionThresholdBytes = Math.max(1L, config.getPersistenceCompactionThresholdMb()) * 1024 * 1024;
+        try {
+            Files.createDirectories(directory);
+            long start = System.nanoTime();
+            int restored = recover();
+            // Parte de un snapshot limpio: el diario nuevo empieza vacío
+            compact();
+            logger.info("Estado de chats restaurado desde {}: {} chats en {} ms", directory.toAbsolutePath(),
+                       restored, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo inicializar la persistencia en " + directory, e);
+        }
+        
+        chatStateStore.setChangeListener(dirtyChats::add);
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-state-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, config.getPersistenceFlushIntervalMs());
+        flusher.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+        
+        Gauge.builder("bot.journal.pending", dirtyChats, Set::size)
+            .description("Chats modificados pendientes de escribir en el diario")
+            .register(meterRegistry);
+        Gauge.builder("bot.journal.size", this, ChatStateJournal::getJournalBytes)
+            .description("Tamaño del diario actual")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        flushTimer = Timer.builder("bot.journal.flush.duration")
+            .description("Duración de cada lote de escritura del diario, incluida la compactación")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Escribe en el diario los chats modificados desde el último lote
+     */
+    private void flushSafely() {
+        try {
+            flushTimer.record(() -> {
+                try {
+                    flush();
+                    if (journal.size() >= compactionThresholdBytes) {
+                        compact();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Los chats siguen marcados y se reintentan en el siguiente lote
+            logger.error("Error escribiendo el diario de estado de chats", e);
+        }
+    }
+    
+    private void flush() throws IOException {
+        if (dirtyChats.isEmpty()) {
+            return;
+        }
+        
+        int written = 0;
+        Iterator<String> iterator = dirtyChats.iterator();
+        while (iterator.hasNext()) {
+            String chatId = iterator.next();
+            // Se desmarca antes de leer: un cambio posterior lo vuelve a marcar para el siguiente lote
+            iterator.remove();
+            byte[] record = chatStateStore.read(chatId, state -> encodePut(chatId, state), null);
+            try {
+                journal.append(record != null ? record : encodeDelete(chatId));
+            } catch (IOException e) {
+                dirtyChats.add(chatId);
+                throw e;
+            }
+            written++;
+        }
+        journal.force();
+        logger.debug("Diario de estado: {} chats escritos", written);
+    }
+    
+    /**
+     * Rota a un diario nuevo, escribe un snapshot con todos los chats y borra los diarios anteriores.
+     * El estado en memoria incluye todo lo escrito en los diarios previos, y los cambios
+     * posteriores a la rotación van al diario nuevo, que se reproduce tras el snapshot.
+     */
+    private void compact() throws IOException {
+        long start = System.nanoTime();
+        if (journal != null) {
+            journal.close();
+        }
+        generation++;
+        journal = MappedRecordFile.create(directory.resolve(journalFileName(generation)), regionBytes);
+        
+        Path temp = directory.resolve(SNAPSHOT_TEMP_FILE);
+        Files.deleteIfExists(temp);
+        // Se codifica bajo el lock de cada fragmento y se escribe fuera de él
+        List<byte[]> records = new ArrayList<>();
+        chatStateStore.forEach((chatId, state) -> records.add(encodePut(chatId, state)));
+        try (MappedRecordFile snapshot = MappedRecordFile.create(temp, regionBytes)) {
+            snapshot.append(encodeHeader(generation));
+            for (byte[] record : records) {
+                snapshot.append(record);
+            }
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT_FILE),
+                   StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // El snapshot y el diario nuevo deben constar en disco antes de borrar los diarios que sustituyen
+        syncDirectory();
+        
+        for (Map.Entry<Long, Path> old : listJournals().entrySet()) {
+            if (old.getKey() < generation) {
+                Files.deleteIfExists(old.getValue());
+            }
+        }
+        logger.info("Snapshot del estado de chats escrito: {} chats en {} ms (diario {})",
+                   records.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), generation);
+    }
+    
+    private void syncDirectory() {
+        try {
+            MappedRecordFile.syncDirectory(directory);
+        } catch (IOException e) {
+            // Algunos sistemas (p. ej. Windows) no permiten abrir un directorio para sincronizarlo
+            logger.debug("No se pudo sincronizar el directorio {}: {}", directory, e.getMessage());
+        }
+    }
+    
+    /**
+     * Carga el snapshot y reproduce los diarios posteriores
+     * @return número de chats restaurados
+     */
+    private int recover() throws IOException {
+        Map<String, ChatState> states = new LinkedHashMap<>();
+        long snapshotGeneration = 0;
+        
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            long[] header = {0};
+            boolean clean = MappedRecordFile.readAll(snapshot, record -> {
+                byte type = record.get();
+                if (type == RECORD_HEADER) {
+                    int version = record.getInt();
+                    if (version != FORMAT_VERSION) {
+                        throw new IllegalStateException("Versión de snapshot no soportada: " + version);
+                    }
+                    header[0] = record.getLong();
+                } else {
+                    apply(type, record, states);
+                }
+            });
+            if (!clean) {
+                // El snapshot se escribe aparte y se renombra al terminar: no debería estar cortado
+                logger.warn("Snapshot {} incompleto; se restauran los registros íntegros", snapshot);
+            }
+            snapshotGeneration = header[0];
+        }
+        
+        Map<Long, Path> journals = listJournals();
+        for (Map.Entry<Long, Path> entry : journals.entrySet()) {
+            generation = Math.max(generation, entry.getKey());
+            if (entry.getKey() < snapshotGeneration) {
+                continue;
+            }
+            boolean clean = MappedRecordFile.readAll(entry.getValue(), record -> apply(record.get(), record, states));
+            if (!clean) {
+                logger.warn("Diario {} cortado (probable caída); se restaura hasta el último registro íntegro",
+                           entry.getValue().getFileName());
+            }
+        }
+        generation = Math.max(generation, snapshotGeneration);
+        
+        // Los chats que ya superaron el TTL de inactividad no se restauran
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(config.getChatStoreIdleTtlMinutes());
+        int restored = 0;
+        for (Map.Entry<String, ChatState> entry : states.entrySet()) {
+            if (entry.getValue().getLastActivityMillis() >= cutoff) {
+                chatStateStore.restore(entry.getKey(), entry.getValue());
+                restored++;
+            }
+        }
+        return restored;
+    }
+    
+    private static void apply(byte type, ByteBuffer record, Map<String, ChatState> states) {
+        String chatId = readString(record);
+        if (type == RECORD_PUT) {
+            states.put(chatId, decodeState(record));
+        } else if (type == RECORD_DELETE) {
+            states.remove(chatId);
+        }
+    }
+    
+    /**
+     * Diarios presentes en el directorio, ordenados por generación
+     */
+    private Map<Long, Path> listJournals() throws IOException {
+        Map<Long, Path> journals = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = JOURNAL_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    journals.put(Long.parseLong(matcher.group(1)), file);
+                }
+            });
+        }
+        return journals;
+    }
+    
+    private static String journalFileName(long generation) {
+        return String.format("journal-%08d.log", generation);
+    }
+    
+    // Formato de los registros: tipo, ID del chat y, en los PUT, el estado completo
+    
+    private static byte[] encodeHeader(long generation) {
+        return encode(out -> {
+            out.writeByte(RECORD_HEADER);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(generation);
+        });
+    }
+    
+    private static byte[] encodeDelete(String chatId) {
+        return encode(out -> {
+            out.writeByte(RECORD_DELETE);
+            writeString(out, chatId);
+        });
+    }
+    
+    private static byte[] encodePut(String chatId, ChatState state) {
+        return encode(out -> {
+            out.writeByte(RECORD_PUT);
+            writeString(out, chatId);
+            out.writeBoolean(state.getConversationState() != null);
+            if (state.getConversationState() != null) {
+                writeString(out, state.getConversationState());
+            }
+            out.writeLong(state.getLastActivityMillis());
+            out.writeInt(state.getMessageCount());
+            
+            MessageRingBuffer messages = state.getMessages();
+            out.writeInt(messages != null ? messages.capacity() : 0);
+            out.writeInt(messages != null ? messages.size() : 0);
+            for (int i = 0; messages != null && i < messages.size(); i++) {
+                writeString(out, messages.get(i));
+            }
+        });
+    }
+    
+    private static ChatState decodeState(ByteBuffer record) {
+        String conversationState = record.get() != 0 ? readString(record) : null;
+        long lastActivityMillis = record.getLong();
+        int messageCount = record.getInt();
+        int capacity = record.getInt();
+        int size = record.getInt();
+        MessageRingBuffer messages = capacity > 0 ? new MessageRingBuffer(capacity) : null;
+        for (int i = 0; i < size; i++) {
+            String message = readString(record);
+            if (messages != null) {
+                messages.add(message);
+            }
+        }
+        return new ChatState(conversationState, lastActivityMillis, messageCount, messages);
+    }
+    
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+    
+    private static byte[] encode(RecordWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            // ByteArrayOutputStream no lanza IOException
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+    
+    private static String readString(ByteBuffer record) {
+        byte[] utf8 = new byte[record.getInt()];
+        record.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Tamaño del diario actual en bytes
+     */
+    public long getJournalBytes() {
+        MappedRecordFile current = journal;
+        return current != null ? current.size() : 0;
+    }
+    
+    /**
+     * Escribe los cambios pendientes y un snapshot final, para que el siguiente arranque
+     * no tenga que reproducir el diario
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+                flusher.shutdownNow();
+            }
+            flush();
+            compact();
+            journal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("Error guardando el estado de chats al apagar", e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,366 @@
+package com.telegrambotapi.state;
+
+import com.telegrambotapi.config.ConfigurationManager;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Almacén único y concurrente del estado de cada chat.
+ * Los chats se reparten en fragmentos con su propio lock, de modo que chats distintos
+ * rara vez compiten entre sí. Cada fragmento mantiene orden LRU y un presupuesto de memoria;
+ * un barrido periódico expulsa los chats inactivos más allá del TTL configurado.
+ * Cada alta, modificación o expulsión se notifica al listener de cambios (la persistencia),
+ * que solo debe anotar el chat: se invoca con el lock del fragmento tomado.
+ */
+@Component
+public class ChatStateStore {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChatStateStore.class);
+    
+    @Autowired
+    private ConfigurationManager config;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private Shard[] shards;
+    private int shardMask;
+    private int maxChatsPerShard;
+    private long maxBytesPerShard;
+    private ScheduledExecutorService sweeper;
+    
+    private final AtomicLong idleEvictions = new AtomicLong();
+    private final AtomicLong capacityEvictions = new AtomicLong();
+    private volatile Consumer<String> changeListener = chatId -> { };
+    
+    /**
+     * Fragmento del almacén: mapa en orden de acceso (LRU) protegido por su propio lock
+     */
+    private static final class Shard {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long estimatedBytes;
+    }
+    
+    /**
+     * Estado del chat junto con el tamaño con el que está contabilizado en el fragmento
+     */
+    private static final class Entry {
+        private final ChatState state;
+        private long accountedBytes;
+        
+        private Entry() {
+            this(new ChatState());
+        }
+        
+        private Entry(ChatState state) {
+            this.state = state;
+        }
+    }
+    
+    /**
+     * Crea los fragmentos y arranca el barrido de chats inactivos
+     */
+    @PostConstruct
+    public void initialize() {
+        int shardCount = Integer.highestOneBit(Math.max(1, config.getChatStoreShards()));
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+        shardMask = shardCount - 1;
+        maxChatsPerShard = Math.max(1, config.getChatStoreMaxChats() / shardCount);
+        maxBytesPerShard = Math.max(1, config.getChatStoreMaxMemoryMb() * 1024 * 1024 / shardCount);
+        
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-state-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, config.getChatStoreSweepIntervalSeconds());
+        sweeper.scheduleWithFixedDelay(this::evictIdleChats, interval, interval, TimeUnit.SECONDS);
+        
+        Gauge.builder("bot.chat_store.chats", this, ChatStateStore::size)
+            .description("Chats con estado en memoria")
+            .register(meterRegistry);
+        Gauge.builder("bot.chat_store.memory", this, ChatStateStore::getEstimatedBytes)
+            .description("Memoria estimada del almacén de estado")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        
+        logger.info("Almacén de estado inicializado: {} fragmentos, máximo {} chats, {} MB",
+                   shardCount, config.getChatStoreMaxChats(), config.getChatStoreMaxMemoryMb());
+    }
+    
+    /**
+     * Lee el estado de un chat sin crearlo
+     * @param chatId el ID del chat
+     * @param reader función que extrae el dato requerido del estado
+     * @param defaultValue valor devuelto si el chat no existe o el dato es null
+     * @return el dato leído o el valor por defecto
+     */
+    public <T> T read(String chatId, Function<ChatState, T> reader, T defaultValue) {
+        Shard shard = shardFor(chatId);
+        shard.lock.lock();
+        try {
+            Entry entry = shard.entries.get(chatId);
+            if (entry == null) {
+                return defaultValue;
+            }
+            T value = reader.apply(entry.state);
+            return value != null ? value : defaultValue;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+    
+    /**
+     * Modifica el estado de un chat, creándolo si no existe
+     * @param chatId el ID del chat
+     * @param mutator función que modifica el estado y devuelve un resultado
+     * @return el resultado de la función
+     */
+    public <T> T compute(String chatId, Function<ChatState, T> mutator) {
+        Shard shard = shardFor(chatId);
+        shard.lock.lock();
+        try {
+            Entry entry = shard.entries.get(chatId);
+            if (entry == null) {
+                entry = new Entry();
+                shard.entries.put(chatId, entry);
+            }
+            T result = mutator.apply(entry.state);
+            account(shard, entry);
+            changeListener.accept(chatId);
+            evictOverBudget(shard);
+            return result;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+    
+    /**
+     * Modifica el estado de un chat, creándolo si no existe
+     */
+    public void update(String chatId, Consumer<ChatState> mutator) {
+        compute(chatId, state -> {
+            mutator.accept(state);
+            return null;
+        });
+    }
+    
+    /**
+     * Modifica el estado de un chat solo si ya existe
+     * @return true si el chat existía
+     */
+    public boolean updateIfPresent(String chatId, Consumer<ChatState> mutator) {
+        Shard shard = shardFor(chatId);
+        shard.lock.lock();
+        try {
+            Entry entry = shard.entries.get(chatId);
+            if (entry == null) {
+                return false;
+            }
+            mutator.accept(entry.state);
+            account(shard, entry);
+            changeListener.accept(chatId);
+            return true;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+    
+    /**
+     * Inserta un estado recuperado de disco sin notificar al listener de cambios.
+     * Respeta los límites de capacidad del fragmento.
+     */
+    void restore(String chatId, ChatState state) {
+        Shard shard = shardFor(chatId);
+        shard.lock.lock();
+        try {
+            Entry previous = shard.entries.remove(chatId);
+            if (previous != null) {
+                shard.estimatedBytes -= previous.accountedBytes;
+            }
+            Entry entry = new Entry(state);
+            shard.entries.put(chatId, entry);
+            account(shard, entry);
+            evictOverBudget(shard);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+    
+    /**
+     * Registra el listener que recibe el ID de cada chat creado, modificado o expulsado
+     */
+    public void setChangeListener(Consumer<String> changeListener) {
+        this.changeListener = changeListener;
+    }
+    
+    /**
+     * Recorre todos los chats, fragmento a fragmento, bajo el lock de cada uno
+     * @param visitor función que recibe el ID y el estado de cada chat
+     */
+    public void forEach(BiConsumer<String, ChatState> visitor) {
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                for (Map.Entry<String, Entry> entry : shard.entries.entrySet()) {
+                    visitor.accept(entry.getKey(), entry.getValue().state);
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Obtiene el número de chats almacenados
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                size += shard.entries.size();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return size;
+    }
+    
+    /**
+     * Obtiene la memoria estimada ocupada por todos los chats
+     */
+    public long getEstimatedBytes() {
+        long bytes = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                bytes += shard.estimatedBytes;
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return bytes;
+    }
+    
+    /**
+     * Obtiene la ocupación del almacén
+     */
+    public Map<String, Object> getStatistics() {
+        int chats = 0;
+        long bytes = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                chats += shard.entries.size();
+                bytes += shard.estimatedBytes;
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("chats", chats);
+        stats.put("chatsMaximos", config.getChatStoreMaxChats());
+        stats.put("memoriaEstimadaBytes", bytes);
+        stats.put("memoriaMaximaBytes", maxBytesPerShard * shards.length);
+        stats.put("fragmentos", shards.length);
+        stats.put("expulsionesPorInactividad", idleEvictions.get());
+        stats.put("expulsionesPorCapacidad", capacityEvictions.get());
+        return stats;
+    }
+    
+    private Shard shardFor(String chatId) {
+        int hash = chatId.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & shardMask];
+    }
+    
+    /**
+     * Actualiza la memoria contabilizada del fragmento tras modificar un estado
+     */
+    private void account(Shard shard, Entry entry) {
+        long size = entry.state.estimateSizeBytes();
+        shard.estimatedBytes += size - entry.accountedBytes;
+        entry.accountedBytes = size;
+    }
+    
+    /**
+     * Expulsa los chats menos usados mientras el fragmento supere su capacidad.
+     * El chat recién accedido es el último en orden LRU, por lo que nunca se expulsa a sí mismo.
+     */
+    private void evictOverBudget(Shard shard) {
+        Iterator<Map.Entry<String, Entry>> iterator = shard.entries.entrySet().iterator();
+        while (shard.entries.size() > 1 &&
+               (shard.entries.size() > maxChatsPerShard || shard.estimatedBytes > maxBytesPerShard)) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            shard.estimatedBytes -= eldest.getValue().accountedBytes;
+            iterator.remove();
+            capacityEvictions.incrementAndGet();
+            changeListener.accept(eldest.getKey());
+        }
+    }
+    
+    /**
+     * Expulsa los chats sin actividad dentro del TTL configurado
+     */
+    private void evictIdleChats() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(config.getChatStoreIdleTtlMinutes());
+        int evicted = 0;
+        
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                Iterator<Map.Entry<String, Entry>> iterator = shard.entries.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<String, Entry> entry = iterator.next();
+                    if (entry.getValue().state.getLastActivityMillis() < cutoff) {
+                        shard.estimatedBytes -= entry.getValue().accountedBytes;
+                        iterator.remove();
+                        evicted++;
+                        changeListener.accept(entry.getKey());
+                    }
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        
+        if (evicted > 0) {
+            idleEvictions.addAndGet(evicted);
+            logger.info("Chats inactivos expulsados del almacén: {}", evicted);
+        }
+    }
+    
+    /**
+     * Detiene el barrido al cerrar la aplicación
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+}
\ No newline at end of file
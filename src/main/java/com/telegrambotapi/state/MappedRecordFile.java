@@ -0,0 +1,149 @@
+package com.telegrambotapi.state;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Fichero de registros de solo anexado escrito a través de regiones mapeadas en memoria.
+ * <p>
+ * Formato de cada registro: {@code [int longitud][int crc32c][payload]}. El fichero crece por
+ * regiones que el sistema rellena con ceros, de modo que una longitud 0 marca el final de los
+ * datos. Al leer, un registro incompleto o con CRC erróneo (escritura cortada por una caída)
+ * termina la lectura: se recupera todo lo escrito hasta el último registro íntegro.
+ * No es thread-safe: lo usa un único hilo de escritura.
+ */
+final class MappedRecordFile implements Closeable {
+    
+    private static final int HEADER_BYTES = 8;
+    
+    private final Path path;
+    private final FileChannel channel;
+    private final int regionBytes;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private final CRC32C crc = new CRC32C();
+    
+    private MappedRecordFile(Path path, int regionBytes) throws IOException {
+        this.path = path;
+        this.regionBytes = regionBytes;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.region = channel.map(FileChannel.MapMode.READ_WRITE, 0, regionBytes);
+    }
+    
+    /**
+     * Crea un fichero nuevo (falla si ya existe) listo para anexar registros
+     * @param regionBytes tamaño de cada región mapeada; el fichero crece de región en región
+     */
+    static MappedRecordFile create(Path path, int regionBytes) throws IOException {
+        return new MappedRecordFile(path, regionBytes);
+    }
+    
+    /**
+     * Anexa un registro. La escritura queda en la caché de páginas del sistema (sobrevive a la
+     * caída del proceso); {@link #force()} la lleva a disco.
+     */
+    void append(byte[] payload) throws IOException {
+        int recordBytes = HEADER_BYTES + payload.length;
+        // Se reserva siempre sitio para la longitud 0 que marca el final
+        if (region.remaining() < recordBytes + 4) {
+            force();
+            regionStart += region.position();
+            region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart,
+                                 Math.max(regionBytes, recordBytes + 4));
+        }
+        crc.reset();
+        crc.update(payload);
+        
+        // El payload y el CRC se escriben antes que la longitud: un registro con longitud
+        // distinta de cero siempre tiene su contenido completo en la página
+        int start = region.position();
+        region.position(start + HEADER_BYTES);
+        region.put(payload);
+        region.putInt(start + 4, (int) crc.getValue());
+        region.putInt(start, payload.length);
+    }
+    
+    /**
+     * Fuerza a disco lo escrito en la región actual
+     */
+    void force() {
+        region.force();
+    }
+    
+    /**
+     * Bytes ocupados por los registros escritos
+     */
+    long size() {
+        return regionStart + region.position();
+    }
+    
+    Path getPath() {
+        return path;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+    
+    /**
+     * Fuerza a disco las entradas de un directorio (ficheros creados, renombrados o borrados).
+     * Sin esto, un renombrado puede perderse en una caída aunque el contenido ya esté en disco.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+    
+    /**
+     * Lee en orden todos los registros íntegros del fichero
+     * @param consumer recibe el payload de cada registro (válido solo durante la llamada)
+     * @return true si el fichero terminó limpio, false si acabó en un registro cortado o corrupto
+     */
+    static boolean readAll(Path path, Consumer<ByteBuffer> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize == 0) {
+                return true;
+            }
+            // Los ficheros de estado caben con holgura en una sola región de 2 GB
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                                Math.min(fileSize, Integer.MAX_VALUE));
+            CRC32C crc = new CRC32C();
+            while (data.remaining() >= HEADER_BYTES) {
+                int length = data.getInt();
+                if (length == 0) {
+                    return true;
+                }
+                int expectedCrc = data.getInt();
+                if (length < 0 || length > data.remaining()) {
+                    return false;
+                }
+                ByteBuffer payload = data.slice(data.position(), length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != expectedCrc) {
+                    return false;
+                }
+                try {
+                    consumer.accept(payload);
+                } catch (BufferUnderflowException e) {
+                    return false;
+                }
+                data.position(data.position() + length);
+            }
+            return true;
+        }
+    }
+}
\ No newline at end of file
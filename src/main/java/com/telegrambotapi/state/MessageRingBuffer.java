@@ -0,0 +1,146 @@
+package com.telegrambotapi.state;
+
+/**
+ * Buffer circular de capacidad fija con los últimos mensajes de un chat.
+ * Lleva la longitud total de los mensajes almacenados y construye el contexto
+ * priorizando los mensajes más recientes dentro de un presupuesto de caracteres.
+ * El contexto construido se reutiliza mientras no lleguen mensajes nuevos.
+ * No es thread-safe: se usa siempre bajo el lock del {@link ChatStateStore}.
+ */
+public class MessageRingBuffer {
+    
+    private final String[] slots;
+    private int head; // posición del mensaje más antiguo
+    private int size;
+    private long totalChars;
+    
+    private String cachedContext;
+    private int cachedBudget = -1;
+    
+    public MessageRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("La capacidad debe ser positiva: " + capacity);
+        }
+        this.slots = new String[capacity];
+    }
+    
+    /**
+     * Agrega un mensaje, sobrescribiendo el más antiguo si el buffer está lleno
+     * @return el mensaje descartado, o null si había espacio
+     */
+    public String add(String message) {
+        String evicted = null;
+        int tail = (head + size) % slots.length;
+        
+        if (size == slots.length) {
+            evicted = slots[head];
+            totalChars -= evicted.length();
+            head = (head + 1) % slots.length;
+        } else {
+            size++;
+        }
+        
+        slots[tail] = message;
+        totalChars += message.length();
+        cachedContext = null;
+        return evicted;
+    }
+    
+    /**
+     * Construye el contexto con los mensajes más recientes que caben en el presupuesto,
+     * en orden cronológico y separados por saltos de línea
+     * @param maxChars presupuesto máximo de caracteres del contexto
+     * @return el contexto, o una cadena vacía si no hay mensajes
+     */
+    public String buildContext(int maxChars) {
+        if (cachedContext != null && cachedBudget == maxChars) {
+            return cachedContext;
+        }
+        
+        // Recorrer desde el más reciente acumulando longitud hasta agotar el presupuesto
+        int count = 0;
+        int length = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            int messageLength = slot(i).length() + (count > 0 ? 1 : 0);
+            if (length + messageLength > maxChars) {
+                break;
+            }
+            length += messageLength;
+            count++;
+        }
+        
+        String context;
+        if (count == 0) {
+            // Ni siquiera el último mensaje cabe: se conserva su parte final
+            context = size == 0 ? "" : tail(slot(size - 1), maxChars);
+        } else {
+            StringBuilder builder = new StringBuilder(length);
+            for (int i = size - count; i < size; i++) {
+                if (builder.length() > 0) {
+                    builder.append('\n');
+                }
+                builder.append(slot(i));
+            }
+            context = builder.toString();
+        }
+        
+        cachedContext = context;
+        cachedBudget = maxChars;
+        return context;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public int capacity() {
+        return slots.length;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Obtiene la suma de caracteres de los mensajes almacenados
+     */
+    public long getTotalChars() {
+        return totalChars;
+    }
+    
+    /**
+     * Obtiene el mensaje en la posición indicada, siendo 0 el más antiguo
+     */
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Índice fuera de rango: " + index);
+        }
+        return slot(index);
+    }
+    
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            slots[(head + i) % slots.length] = null;
+        }
+        head = 0;
+        size = 0;
+        totalChars = 0;
+        cachedContext = null;
+    }
+    
+    private String slot(int index) {
+        return slots[(head + index) % slots.length];
+    }
+    
+    private static String tail(String message, int maxChars) {
+        if (maxChars <= 0) {
+            return "";
+        }
+        int start = message.length() - maxChars;
+        // Evitar cortar un par sustituto UTF-16 por la mitad
+        if (start > 0 && Character.isLowSurrogate(message.charAt(start))) {
+            start++;
+        }
+        return start > 0 ? message.substring(start) : message;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,152 @@
+package com.telegrambotapi.stats;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Estadísticas del bot servidas desde una instantánea periódica.
+ * El camino de los mensajes solo suma en contadores LongAdder por estrategia y por comando;
+ * un hilo propio cierra cada intervalo, calcula las ventanas de 1 minuto, 5 minutos
+ * y 1 hora, y recoge las secciones registradas (estado de chats, colas, caché...). Las consultas
+ * de los paneles leen la última instantánea publicada y no compiten con el procesamiento.
+ */
+@Component
+public class BotStatistics {
+
+    private static final Logger logger = LoggerFactory.getLogger(BotStatistics.class);
+    private static final long INTERVAL_SECONDS = 10;
+    private static final int HISTORY_SLOTS = (int) (TimeUnit.HOURS.toSeconds(1) / INTERVAL_SECONDS);
+    private static final Map<String, Integer> WINDOWS = windows();
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+
+    private final Map<String, WindowedRecorder> strategies = new ConcurrentHashMap<>();
+    private final Map<String, WindowedRecorder> commands = new ConcurrentHashMap<>();
+    // Secciones que se recogen en cada instantánea, en orden de registro
+    private final Map<String, Supplier<Map<String, Object>>> sections =
+        Collections.synchronizedMap(new LinkedHashMap<>());
+
+    private ScheduledExecutorService snapshotter;
+    private volatile Map<String, Object> snapshot = Collections.emptyMap();
+
+    private static Map<String, Integer> windows() {
+        Map<String, Integer> windows = new LinkedHashMap<>();
+        windows.put("1m", (int) (TimeUnit.MINUTES.toSeconds(1) / INTERVAL_SECONDS));
+        windows.put("5m", (int) (TimeUnit.MINUTES.toSeconds(5) / INTERVAL_SECONDS));
+        windows.put("1h", HISTORY_SLOTS);
+        return Collections.unmodifiableMap(windows);
+    }
+
+    /**
+     * Arranca el hilo que cierra los intervalos y publica la instantánea
+     */
+    @PostConstruct
+    public void initialize() {
+        snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bot-statistics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotter.scheduleAtFixedRate(this::refresh, INTERVAL_SECONDS, INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Registra la ejecución de una estrategia de IA
+     */
+    public void recordStrategy(String strategy, long durationNanos, boolean success) {
+        strategies.computeIfAbsent(strategy, key -> new WindowedRecorder(HISTORY_SLOTS))
+            .record(durationNanos, success);
+    }
+
+    /**
+     * Registra el procesamiento de un comando o mensaje
+     */
+    public void recordCommand(String command, long durationNanos) {
+        commands.computeIfAbsent(command, key -> new WindowedRecorder(HISTORY_SLOTS))
+            .record(durationNanos, true);
+    }
+
+    /**
+     * Añade una sección a la instantánea; el proveedor se invoca solo desde el hilo de instantáneas
+     */
+    public void registerSection(String name, Supplier<Map<String, Object>> supplier) {
+        sections.put(name, supplier);
+    }
+
+    /**
+     * Última instantánea publicada (vacía hasta el primer intervalo)
+     */
+    public Map<String, Object> getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Sección de la última instantánea, o el valor actual si aún no se ha publicado
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getSection(String name, Supplier<Map<String, Object>> fallback) {
+        Object section = snapshot.get(name);
+        return section instanceof Map ? (Map<String, Object>) section : fallback.get();
+    }
+
+    private void refresh() {
+        try {
+            Map<String, Object> next = new HashMap<>();
+            next.put("estrategias", rollAll(strategies));
+            next.put("comandos", rollAll(commands));
+
+            Map<String, Supplier<Map<String, Object>>> registered;
+            synchronized (sections) {
+                registered = new LinkedHashMap<>(sections);
+            }
+            for (Map.Entry<String, Supplier<Map<String, Object>>> section : registered.entrySet()) {
+                try {
+                    next.put(section.getKey(), section.getValue().get());
+                } catch (RuntimeException e) {
+                    logger.warn("No se pudo obtener la sección de estadísticas {}: {}", section.getKey(), e.getMessage());
+                }
+            }
+            next.put("instantanea", LocalDateTime.now().format(TIMESTAMP_FORMAT));
+            next.put("intervaloSegundos", INTERVAL_SECONDS);
+            snapshot = Collections.unmodifiableMap(next);
+        } catch (RuntimeException e) {
+            logger.error("Error actualizando las estadísticas: {}", e.getMessage(), e);
+        }
+    }
+
+    private static Map<String, Object> rollAll(Map<String, WindowedRecorder> recorders) {
+        Map<String, Object> result = new HashMap<>();
+        recorders.forEach((name, recorder) -> {
+            recorder.roll();
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("totalDesdeArranque", recorder.getTotal());
+            WINDOWS.forEach((window, slots) -> entry.put(window, recorder.window(slots, INTERVAL_SECONDS)));
+            result.put(name, entry);
+        });
+        return result;
+    }
+
+    /**
+     * Detiene el hilo de instantáneas al cerrar la aplicación
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (snapshotter != null) {
+            snapshotter.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.telegrambotapi.stats;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cuenta operaciones, errores y latencia acumulada con {@link LongAdder}, sin locks en el
+ * camino de los mensajes. El hilo de instantáneas toma periódicamente la diferencia de los
+ * acumulados y la guarda en un historial circular de intervalos, a partir del cual se calculan
+ * las ventanas deslizantes.
+ * <p>
+ * Los percentiles salen de un histograma log-lineal de latencias (8 cubetas por potencia de 2,
+ * error relativo por debajo del 12,5 %). Cada intervalo guarda solo las cubetas con operaciones,
+ * así que el historial de una hora apenas ocupa memoria con poco tráfico.
+ */
+final class WindowedRecorder {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Latencias de hasta 2^27 µs (unos 134 s); las mayores caen en la última cubeta
+    private static final int MAX_EXPONENT = 27;
+    private static final long MAX_MICROS = (1L << MAX_EXPONENT) - 1;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    private static final long[] NO_BUCKETS = new long[0];
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder[] latencyBuckets = new LongAdder[BUCKETS];
+
+    // Historial por intervalo; solo lo usa el hilo de instantáneas
+    private final long[] countSlots;
+    private final long[] errorSlots;
+    private final long[] nanosSlots;
+    // Cubetas no vacías de cada intervalo, codificadas como (índice << 32 | operaciones)
+    private final long[][] bucketSlots;
+    private final long[] lastBuckets = new long[BUCKETS];
+    private int next;
+    private int filled;
+    private long lastCount;
+    private long lastErrors;
+    private long lastNanos;
+
+    /**
+     * @param historySlots número de intervalos que se conservan (la ventana más larga)
+     */
+    WindowedRecorder(int historySlots) {
+        this.countSlots = new long[historySlots];
+        this.errorSlots = new long[historySlots];
+        this.nanosSlots = new long[historySlots];
+        this.bucketSlots = new long[historySlots][];
+        Arrays.fill(bucketSlots, NO_BUCKETS);
+        for (int i = 0; i < BUCKETS; i++) {
+            latencyBuckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Registra una operación terminada
+     */
+    void record(long durationNanos, boolean success) {
+        count.increment();
+        totalNanos.add(durationNanos);
+        latencyBuckets[bucketIndex(TimeUnit.NANOSECONDS.toMicros(durationNanos))].increment();
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Cierra el intervalo en curso. Los acumulados nunca se reinician, así que ninguna
+     * operación registrada durante el cierre se pierde: cuenta en este intervalo o en el siguiente.
+     */
+    void roll() {
+        long currentCount = count.sum();
+        long currentErrors = errors.sum();
+        long currentNanos = totalNanos.sum();
+
+        countSlots[next] = currentCount - lastCount;
+        errorSlots[next] = currentErrors - lastErrors;
+        nanosSlots[next] = currentNanos - lastNanos;
+        lastCount = currentCount;
+        lastErrors = currentErrors;
+        lastNanos = currentNanos;
+        bucketSlots[next] = rollBuckets();
+
+        next = (next + 1) % countSlots.length;
+        filled = Math.min(filled + 1, countSlots.length);
+    }
+
+    /**
+     * Resume los últimos intervalos cerrados
+     * @param slots número de intervalos de la ventana
+     * @param intervalSeconds duración de cada intervalo
+     */
+    Map<String, Object> window(int slots, long intervalSeconds) {
+        int covered = Math.min(slots, filled);
+        long windowCount = 0;
+        long windowErrors = 0;
+        long windowNanos = 0;
+        long[] histogram = new long[BUCKETS];
+        long histogramCount = 0;
+        for (int i = 1; i <= covered; i++) {
+            int slot = Math.floorMod(next - i, countSlots.length);
+            windowCount += countSlots[slot];
+            windowErrors += errorSlots[slot];
+            windowNanos += nanosSlots[slot];
+            for (long bucket : bucketSlots[slot]) {
+                long operations = bucket & 0xFFFFFFFFL;
+                histogram[(int) (bucket >>> 32)] += operations;
+                histogramCount += operations;
+            }
+        }
+
+        Map<String, Object> window = new HashMap<>();
+        window.put("total", windowCount);
+        window.put("errores", windowErrors);
+        window.put("porMinuto", covered > 0 ? windowCount * 60.0 / (covered * intervalSeconds) : 0.0);
+        window.put("latenciaMediaMs", windowCount > 0
+            ? (double) TimeUnit.NANOSECONDS.toMicros(windowNanos / windowCount) / 1000 : 0.0);
+        window.put("latenciaP95Ms", percentileMillis(histogram, histogramCount, 0.95));
+        window.put("latenciaP99Ms", percentileMillis(histogram, histogramCount, 0.99));
+        return window;
+    }
+
+    /**
+     * Toma la diferencia de cada cubeta desde el intervalo anterior y guarda solo las no vacías
+     */
+    private long[] rollBuckets() {
+        long[] changed = new long[BUCKETS];
+        int size = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long current = latencyBuckets[i].sum();
+            long delta = current - lastBuckets[i];
+            lastBuckets[i] = current;
+            if (delta > 0) {
+                // Un intervalo de 10 s nunca acumula 2^32 operaciones en una cubeta
+                changed[size++] = (long) i << 32 | Math.min(delta, 0xFFFFFFFFL);
+            }
+        }
+        return size == 0 ? NO_BUCKETS : Arrays.copyOf(changed, size);
+    }
+
+    /**
+     * Límite superior de la cubeta en la que cae el percentil, en milisegundos
+     */
+    private static double percentileMillis(long[] histogram, long total, double percentile) {
+        if (total == 0) {
+            return 0.0;
+        }
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram[i];
+            if (seen >= rank) {
+                return (double) bucketUpperMicros(i) / 1000;
+            }
+        }
+        return (double) MAX_MICROS / 1000;
+    }
+
+    /**
+     * Cubeta de una latencia: exacta por debajo de 8 µs y con 8 subdivisiones por potencia de 2 por encima
+     */
+    static int bucketIndex(long micros) {
+        long value = Math.max(0, Math.min(micros, MAX_MICROS));
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Mayor latencia, en µs, que cae en la cubeta
+     */
+    static long bucketUpperMicros(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Operaciones registradas desde el arranque
+     */
+    long getTotal() {
+        return count.sum();
+    }
+}
@@ -2,11 +2,20 @@ package com.telegrambotapi.strategy;
 
 import com.telegrambotapi.adapter.AIServiceAdapter;
 import com.telegrambotapi.adapter.AIServiceException;
+import com.telegrambotapi.config.ConfigurationManager;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 /**
  * Estrategia para generar chistes basados en el contexto de conversación.
  * Implementa el patrón Strategy para la generación de humor contextual.
@@ -15,10 +24,46 @@ import org.springframework.stereotype.Component;
 public class JokeGenerationStrategy implements ResponseStrategy {
     
     private static final Logger logger = LoggerFactory.getLogger(JokeGenerationStrategy.class);
+    private static final String DEFAULT_LEXICON = "/sensitive-topics.txt";
     
     @Autowired
     private AIServiceAdapter aiServiceAdapter;
     
+    @Autowired
+    private ConfigurationManager config;
+    
+    @Autowired
+    private ResourceLoader resourceLoader;
+    
+    // Léxico incluido en el jar; se sustituye por el configurado al arrancar el contexto
+    private volatile TopicMatcher sensitiveTopics = loadDefaultLexicon();
+    
+    /**
+     * Compila el léxico configurado. Un léxico inaccesible impide arrancar: sin él
+     * el bot haría chistes sobre cualquier tema.
+     */
+    @PostConstruct
+    public void loadSensitiveTopics() {
+        String location = config.getJokeSensitiveTopics();
+        try (InputStream lexicon = resourceLoader.getResource(location).getInputStream()) {
+            sensitiveTopics = TopicMatcher.load(lexicon);
+            logger.info("Léxico de temas sensibles cargado desde {}: {} términos", location, sensitiveTopics.size());
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo leer el léxico de temas sensibles: " + location, e);
+        }
+    }
+    
+    private static TopicMatcher loadDefaultLexicon() {
+        try (InputStream lexicon = JokeGenerationStrategy.class.getResourceAsStream(DEFAULT_LEXICON)) {
+            if (lexicon == null) {
+                throw new IllegalStateException("Falta el léxico " + DEFAULT_LEXICON + " en el classpath");
+            }
+            return TopicMatcher.load(lexicon);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
     @Override
     public String generateResponse(String conversationContext) throws AIServiceException {
         logger.info("Generando chiste basado en contexto: {}", 
@@ -26,20 +71,43 @@ public class JokeGenerationStrategy implements ResponseStrategy {
         
         try {
             String joke = aiServiceAdapter.generateJoke(conversationContext);
-            
-            // Validar que la respuesta sea apropiada
-            if (joke != null && !joke.trim().isEmpty()) {
-                return "😄 " + joke;
-            } else {
-                return "😅 Lo siento, no se me ocurre un buen chiste en este momento. ¡Pero sigan con la conversación interesante!";
-            }
-            
+            return decorateJoke(joke);
+        
         } catch (AIServiceException e) {
             logger.error("Error generando chiste", e);
             throw new AIServiceException("No pude generar un chiste en este momento", e);
         }
     }
     
+    @Override
+    public CompletableFuture<String> generateResponseAsync(String conversationContext) {
+        logger.info("Generando chiste basado en contexto: {}", 
+                   conversationContext.substring(0, Math.min(100, conversationContext.length())));
+        
+        CompletableFuture<String> pending = config.isAiBatchJokeEnabled()
+            ? aiServiceAdapter.generateJokeBatched(conversationContext)
+            : aiServiceAdapter.generateJokeAsync(conversationContext);
+        return pending
+            .handle((joke, error) -> {
+                if (error != null) {
+                    logger.error("Error generando chiste", AIServiceException.unwrap(error));
+                    throw new CompletionException(
+                        new AIServiceException("No pude generar un chiste en este momento", AIServiceException.unwrap(error)));
+                }
+                return decorateJoke(joke);
+            });
+    }
+    
+    /**
+     * Valida que la respuesta sea apropiada y le da el formato de chiste
+     */
+    private String decorateJoke(String joke) {
+        if (joke != null && !joke.trim().isEmpty()) {
+            return "😄 " + joke;
+        }
+        return "😅 Lo siento, no se me ocurre un buen chiste en este momento. ¡Pero sigan con la conversación interesante!";
+    }
+    
     @Override
     public String getStrategyName() {
         return "Generación de Chistes";
@@ -60,16 +128,7 @@ public class JokeGenerationStrategy implements ResponseStrategy {
             return false;
         }
         
-        // Evitar chistes en contextos sensibles
-        String lowerContext = context.toLowerCase();
-        String[] sensitiveTopics = {"muerte", "enfermedad", "accidente", "problema", "triste", "dolor"};
-        
-        for (String topic : sensitiveTopics) {
-            if (lowerContext.contains(topic)) {
-                return false;
-            }
-        }
-        
-        return true;
+        // Evitar chistes en contextos sensibles (una sola pasada sobre el texto, sin acentos ni mayúsculas)
+        return !sensitiveTopics.matches(context);
     }
 }
\ No newline at end of file
@@ -0,0 +1,226 @@
+package com.telegrambotapi.strategy;
+
+import com.telegrambotapi.config.ConfigurationManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Recorta la entrada de cada estrategia (contexto del grupo o conversación de ventas) para que
+ * quepa en su presupuesto de tokens antes de enviarla a la IA. Los tokens del prompt determinan
+ * tanto el coste como el tiempo hasta el primer token.
+ * <p>
+ * La entrada se trata como una secuencia de turnos (líneas, o frases en los párrafos largos).
+ * Si supera el presupuesto se conservan primero los turnos más recientes, hasta el 60 % del
+ * presupuesto, y el resto se reparte entre los turnos anteriores más relevantes: los que contienen
+ * palabras clave de ventas (precio, garantía, devolución...), preguntas o cifras. Los turnos se
+ * emiten en su orden original y cada hueco se marca con "[...]".
+ */
+@Component
+public class PromptTrimmer {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PromptTrimmer.class);
+    private static final String GAP_MARKER = "[...]";
+    private static final int GAP_MARKER_TOKENS = TokenEstimator.estimate(GAP_MARKER) + 1;
+    private static final double RECENT_SHARE = 0.6;
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[.!?…])\\s+");
+    
+    // Términos que suelen llevar la información útil para el vendedor (sintaxis de TopicMatcher)
+    private static final TopicMatcher SALES_RELEVANCE = TopicMatcher.compile(List.of(
+        "precio*", "caro", "cara", "barat*", "cuesta*", "vale", "descuento*", "oferta*", "promoci*", "rebaja*",
+        "pag*", "financ*", "cuota*", "plazo*", "presupuesto*", "garantia*", "seguro*", "devol*", "reembols*",
+        "cambi*", "defect*", "roto", "rota", "falla*", "problema*", "queja*", "reclama*", "compr*", "llev*",
+        "necesit*", "busc*", "quier*", "dud*", "pens*", "quiza*", "no se", "calidad", "marca*", "modelo*",
+        "competencia", "otra tienda", "mejor*", "premium", "pack*", "accesorio*", "ampliad*", "envio*", "stock"));
+    
+    @Autowired
+    private ConfigurationManager config;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final AtomicLong trimmedPrompts = new AtomicLong();
+    private final AtomicLong estimatedTokensSent = new AtomicLong();
+    private final AtomicLong estimatedTokensSaved = new AtomicLong();
+    
+    /**
+     * Ajusta la entrada al presupuesto de tokens de la estrategia
+     * @param strategyType la estrategia que recibirá la entrada
+     * @param input el contexto o la conversación original
+     * @return la entrada original si cabe (o si el presupuesto es 0), o la versión recortada
+     */
+    public String trim(ResponseContext.StrategyType strategyType, String input) {
+        int budget = budgetFor(strategyType);
+        if (input == null || budget <= 0) {
+            return input;
+        }
+        
+        int originalTokens = TokenEstimator.estimate(input);
+        if (originalTokens <= budget) {
+            estimatedTokensSent.addAndGet(originalTokens);
+            return input;
+        }
+        
+        TopicMatcher relevance = strategyType == ResponseContext.StrategyType.JOKE_GENERATION ? null : SALES_RELEVANCE;
+        String trimmed = trimToBudget(input, budget, relevance);
+        int trimmedTokens = TokenEstimator.estimate(trimmed);
+        int saved = originalTokens - trimmedTokens;
+        
+        trimmedPrompts.incrementAndGet();
+        estimatedTokensSent.addAndGet(trimmedTokens);
+        estimatedTokensSaved.addAndGet(saved);
+        meterRegistry.counter("ai.prompt.tokens.saved", "estrategia", strategyType.name()).increment(saved);
+        logger.info("Entrada recortada para {}: {} -> {} tokens estimados (presupuesto {})",
+                   strategyType, originalTokens, trimmedTokens, budget);
+        return trimmed;
+    }
+    
+    /**
+     * Recorta la entrada a los turnos recientes y relevantes que caben en el presupuesto.
+     * Visible en el paquete para los benchmarks.
+     */
+    static String trimToBudget(String input, int budget, TopicMatcher relevance) {
+        List<String> turns = new ArrayList<>();
+        for (String line : input.split("\n")) {
+            String turn = line.strip();
+            if (turn.isEmpty()) {
+                continue;
+            }
+            // Un párrafo largo (p. ej. una conversación pegada en una sola línea) se trocea por frases
+            if (TokenEstimator.estimate(turn) > budget / 4) {
+                for (String sentence : SENTENCE_END.split(turn)) {
+                    turns.add(sentence);
+                }
+            } else {
+                turns.add(turn);
+            }
+        }
+        if (turns.isEmpty()) {
+            return "";
+        }
+        
+        int count = turns.size();
+        int[] cost = new int[count];
+        for (int i = 0; i < count; i++) {
+            cost[i] = TokenEstimator.estimate(turns.get(i)) + 1;
+        }
+        
+        // El último turno no cabe ni solo: se conserva su parte final
+        String lastTurn = turns.get(count - 1);
+        if (cost[count - 1] + GAP_MARKER_TOKENS > budget) {
+            return GAP_MARKER + " " + tail(lastTurn, TokenEstimator.approximateChars(budget - GAP_MARKER_TOKENS));
+        }
+        
+        // 1. Turnos más recientes (siempre al menos el último)
+        boolean[] keep = new boolean[count];
+        int used = GAP_MARKER_TOKENS;
+        int recentBudget = (int) (budget * RECENT_SHARE);
+        int oldestKept = count;
+        while (oldestKept > 0 && (oldestKept == count || used + cost[oldestKept - 1] <= recentBudget)) {
+            oldestKept--;
+            keep[oldestKept] = true;
+            used += cost[oldestKept];
+        }
+        
+        // 2. Turnos anteriores por relevancia y, a igualdad, por recencia
+        List<Integer> candidates = new ArrayList<>();
+        int[] score = new int[oldestKept];
+        for (int i = 0; i < oldestKept; i++) {
+            score[i] = relevanceScore(turns.get(i), relevance);
+            candidates.add(i);
+        }
+        candidates.sort(Comparator.<Integer>comparingInt(i -> score[i]).reversed()
+                                  .thenComparing(Comparator.reverseOrder()));
+        for (int i : candidates) {
+            // Cada turno aislado puede abrir un hueco más
+            if (used + cost[i] + GAP_MARKER_TOKENS <= budget) {
+                keep[i] = true;
+                used += cost[i] + GAP_MARKER_TOKENS;
+            }
+        }
+        
+        // 3. Turnos conservados en orden original, con un marcador por hueco
+        StringBuilder trimmed = new StringBuilder();
+        boolean inGap = false;
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) {
+                appendLine(trimmed, turns.get(i));
+                inGap = false;
+            } else if (!inGap) {
+                appendLine(trimmed, GAP_MARKER);
+                inGap = true;
+            }
+        }
+        return trimmed.toString();
+    }
+    
+    private static int relevanceScore(String turn, TopicMatcher relevance) {
+        int score = relevance != null && relevance.matches(turn) ? 2 : 0;
+        if (turn.indexOf('?') >= 0) {
+            score++;
+        }
+        for (int i = 0; i < turn.length(); i++) {
+            if (Character.isDigit(turn.charAt(i))) {
+                score++;
+                break;
+            }
+        }
+        return score;
+    }
+    
+    private static void appendLine(StringBuilder builder, String line) {
+        if (builder.length() > 0) {
+            builder.append('\n');
+        }
+        builder.append(line);
+    }
+    
+    /**
+     * Parte final del texto con como mucho maxChars caracteres, empezando en una palabra completa
+     */
+    private static String tail(String text, int maxChars) {
+        if (maxChars <= 0) {
+            return "";
+        }
+        if (text.length() <= maxChars) {
+            return text;
+        }
+        int start = text.length() - maxChars;
+        int space = text.indexOf(' ', start);
+        if (space > 0 && space < text.length() - 1) {
+            start = space + 1;
+        } else if (Character.isLowSurrogate(text.charAt(start))) {
+            start++;
+        }
+        return text.substring(start);
+    }
+    
+    private int budgetFor(ResponseContext.StrategyType strategyType) {
+        return strategyType == ResponseContext.StrategyType.JOKE_GENERATION
+            ? config.getAiPromptJokeBudgetTokens()
+            : config.getAiPromptSalesBudgetTokens();
+    }
+    
+    /**
+     * Obtiene estadísticas del recorte de prompts
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("presupuestoChistes", config.getAiPromptJokeBudgetTokens());
+        stats.put("presupuestoVentas", config.getAiPromptSalesBudgetTokens());
+        stats.put("entradasRecortadas", trimmedPrompts.get());
+        stats.put("tokensEstimadosEnviados", estimatedTokensSent.get());
+        stats.put("tokensEstimadosAhorrados", estimatedTokensSaved.get());
+        return stats;
+    }
+}
\ No newline at end of file
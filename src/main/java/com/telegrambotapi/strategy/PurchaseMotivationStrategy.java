@@ -2,11 +2,17 @@ package com.telegrambotapi.strategy;
 
 import com.telegrambotapi.adapter.AIServiceAdapter;
 import com.telegrambotapi.adapter.AIServiceException;
+import com.telegrambotapi.config.ConfigurationManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
 /**
  * Estrategia para motivar la compra de productos específicos.
  * Implementa el patrón Strategy para asesoramiento en motivación de compras.
@@ -15,24 +21,55 @@ import org.springframework.stereotype.Component;
 public class PurchaseMotivationStrategy implements ResponseStrategy {
     
     private static final Logger logger = LoggerFactory.getLogger(PurchaseMotivationStrategy.class);
+    private static final String OBJECTIVE = 
+        "motivar al cliente a realizar la compra destacando beneficios y creando urgencia apropiada";
     
     @Autowired
     private AIServiceAdapter aiServiceAdapter;
     
+    @Autowired
+    private ConfigurationManager config;
+    
     @Override
     public String generateResponse(String salesConversation) throws AIServiceException {
         logger.info("Generando estrategia de motivación de compra");
         
-        String objective = "motivar al cliente a realizar la compra destacando beneficios y creando urgencia apropiada";
-        
         try {
-            return aiServiceAdapter.analyzeSalesConversation(salesConversation, objective);
+            return aiServiceAdapter.analyzeSalesConversation(salesConversation, OBJECTIVE);
         } catch (AIServiceException e) {
             logger.error("Error generando estrategia de motivación de compra", e);
             throw new AIServiceException("Error al generar consejos de motivación de compra", e);
         }
     }
     
+    @Override
+    public CompletableFuture<String> generateResponseAsync(String salesConversation) {
+        logger.info("Generando estrategia de motivación de compra");
+        
+        return wrapErrors(config.isAiBatchMotivationEnabled()
+            ? aiServiceAdapter.analyzeSalesConversationBatched(salesConversation, OBJECTIVE)
+            : aiServiceAdapter.analyzeSalesConversationAsync(salesConversation, OBJECTIVE));
+    }
+    
+    @Override
+    public CompletableFuture<String> generateResponseStreaming(String salesConversation,
+                                                               Consumer<Supplier<String>> onPartial) {
+        logger.info("Generando estrategia de motivación de compra (streaming)");
+        
+        return wrapErrors(aiServiceAdapter.analyzeSalesConversationStreaming(salesConversation, OBJECTIVE, onPartial));
+    }
+    
+    /**
+     * Envuelve los errores de la IA en una excepción propia de esta estrategia
+     */
+    private CompletableFuture<String> wrapErrors(CompletableFuture<String> response) {
+        return response.exceptionally(error -> {
+            logger.error("Error generando estrategia de motivación de compra", AIServiceException.unwrap(error));
+            throw new CompletionException(
+                new AIServiceException("Error al generar consejos de motivación de compra", AIServiceException.unwrap(error)));
+        });
+    }
+    
     @Override
     public String getStrategyName() {
         return "Motivación de Compra";
@@ -2,11 +2,17 @@ package com.telegrambotapi.strategy;
 
 import com.telegrambotapi.adapter.AIServiceAdapter;
 import com.telegrambotapi.adapter.AIServiceException;
+import com.telegrambotapi.config.ConfigurationManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
 /**
  * Estrategia para rechazar devoluciones de manera efectiva.
  * Implementa el patrón Strategy para asesoramiento en rechazo de devoluciones.
@@ -15,24 +21,55 @@ import org.springframework.stereotype.Component;
 public class RefundRejectionStrategy implements ResponseStrategy {
     
     private static final Logger logger = LoggerFactory.getLogger(RefundRejectionStrategy.class);
+    private static final String OBJECTIVE = 
+        "rechazar una devolución de manera diplomática y mantener la relación con el cliente";
     
     @Autowired
     private AIServiceAdapter aiServiceAdapter;
     
+    @Autowired
+    private ConfigurationManager config;
+    
     @Override
     public String generateResponse(String salesConversation) throws AIServiceException {
         logger.info("Generando estrategia para rechazar devolución");
         
-        String objective = "rechazar una devolución de manera diplomática y mantener la relación con el cliente";
-        
         try {
-            return aiServiceAdapter.analyzeSalesConversation(salesConversation, objective);
+            return aiServiceAdapter.analyzeSalesConversation(salesConversation, OBJECTIVE);
         } catch (AIServiceException e) {
             logger.error("Error generando estrategia de rechazo de devolución", e);
             throw new AIServiceException("Error al generar consejos para rechazar devolución", e);
         }
     }
     
+    @Override
+    public CompletableFuture<String> generateResponseAsync(String salesConversation) {
+        logger.info("Generando estrategia para rechazar devolución");
+        
+        return wrapErrors(config.isAiBatchRefundEnabled()
+            ? aiServiceAdapter.analyzeSalesConversationBatched(salesConversation, OBJECTIVE)
+            : aiServiceAdapter.analyzeSalesConversationAsync(salesConversation, OBJECTIVE));
+    }
+    
+    @Override
+    public CompletableFuture<String> generateResponseStreaming(String salesConversation,
+                                                               Consumer<Supplier<String>> onPartial) {
+        logger.info("Generando estrategia para rechazar devolución (streaming)");
+        
+        return wrapErrors(aiServiceAdapter.analyzeSalesConversationStreaming(salesConversation, OBJECTIVE, onPartial));
+    }
+    
+    /**
+     * Envuelve los errores de la IA en una excepción propia de esta estrategia
+     */
+    private CompletableFuture<String> wrapErrors(CompletableFuture<String> response) {
+        return response.exceptionally(error -> {
+            logger.error("Error generando estrategia de rechazo de devolución", AIServiceException.unwrap(error));
+            throw new CompletionException(
+                new AIServiceException("Error al generar consejos para rechazar devolución", AIServiceException.unwrap(error)));
+        });
+    }
+    
     @Override
     public String getStrategyName() {
         return "Rechazo de Devolución";
@@ -0,0 +1,203 @@
+package com.telegrambotapi.strategy;
+
+import com.telegrambotapi.config.ConfigurationManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caché LRU con expiración por TTL para las respuestas de las estrategias de IA.
+ * La clave combina el tipo de estrategia con un hash de la entrada normalizada
+ * (minúsculas y espacios colapsados), de modo que la misma transcripción pegada
+ * en varios chats se resuelve con una sola llamada a la IA.
+ */
+@Component
+public class ResponseCache {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCache.class);
+    
+    @Autowired
+    private ConfigurationManager config;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(64, 0.75f, true);
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    
+    /**
+     * Respuesta almacenada junto con su instante de expiración
+     */
+    private static final class CachedResponse {
+        private final String response;
+        private final long expiresAtMillis;
+        
+        private CachedResponse(String response, long expiresAtMillis) {
+            this.response = response;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+    
+    /**
+     * Busca una respuesta vigente para la estrategia y la entrada indicadas
+     * @param strategyType el tipo de estrategia
+     * @param input la entrada original (se normaliza internamente)
+     * @return la respuesta almacenada, o null si no existe o ha expirado
+     */
+    public String get(ResponseContext.StrategyType strategyType, String input) {
+        if (!config.isAiCacheEnabled()) {
+            return null;
+        }
+        
+        String key = buildKey(strategyType, input);
+        lock.lock();
+        try {
+            CachedResponse cached = entries.get(key);
+            if (cached != null && cached.expiresAtMillis > System.currentTimeMillis()) {
+                hits.incrementAndGet();
+                return cached.response;
+            }
+            if (cached != null) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        misses.incrementAndGet();
+        return null;
+    }
+    
+    /**
+     * Almacena la respuesta de una estrategia, expulsando las entradas menos usadas si se supera el tamaño
+     * @param strategyType el tipo de estrategia
+     * @param input la entrada original (se normaliza internamente)
+     * @param response la respuesta generada por la IA
+     */
+    public void put(ResponseContext.StrategyType strategyType, String input, String response) {
+        if (!config.isAiCacheEnabled() || response == null) {
+            return;
+        }
+        
+        String key = buildKey(strategyType, input);
+        long expiresAt = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(config.getAiCacheTtlMinutes());
+        lock.lock();
+        try {
+            entries.put(key, new CachedResponse(response, expiresAt));
+            evictExpiredAndOverflow();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Vacía la caché
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+        logger.info("Caché de respuestas vaciada");
+    }
+    
+    /**
+     * Obtiene estadísticas de aciertos y fallos de la caché
+     */
+    public Map<String, Object> getStatistics() {
+        int size;
+        lock.lock();
+        try {
+            size = entries.size();
+        } finally {
+            lock.unlock();
+        }
+        
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long lookups = hitCount + missCount;
+        
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("habilitada", config.isAiCacheEnabled());
+        stats.put("entradas", size);
+        stats.put("entradasMaximas", config.getAiCacheMaxEntries());
+        stats.put("aciertos", hitCount);
+        stats.put("fallos", missCount);
+        stats.put("expulsiones", evictions.get());
+        stats.put("tasaAciertos", lookups > 0 ? (double) hitCount / lookups : 0.0);
+        return stats;
+    }
+    
+    /**
+     * Expulsa primero las entradas expiradas y después las menos usadas hasta respetar el tamaño máximo
+     */
+    private void evictExpiredAndOverflow() {
+        long now = System.currentTimeMillis();
+        Iterator<CachedResponse> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            CachedResponse cached = iterator.next();
+            if (cached.expiresAtMillis <= now || entries.size() > config.getAiCacheMaxEntries()) {
+                iterator.remove();
+                evictions.incrementAndGet();
+            } else {
+                // Orden LRU: el resto de entradas son más recientes
+                break;
+            }
+        }
+    }
+    
+    /**
+     * Construye la clave a partir del tipo de estrategia y del hash de la entrada normalizada
+     */
+    static String buildKey(ResponseContext.StrategyType strategyType, String input) {
+        return strategyType.name() + ":" + hash(normalize(input));
+    }
+    
+    /**
+     * Normaliza la entrada: minúsculas y secuencias de espacios reducidas a un único espacio
+     */
+    static String normalize(String input) {
+        StringBuilder normalized = new StringBuilder(input.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    normalized.append(' ');
+                    pendingSpace = false;
+                }
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+    
+    private static String hash(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 está garantizado en toda JVM
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
\ No newline at end of file
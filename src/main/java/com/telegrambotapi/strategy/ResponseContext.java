@@ -1,13 +1,25 @@
 package com.telegrambotapi.strategy;
 
 import com.telegrambotapi.adapter.AIServiceException;
+import com.telegrambotapi.stats.BotStatistics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Contexto del patrón Strategy que gestiona las diferentes estrategias de respuesta.
@@ -30,7 +42,20 @@ public class ResponseContext {
     @Autowired
     private PurchaseMotivationStrategy purchaseMotivationStrategy;
     
-    private final Map<StrategyType, ResponseStrategy> strategies = new HashMap<>();
+    @Autowired
+    private PromptTrimmer promptTrimmer;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private BotStatistics botStatistics;
+    
+    private final Map<StrategyType, ResponseStrategy> strategies = new EnumMap<>(StrategyType.class);
+    
+    // Llamadas en curso por estrategia y entrada normalizada; las peticiones idénticas se unen a ellas
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedCount = new AtomicLong();
     
     /**
      * Tipos de estrategias disponibles
@@ -43,8 +68,10 @@ public class ResponseContext {
     }
     
     /**
-     * Inicializa las estrategias después de la inyección de dependencias
+     * Inicializa las estrategias después de la inyección de dependencias,
+     * antes de que el contexto se comparta entre hilos
      */
+    @PostConstruct
     public void initializeStrategies() {
         strategies.put(StrategyType.JOKE_GENERATION, jokeGenerationStrategy);
         strategies.put(StrategyType.REFUND_REJECTION, refundRejectionStrategy);
@@ -62,6 +89,121 @@ public class ResponseContext {
      * @throws AIServiceException si ocurre un error al ejecutar la estrategia
      */
     public String executeStrategy(StrategyType strategyType, String input) throws AIServiceException {
+        try {
+            return executeStrategyAsync(strategyType, input).join();
+        } catch (CompletionException e) {
+            Throwable cause = AIServiceException.unwrap(e);
+            if (cause instanceof AIServiceException) {
+                throw (AIServiceException) cause;
+            }
+            throw new AIServiceException("Error ejecutando estrategia: " + cause.getMessage(), cause);
+        }
+    }
+    
+    /**
+     * Ejecuta una estrategia específica sin bloquear el hilo que la solicita.
+     * Si ya hay una llamada en curso con la misma estrategia y la misma entrada normalizada,
+     * la petición se une a ella y recibe su mismo resultado o error.
+     * @param strategyType el tipo de estrategia a ejecutar
+     * @param input la entrada para la estrategia
+     * @return un futuro con la respuesta, completado excepcionalmente con
+     *         {@link AIServiceException} si la estrategia no existe, no está disponible o falla
+     */
+    public CompletableFuture<String> executeStrategyAsync(StrategyType strategyType, String input) {
+        return execute(strategyType, input, null);
+    }
+    
+    /**
+     * Ejecuta una estrategia en modo streaming, notificando el texto parcial a medida que se genera.
+     * Si la petición se une a una llamada idéntica ya en curso, solo recibe la respuesta completa.
+     * @param strategyType el tipo de estrategia a ejecutar
+     * @param input la entrada para la estrategia
+     * @param onPartial recibe un proveedor del texto acumulado hasta el momento; no debe bloquear
+     * @return un futuro con la respuesta completa
+     */
+    public CompletableFuture<String> executeStrategyStreaming(StrategyType strategyType, String input,
+                                                              Consumer<Supplier<String>> onPartial) {
+        return execute(strategyType, input, onPartial);
+    }
+    
+    /**
+     * Resuelve la estrategia y la ejecuta, uniendo la petición a una llamada idéntica en curso si existe
+     */
+    private CompletableFuture<String> execute(StrategyType strategyType, String input,
+                                              Consumer<Supplier<String>> onPartial) {
+        ResponseStrategy strategy;
+        try {
+            strategy = resolveAvailableStrategy(strategyType);
+        } catch (AIServiceException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        String key = ResponseCache.buildKey(strategyType, input);
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> shared = inFlight.putIfAbsent(key, pending);
+        
+        if (shared != null) {
+            coalescedCount.incrementAndGet();
+            logger.info("Uniendo petición a llamada en curso: {}", strategy.getStrategyName());
+            // Copia: cancelar o completar el futuro de un llamante no afecta a los demás
+            return shared.copy();
+        }
+        
+        logger.info("Ejecutando estrategia asíncrona: {}", strategy.getStrategyName());
+        long startNanos = System.nanoTime();
+        CompletableFuture<String> response;
+        try {
+            // La clave usa la entrada original; a la IA solo llega lo que cabe en el presupuesto de tokens
+            String trimmedInput = promptTrimmer.trim(strategyType, input);
+            response = onPartial != null
+                ? strategy.generateResponseStreaming(trimmedInput, onPartial)
+                : strategy.generateResponseAsync(trimmedInput);
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        
+        response.whenComplete((result, error) -> {
+            // La clave se libera antes de notificar, para que las peticiones posteriores hagan una llamada nueva
+            inFlight.remove(key, pending);
+            recordLatency(strategyType, startNanos, error == null);
+            if (error != null) {
+                pending.completeExceptionally(AIServiceException.unwrap(error));
+            } else {
+                pending.complete(result);
+            }
+        });
+        return pending.copy();
+    }
+    
+    /**
+     * Registra la latencia de una llamada real a la estrategia; las peticiones unidas no cuentan
+     */
+    private void recordLatency(StrategyType strategyType, long startNanos, boolean success) {
+        long durationNanos = System.nanoTime() - startNanos;
+        botStatistics.recordStrategy(strategyType.name(), durationNanos, success);
+        Timer.builder("bot.strategy.duration")
+            .description("Latencia de ejecución por estrategia")
+            .tag("estrategia", strategyType.name())
+            .tag("resultado", success ? "exito" : "error")
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Obtiene estadísticas de las llamadas en curso y de las peticiones unidas a ellas
+     */
+    public Map<String, Object> getCoalescingStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("llamadasEnCurso", inFlight.size());
+        stats.put("peticionesUnidas", coalescedCount.get());
+        return stats;
+    }
+    
+    /**
+     * Obtiene la estrategia solicitada verificando que exista y esté disponible
+     */
+    private ResponseStrategy resolveAvailableStrategy(StrategyType strategyType) throws AIServiceException {
         if (strategies.isEmpty()) {
             initializeStrategies();
         }
@@ -76,8 +218,7 @@ public class ResponseContext {
             throw new AIServiceException("Estrategia no disponible: " + strategy.getStrategyName());
         }
         
-        logger.info("Ejecutando estrategia: {}", strategy.getStrategyName());
-        return strategy.generateResponse(input);
+        return strategy;
     }
     
     /**
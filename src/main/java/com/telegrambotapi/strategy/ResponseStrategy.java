@@ -2,6 +2,10 @@ package com.telegrambotapi.strategy;
 
 import com.telegrambotapi.adapter.AIServiceException;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
 /**
  * Interfaz del patrón Strategy para diferentes estrategias de respuesta.
  * Permite cambiar dinámicamente la lógica de respuesta según el objetivo específico.
@@ -16,6 +20,25 @@ public interface ResponseStrategy {
      */
     String generateResponse(String input) throws AIServiceException;
     
+    /**
+     * Genera una respuesta sin bloquear el hilo que la solicita
+     * @param input la entrada del usuario o contexto
+     * @return un futuro con la respuesta, completado excepcionalmente con
+     *         {@link AIServiceException} si ocurre un error al generarla
+     */
+    CompletableFuture<String> generateResponseAsync(String input);
+    
+    /**
+     * Genera una respuesta notificando el texto parcial a medida que se produce.
+     * Por defecto la estrategia no admite streaming y equivale a {@link #generateResponseAsync(String)}.
+     * @param input la entrada del usuario o contexto
+     * @param onPartial recibe un proveedor del texto acumulado hasta el momento; no debe bloquear
+     * @return un futuro con la respuesta completa
+     */
+    default CompletableFuture<String> generateResponseStreaming(String input, Consumer<Supplier<String>> onPartial) {
+        return generateResponseAsync(input);
+    }
+    
     /**
      * Obtiene el nombre de la estrategia
      * @return el nombre descriptivo de la estrategia
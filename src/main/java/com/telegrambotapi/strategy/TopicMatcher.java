@@ -0,0 +1,280 @@
+package com.telegrambotapi.strategy;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detector de términos compilado como autómata Aho-Corasick: temas sensibles para los chistes
+ * y palabras clave de relevancia para el recorte de prompts.
+ * <p>
+ * Los términos y el texto se normalizan igual (minúsculas y sin acentos: "Pérdida", "PÉRDIDA" y
+ * "perdida" son equivalentes), y el texto se recorre una sola vez sin importar el tamaño del léxico.
+ * Los términos solo coinciden al inicio de una palabra:
+ * <ul>
+ *   <li>{@code muert*}: raíz; coincide con cualquier palabra que empiece así (muerte, muertos...)</li>
+ *   <li>{@code luto}: palabra completa, admitiendo el plural en -s/-es (luto, lutos)</li>
+ *   <li>{@code mal diagnostico}: varias palabras separadas por un espacio</li>
+ * </ul>
+ * Las instancias son inmutables y seguras entre hilos.
+ */
+public final class TopicMatcher {
+    
+    // Plegado precalculado para Latin-1 y Latin Extended-A/B (el resto solo pasa a minúsculas)
+    private static final char[] FOLD = new char[0x250];
+    
+    static {
+        for (char c = 0; c < FOLD.length; c++) {
+            String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            FOLD[c] = isSpace(c) ? ' ' : Character.toLowerCase(decomposed.charAt(0));
+        }
+    }
+    
+    private static final int ROOT = 0;
+    private static final int NO_OUTPUT = -1;
+    
+    // Alfabeto compacto: símbolo de cada carácter plegado del léxico (-1 si no aparece en ningún término).
+    // Los caracteres del rango de FOLD van en un array; el resto, en un mapa que casi nunca se consulta.
+    private final int[] symbols = new int[FOLD.length];
+    private final Map<Character, Integer> otherSymbols = new HashMap<>();
+    private final int alphabetSize;
+    // Tabla de transiciones completa (DFA): transitions[estado * alphabetSize + símbolo]
+    private final int[] transitions;
+    // Longitud del término que termina en cada estado (NO_OUTPUT si ninguno)
+    private final int[] outputLength;
+    private final boolean[] outputIsPrefix;
+    // Siguiente estado con salida en la cadena de fallos (enlace de diccionario)
+    private final int[] dictionaryLink;
+    private final int termCount;
+    
+    private TopicMatcher(Map<String, Boolean> terms) {
+        this.termCount = terms.size();
+        
+        // 1. Trie de los términos plegados
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        List<Boolean> prefixes = new ArrayList<>();
+        children.add(new HashMap<>());
+        lengths.add(NO_OUTPUT);
+        prefixes.add(false);
+        
+        Map<Character, Integer> alphabet = new HashMap<>();
+        for (Map.Entry<String, Boolean> term : terms.entrySet()) {
+            String text = term.getKey();
+            int state = ROOT;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                alphabet.putIfAbsent(c, alphabet.size());
+                Integer next = children.get(state).get(c);
+                if (next == null) {
+                    next = children.size();
+                    children.get(state).put(c, next);
+                    children.add(new HashMap<>());
+                    lengths.add(NO_OUTPUT);
+                    prefixes.add(false);
+                }
+                state = next;
+            }
+            lengths.set(state, text.length());
+            prefixes.set(state, term.getValue());
+        }
+        
+        int stateCount = children.size();
+        Arrays.fill(symbols, -1);
+        alphabet.forEach((c, symbol) -> {
+            if (c < symbols.length) {
+                symbols[c] = symbol;
+            } else {
+                otherSymbols.put(c, symbol);
+            }
+        });
+        this.alphabetSize = Math.max(1, alphabet.size());
+        this.transitions = new int[stateCount * alphabetSize];
+        this.outputLength = new int[stateCount];
+        this.outputIsPrefix = new boolean[stateCount];
+        this.dictionaryLink = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            outputLength[state] = lengths.get(state);
+            outputIsPrefix[state] = prefixes.get(state);
+        }
+        
+        // 2. Enlaces de fallo en anchura y compilación a DFA completo
+        int[] failure = new int[stateCount];
+        Arrays.fill(dictionaryLink, NO_OUTPUT);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (Map.Entry<Character, Integer> edge : children.get(ROOT).entrySet()) {
+            transitions[alphabet.get(edge.getKey())] = edge.getValue();
+            failure[edge.getValue()] = ROOT;
+            queue.add(edge.getValue());
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int fail = failure[state];
+            dictionaryLink[state] = outputLength[fail] != NO_OUTPUT ? fail : dictionaryLink[fail];
+            
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                transitions[state * alphabetSize + symbol] = transitions[fail * alphabetSize + symbol];
+            }
+            for (Map.Entry<Character, Integer> edge : children.get(state).entrySet()) {
+                int child = edge.getValue();
+                int symbol = alphabet.get(edge.getKey());
+                failure[child] = transitions[fail * alphabetSize + symbol];
+                transitions[state * alphabetSize + symbol] = child;
+                queue.add(child);
+            }
+        }
+    }
+    
+    /**
+     * Compila un matcher a partir de una lista de términos (ver la sintaxis en la clase)
+     */
+    public static TopicMatcher compile(Iterable<String> rawTerms) {
+        return new TopicMatcher(normalizeTerms(rawTerms));
+    }
+    
+    /**
+     * Lee un léxico en UTF-8: un término por línea; se ignoran las líneas vacías y las que empiezan por #
+     */
+    public static TopicMatcher load(InputStream lexicon) throws IOException {
+        List<String> terms = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(lexicon, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String term = line.strip();
+                if (!term.isEmpty() && !term.startsWith("#")) {
+                    terms.add(term);
+                }
+            }
+        }
+        return compile(terms);
+    }
+    
+    /**
+     * Número de términos distintos compilados
+     */
+    public int size() {
+        return termCount;
+    }
+    
+    /**
+     * Indica si el texto menciona algún término del léxico
+     */
+    public boolean matches(CharSequence text) {
+        return findFirst(text) >= 0;
+    }
+    
+    /**
+     * Posición donde empieza la primera coincidencia en el texto, o -1 si no hay ninguna
+     */
+    public int findFirst(CharSequence text) {
+        if (text == null || termCount == 0) {
+            return -1;
+        }
+        
+        int state = ROOT;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            int symbol = symbolOf(fold(text.charAt(i)));
+            if (symbol < 0) {
+                state = ROOT;
+                continue;
+            }
+            state = transitions[state * alphabetSize + symbol];
+            
+            int candidate = outputLength[state] != NO_OUTPUT ? state : dictionaryLink[state];
+            while (candidate != NO_OUTPUT) {
+                int start = i - outputLength[candidate] + 1;
+                if (isWordStart(text, start) && (outputIsPrefix[candidate] || isWordEnd(text, i + 1))) {
+                    return start;
+                }
+                candidate = dictionaryLink[candidate];
+            }
+        }
+        return -1;
+    }
+    
+    private int symbolOf(char c) {
+        if (c < symbols.length) {
+            return symbols[c];
+        }
+        return otherSymbols.getOrDefault(c, -1);
+    }
+    
+    private static boolean isWordStart(CharSequence text, int start) {
+        return start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1));
+    }
+    
+    /**
+     * Fin de palabra tras la coincidencia, admitiendo el plural en -s o -es
+     */
+    private static boolean isWordEnd(CharSequence text, int end) {
+        if (isBoundary(text, end)) {
+            return true;
+        }
+        char next = fold(text.charAt(end));
+        if (next == 's') {
+            return isBoundary(text, end + 1);
+        }
+        return next == 'e' && end + 1 < text.length() && fold(text.charAt(end + 1)) == 's'
+            && isBoundary(text, end + 2);
+    }
+    
+    private static boolean isBoundary(CharSequence text, int index) {
+        return index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+    }
+    
+    /**
+     * Minúsculas sin diacríticos; los espacios (incluidos los de no separación) pasan a ' '
+     */
+    static char fold(char c) {
+        if (c < FOLD.length) {
+            return FOLD[c];
+        }
+        return isSpace(c) ? ' ' : Character.toLowerCase(c);
+    }
+    
+    private static boolean isSpace(char c) {
+        return Character.isWhitespace(c) || Character.isSpaceChar(c);
+    }
+    
+    static String fold(String text) {
+        StringBuilder folded = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            folded.append(fold(text.charAt(i)));
+        }
+        return folded.toString();
+    }
+    
+    /**
+     * Términos plegados y sin duplicados, con su modo (true = raíz). Si un término aparece
+     * como palabra completa y como raíz, prevalece la raíz.
+     */
+    private static Map<String, Boolean> normalizeTerms(Iterable<String> rawTerms) {
+        Map<String, Boolean> terms = new LinkedHashMap<>();
+        for (String raw : rawTerms) {
+            if (raw == null) {
+                continue;
+            }
+            String term = raw.strip();
+            boolean prefix = term.endsWith("*");
+            if (prefix) {
+                term = term.substring(0, term.length() - 1).strip();
+            }
+            String folded = fold(term).replaceAll(" +", " ");
+            if (!folded.isEmpty()) {
+                terms.merge(folded, prefix, Boolean::logicalOr);
+            }
+        }
+        return terms;
+    }
+}
\ No newline at end of file
@@ -2,11 +2,17 @@ package com.telegrambotapi.strategy;
 
 import com.telegrambotapi.adapter.AIServiceAdapter;
 import com.telegrambotapi.adapter.AIServiceException;
+import com.telegrambotapi.config.ConfigurationManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
 /**
  * Estrategia para técnicas de upselling.
  * Implementa el patrón Strategy para asesoramiento en upselling.
@@ -15,24 +21,55 @@ import org.springframework.stereotype.Component;
 public class UpsellingStrategy implements ResponseStrategy {
     
     private static final Logger logger = LoggerFactory.getLogger(UpsellingStrategy.class);
+    private static final String OBJECTIVE = 
+        "realizar upselling sugiriendo productos mejores o adicionales que aporten valor al cliente";
     
     @Autowired
     private AIServiceAdapter aiServiceAdapter;
     
+    @Autowired
+    private ConfigurationManager config;
+    
     @Override
     public String generateResponse(String salesConversation) throws AIServiceException {
         logger.info("Generando estrategia de upselling");
         
-        String objective = "realizar upselling sugiriendo productos mejores o adicionales que aporten valor al cliente";
-        
         try {
-            return aiServiceAdapter.analyzeSalesConversation(salesConversation, objective);
+            return aiServiceAdapter.analyzeSalesConversation(salesConversation, OBJECTIVE);
         } catch (AIServiceException e) {
             logger.error("Error generando estrategia de upselling", e);
             throw new AIServiceException("Error al generar consejos de upselling", e);
         }
     }
     
+    @Override
+    public CompletableFuture<String> generateResponseAsync(String salesConversation) {
+        logger.info("Generando estrategia de upselling");
+        
+        return wrapErrors(config.isAiBatchUpsellingEnabled()
+            ? aiServiceAdapter.analyzeSalesConversationBatched(salesConversation, OBJECTIVE)
+            : aiServiceAdapter.analyzeSalesConversationAsync(salesConversation, OBJECTIVE));
+    }
+    
+    @Override
+    public CompletableFuture<String> generateResponseStreaming(String salesConversation,
+                                                               Consumer<Supplier<String>> onPartial) {
+        logger.info("Generando estrategia de upselling (streaming)");
+        
+        return wrapErrors(aiServiceAdapter.analyzeSalesConversationStreaming(salesConversation, OBJECTIVE, onPartial));
+    }
+    
+    /**
+     * Envuelve los errores de la IA en una excepción propia de esta estrategia
+     */
+    private CompletableFuture<String> wrapErrors(CompletableFuture<String> response) {
+        return response.exceptionally(error -> {
+            logger.error("Error generando estrategia de upselling", AIServiceException.unwrap(error));
+            throw new CompletionException(
+                new AIServiceException("Error al generar consejos de upselling", AIServiceException.unwrap(error)));
+        });
+    }
+    
     @Override
     public String getStrategyName() {
         return "Upselling";
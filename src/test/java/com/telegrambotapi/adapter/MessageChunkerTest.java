@@ -0,0 +1,134 @@
+package com.telegrambotapi.adapter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.telegrambotapi.adapter.MessageChunker.MAX_MESSAGE_LENGTH;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageChunkerTest {
+
+    @Test
+    void textAtTheLimitStaysInOneMessage() {
+        String exact = "a".repeat(MAX_MESSAGE_LENGTH);
+
+        assertEquals(List.of(exact), MessageChunker.split(exact, MAX_MESSAGE_LENGTH));
+        assertEquals(MAX_MESSAGE_LENGTH, MessageChunker.splitPoint(exact, MAX_MESSAGE_LENGTH));
+    }
+
+    @Test
+    void oneCharacterOverTheLimitSplits() {
+        String over = "a".repeat(MAX_MESSAGE_LENGTH + 1);
+
+        List<String> chunks = MessageChunker.split(over, MAX_MESSAGE_LENGTH);
+
+        assertEquals(2, chunks.size());
+        assertEquals(MAX_MESSAGE_LENGTH, chunks.get(0).length());
+        assertEquals("a", chunks.get(1));
+    }
+
+    @Test
+    void prefersParagraphBreak() {
+        String first = words(3000);
+        String text = first + "\n\n" + words(900) + "\nOtra línea. Otra frase " + words(1000);
+
+        List<String> chunks = MessageChunker.split(text, MAX_MESSAGE_LENGTH);
+
+        assertEquals(first, chunks.get(0));
+        assertAllFit(chunks);
+    }
+
+    @Test
+    void fallsBackToLineBreak() {
+        String first = words(3000);
+        String text = first + "\n" + words(900) + ". Otra frase " + words(1000);
+
+        List<String> chunks = MessageChunker.split(text, MAX_MESSAGE_LENGTH);
+
+        assertEquals(first, chunks.get(0));
+        assertAllFit(chunks);
+    }
+
+    @Test
+    void fallsBackToSentenceEnd() {
+        String first = words(2500) + ". " + words(500) + "?";
+        String text = first + " " + words(2000);
+
+        List<String> chunks = MessageChunker.split(text, MAX_MESSAGE_LENGTH);
+
+        assertEquals(first, chunks.get(0));
+        assertAllFit(chunks);
+    }
+
+    @Test
+    void fallsBackToSpaceBetweenWords() {
+        String text = words(5000);
+
+        List<String> chunks = MessageChunker.split(text, MAX_MESSAGE_LENGTH);
+
+        assertAllFit(chunks);
+        for (int i = 0; i + 1 < chunks.size(); i++) {
+            // Ninguna palabra queda partida entre dos fragmentos
+            assertTrue(chunks.get(i).endsWith("palabra"), chunks.get(i));
+            assertTrue(chunks.get(i + 1).startsWith("palabra"), chunks.get(i + 1));
+        }
+        assertEquals(text, String.join(" ", chunks));
+    }
+
+    @Test
+    void ignoresSeparatorsInTheFirstHalf() {
+        String head = "corto.\n\n";
+        String text = head + "x".repeat(MAX_MESSAGE_LENGTH);
+
+        assertEquals(MAX_MESSAGE_LENGTH, MessageChunker.splitPoint(text, MAX_MESSAGE_LENGTH));
+    }
+
+    @Test
+    void wordLongerThanTheLimitIsCutHard() {
+        String word = "w".repeat(MAX_MESSAGE_LENGTH * 2 + 10);
+        String text = "inicio " + word + " final";
+
+        List<String> chunks = MessageChunker.split(text, MAX_MESSAGE_LENGTH);
+
+        assertAllFit(chunks);
+        assertEquals(text.replace(" ", ""), String.join("", chunks).replace(" ", ""));
+    }
+
+    @Test
+    void neverSplitsASurrogatePair() {
+        String emoji = "😀";
+        String text = "a".repeat(MAX_MESSAGE_LENGTH - 1) + emoji + "b".repeat(10);
+
+        List<String> chunks = MessageChunker.split(text, MAX_MESSAGE_LENGTH);
+
+        assertEquals(MAX_MESSAGE_LENGTH - 1, chunks.get(0).length());
+        assertTrue(chunks.get(1).startsWith(emoji));
+        assertEquals(text, String.join("", chunks));
+    }
+
+    @Test
+    void whitespaceOnlyTextProducesNoMessages() {
+        assertEquals(List.of(), MessageChunker.split(" \n\n\t ", MAX_MESSAGE_LENGTH));
+    }
+
+    /**
+     * Texto de palabras separadas por espacios, de la longitud indicada y terminado en palabra completa
+     */
+    private static String words(int length) {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < length) {
+            text.append(text.length() == 0 ? "" : " ").append("palabra");
+        }
+        return text.toString();
+    }
+
+    private static void assertAllFit(List<String> chunks) {
+        assertTrue(chunks.size() > 1);
+        for (String chunk : chunks) {
+            assertTrue(chunk.length() <= MAX_MESSAGE_LENGTH, "fragmento de " + chunk.length());
+            assertEquals(chunk.strip(), chunk);
+        }
+    }
+}
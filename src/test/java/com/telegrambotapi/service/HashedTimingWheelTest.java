@@ -0,0 +1,157 @@
+package com.telegrambotapi.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * La rueda nunca dispara antes del plazo, así que las comprobaciones de tiempo son cotas
+ * inferiores exactas; las superiores solo son esperas generosas para no colgar el test.
+ */
+class HashedTimingWheelTest {
+
+    private static final long TICK_MS = 10;
+    private static final int WHEEL_SIZE = 4;
+    private static final long ROUND_MS = TICK_MS * WHEEL_SIZE;
+
+    private final HashedTimingWheel wheel = new HashedTimingWheel("test-wheel", TICK_MS, TimeUnit.MILLISECONDS, WHEEL_SIZE);
+
+    @AfterEach
+    void closeWheel() {
+        wheel.close();
+    }
+
+    @Test
+    void firesNoEarlierThanTheDelay() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicLong elapsedMs = new AtomicLong();
+        long start = System.nanoTime();
+
+        wheel.schedule(() -> {
+            elapsedMs.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            fired.countDown();
+        }, 25, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(elapsedMs.get() >= 25, "disparó a los " + elapsedMs.get() + " ms");
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+
+    @Test
+    void delayLongerThanTheWheelWaitsForItsRounds() throws InterruptedException {
+        // Las dos caen en la misma casilla; la segunda necesita dos vueltas más
+        long shortDelay = TICK_MS + 5;
+        long longDelay = shortDelay + 2 * ROUND_MS;
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch fired = new CountDownLatch(2);
+        AtomicLong longElapsedMs = new AtomicLong();
+        long start = System.nanoTime();
+
+        wheel.schedule(() -> {
+            longElapsedMs.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            order.add("larga");
+            fired.countDown();
+        }, longDelay, TimeUnit.MILLISECONDS);
+        wheel.schedule(() -> {
+            order.add("corta");
+            fired.countDown();
+        }, shortDelay, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of("corta", "larga"), order);
+        assertTrue(longElapsedMs.get() >= longDelay, "disparó a los " + longElapsedMs.get() + " ms");
+    }
+
+    @Test
+    void manyTicksPastTheWheelSize() throws InterruptedException {
+        long delay = 10 * ROUND_MS + 3 * TICK_MS;
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicLong elapsedMs = new AtomicLong();
+        long start = System.nanoTime();
+
+        wheel.schedule(() -> {
+            elapsedMs.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            fired.countDown();
+        }, delay, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(3, TimeUnit.SECONDS));
+        assertTrue(elapsedMs.get() >= delay, "disparó a los " + elapsedMs.get() + " ms");
+    }
+
+    @Test
+    void cancelledBeforeTransferNeverRuns() throws InterruptedException {
+        AtomicBoolean cancelledRan = new AtomicBoolean();
+        CountDownLatch marker = new CountDownLatch(1);
+
+        wheel.schedule(() -> cancelledRan.set(true), 2 * TICK_MS, TimeUnit.MILLISECONDS).cancel();
+        wheel.schedule(marker::countDown, 5 * TICK_MS, TimeUnit.MILLISECONDS);
+
+        assertTrue(marker.await(2, TimeUnit.SECONDS));
+        assertFalse(cancelledRan.get());
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+
+    @Test
+    void cancelledWhileWaitingInItsBucketIsDiscarded() throws InterruptedException {
+        AtomicBoolean cancelledRan = new AtomicBoolean();
+        HashedTimingWheel.Timeout timeout =
+            wheel.schedule(() -> cancelledRan.set(true), 3 * ROUND_MS, TimeUnit.MILLISECONDS);
+
+        // Tras un par de ticks ya está repartido en su casilla
+        Thread.sleep(3 * TICK_MS);
+        assertEquals(1, wheel.pendingTimeouts());
+        timeout.cancel();
+
+        // Se descarta la próxima vez que la rueda pasa por su casilla, sin esperar sus vueltas
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (wheel.pendingTimeouts() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(TICK_MS);
+        }
+        assertEquals(0, wheel.pendingTimeouts());
+        Thread.sleep(3 * ROUND_MS);
+        assertFalse(cancelledRan.get());
+    }
+
+    @Test
+    void zeroDelayFiresOnTheNextTick() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+
+        wheel.schedule(fired::countDown, 0, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failingTaskDoesNotStopTheWheel() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+
+        wheel.schedule(() -> {
+            throw new IllegalStateException("fallo de prueba");
+        }, TICK_MS, TimeUnit.MILLISECONDS);
+        wheel.schedule(fired::countDown, 3 * TICK_MS, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void closeDropsPendingTimeouts() throws InterruptedException {
+        AtomicBoolean ran = new AtomicBoolean();
+
+        wheel.schedule(() -> ran.set(true), 5 * TICK_MS, TimeUnit.MILLISECONDS);
+        wheel.close();
+
+        Thread.sleep(10 * TICK_MS);
+        assertFalse(ran.get());
+        assertEquals(1, wheel.pendingTimeouts());
+    }
+}
@@ -0,0 +1,168 @@
+package com.telegrambotapi.service;
+
+import com.telegrambotapi.adapter.MessageChunker;
+import com.telegrambotapi.adapter.TelegramServiceAdapter;
+import com.telegrambotapi.config.ConfigurationManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingReplyServiceTest {
+
+    private static final long EDIT_INTERVAL_MS = 100;
+
+    private final FakeTelegram telegram = new FakeTelegram();
+    private final StreamingReplyService service = new StreamingReplyService();
+
+    @BeforeEach
+    void startService() {
+        ConfigurationManager config = BeanUtils.instantiateClass(ConfigurationManager.class);
+        config.setStreamingEnabled(true);
+        config.setStreamingEditIntervalMs((int) EDIT_INTERVAL_MS);
+        ReflectionTestUtils.setField(service, "config", config);
+        ReflectionTestUtils.setField(service, "telegramAdapter", telegram);
+        service.initialize();
+    }
+
+    @AfterEach
+    void stopService() {
+        service.shutdown();
+    }
+
+    @Test
+    void finalTextIsTheLastEditAfterALateRollover() throws Exception {
+        CompletableFuture<String> answer = new CompletableFuture<>();
+        List<Consumer<Supplier<String>>> partials = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> delivered = service.reply("chat", "Pensando...", onPartial -> {
+            partials.add(onPartial);
+            return answer;
+        });
+        assertEquals(1, partials.size());
+
+        // El texto parcial ya no cabe en un mensaje: se abre uno de continuación cuyo ID tarda en llegar
+        String first = words(MessageChunker.MAX_MESSAGE_LENGTH + 500);
+        partials.get(0).accept(() -> first);
+        waitUntil(() -> telegram.continuation != null);
+
+        String second = first + " más texto";
+        partials.get(0).accept(() -> second);
+        Thread.sleep(3 * EDIT_INTERVAL_MS);
+
+        String finalText = second + " y el final.";
+        answer.complete(finalText);
+        assertFalse(delivered.isDone());
+
+        telegram.continuation.complete(2);
+        delivered.get(2, TimeUnit.SECONDS);
+
+        List<String> continuationEdits = telegram.editsOf(2);
+        assertTrue(continuationEdits.size() >= 2, continuationEdits.toString());
+        String last = continuationEdits.get(continuationEdits.size() - 1);
+        assertTrue(finalText.endsWith(last), last);
+        assertFalse(last.endsWith("▌"), last);
+        for (int i = 1; i < continuationEdits.size(); i++) {
+            // Las ediciones nunca retroceden
+            String previous = continuationEdits.get(i - 1).replace(" ▌", "");
+            assertTrue(continuationEdits.get(i).startsWith(previous), continuationEdits.toString());
+        }
+
+        List<String> firstEdits = telegram.editsOf(1);
+        assertFalse(firstEdits.isEmpty());
+        assertTrue(first.startsWith(firstEdits.get(firstEdits.size() - 1)));
+    }
+
+    private static String words(int length) {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < length) {
+            text.append(text.length() == 0 ? "" : " ").append("palabra");
+        }
+        return text.toString();
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    /**
+     * Telegram simulado: el mensaje provisional tiene ID 1 y el de continuación queda pendiente
+     * hasta que el test completa su futuro. Registra las ediciones en el orden en que se encolan.
+     */
+    private static final class FakeTelegram implements TelegramServiceAdapter {
+
+        private final List<Object[]> edits = new CopyOnWriteArrayList<>();
+        private volatile CompletableFuture<Integer> continuation;
+        private int sent;
+
+        @Override
+        public synchronized CompletableFuture<Integer> sendTextMessageAsync(String chatId, String text) {
+            if (++sent == 1) {
+                return CompletableFuture.completedFuture(1);
+            }
+            continuation = new CompletableFuture<>();
+            return continuation;
+        }
+
+        @Override
+        public CompletableFuture<Boolean> editTextMessageAsync(String chatId, Integer messageId, String text) {
+            edits.add(new Object[] {messageId, text});
+            return CompletableFuture.completedFuture(true);
+        }
+
+        @Override
+        public boolean sendTextMessage(String chatId, String text) {
+            return true;
+        }
+
+        private List<String> editsOf(int messageId) {
+            return edits.stream()
+                        .filter(edit -> (Integer) edit[0] == messageId)
+                        .map(edit -> (String) edit[1])
+                        .toList();
+        }
+
+        @Override
+        public String extractMessageText(Update update) {
+            return null;
+        }
+
+        @Override
+        public String extractChatId(Update update) {
+            return null;
+        }
+
+        @Override
+        public String extractUserId(Update update) {
+            return null;
+        }
+
+        @Override
+        public boolean hasTextMessage(Update update) {
+            return false;
+        }
+
+        @Override
+        public Message extractMessage(Update update) {
+            return null;
+        }
+    }
+}
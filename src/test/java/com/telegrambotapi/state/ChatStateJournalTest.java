@@ -0,0 +1,191 @@
+package com.telegrambotapi.state;
+
+import com.telegrambotapi.config.ConfigurationManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.BeanUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recuperación del estado tras apagados limpios y caídas a mitad de escritura.
+ * El hilo de escritura se programa con un intervalo muy largo y los lotes se fuerzan
+ * desde el test, de modo que se sabe exactamente qué registros hay en el diario.
+ */
+class ChatStateJournalTest {
+
+    private static final int HEADER_BYTES = 8;
+
+    @TempDir
+    Path directory;
+
+    private final List<ChatStateStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void stopStores() {
+        stores.forEach(ChatStateStore::shutdown);
+    }
+
+    @Test
+    void cleanShutdownRestoresEveryChat() {
+        Node node = start();
+        node.store.update("chat-1", state -> state.addMessage("hola", 10));
+        node.store.update("chat-2", state -> state.setConversationState("esperando_producto"));
+        node.journal.shutdown();
+
+        Node restarted = start();
+        assertEquals(2, restarted.store.size());
+        assertEquals("hola", restarted.store.read("chat-1", state -> state.buildContext(100), "").trim());
+        assertEquals("esperando_producto",
+                     restarted.store.read("chat-2", ChatState::getConversationState, null));
+    }
+
+    @Test
+    void tornLastRecordKeepsTheValidPrefix() throws IOException {
+        Node node = start();
+        long lastRecordStart = writeThreeChatsAndCrash(node);
+
+        // Caída a mitad del último registro: la cabecera está, el payload no entero
+        try (FileChannel channel = FileChannel.open(currentJournal(), StandardOpenOption.WRITE)) {
+            channel.truncate(lastRecordStart + HEADER_BYTES + 4);
+        }
+
+        assertOnlyFirstTwoChatsRestored(start());
+    }
+
+    @Test
+    void checksumMismatchInLastRecordKeepsTheValidPrefix() throws IOException {
+        Node node = start();
+        long lastRecordStart = writeThreeChatsAndCrash(node);
+
+        try (FileChannel channel = FileChannel.open(currentJournal(),
+                                                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = lastRecordStart + HEADER_BYTES + 2;
+            ByteBuffer single = ByteBuffer.allocate(1);
+            channel.read(single, position);
+            single.put(0, (byte) (single.get(0) ^ 0x5A));
+            single.rewind();
+            channel.write(single, position);
+        }
+
+        assertOnlyFirstTwoChatsRestored(start());
+    }
+
+    @Test
+    void compactionReplacesTheSnapshotAndDropsOldJournals() throws IOException {
+        Node node = start();
+        node.store.update("chat-1", state -> state.addMessage("antes", 10));
+        flush(node);
+        ReflectionTestUtils.invokeMethod(node.journal, "compact");
+        node.store.update("chat-2", state -> state.addMessage("después", 10));
+        flush(node);
+        crash(node);
+
+        // Un snapshot a medio escribir de una compactación interrumpida no debe leerse
+        Files.write(directory.resolve("snapshot.tmp"), new byte[] {1, 2, 3});
+        List<Path> journalsBefore = journals();
+        assertEquals(1, journalsBefore.size());
+
+        Node restarted = start();
+        assertEquals(2, restarted.store.size());
+        assertTrue(Files.exists(directory.resolve("snapshot.bin")));
+        assertFalse(Files.exists(directory.resolve("snapshot.tmp")));
+        List<Path> journalsAfter = journals();
+        assertEquals(1, journalsAfter.size());
+        assertFalse(journalsAfter.equals(journalsBefore));
+    }
+
+    /**
+     * Escribe tres chats en lotes separados y detiene el hilo de escritura sin apagado limpio
+     * @return desplazamiento en el diario donde empieza el registro del tercer chat
+     */
+    private long writeThreeChatsAndCrash(Node node) {
+        node.store.update("chat-1", state -> state.addMessage("primero", 10));
+        flush(node);
+        node.store.update("chat-2", state -> state.addMessage("segundo", 10));
+        flush(node);
+        long lastRecordStart = node.journal.getJournalBytes();
+        node.store.update("chat-3", state -> state.addMessage("tercero", 10));
+        flush(node);
+        crash(node);
+        return lastRecordStart;
+    }
+
+    private void assertOnlyFirstTwoChatsRestored(Node restarted) {
+        assertEquals(2, restarted.store.size());
+        assertEquals("primero", restarted.store.read("chat-1", state -> state.buildContext(100), "").trim());
+        assertEquals("segundo", restarted.store.read("chat-2", state -> state.buildContext(100), "").trim());
+        assertNull(restarted.store.read("chat-3", state -> state.buildContext(100), null));
+    }
+
+    private Path currentJournal() throws IOException {
+        List<Path> journals = journals();
+        return journals.get(journals.size() - 1);
+    }
+
+    private List<Path> journals() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("journal-"))
+                        .sorted()
+                        .toList();
+        }
+    }
+
+    private static void flush(Node node) {
+        ReflectionTestUtils.invokeMethod(node.journal, "flush");
+    }
+
+    private static void crash(Node node) {
+        ScheduledExecutorService flusher =
+            (ScheduledExecutorService) ReflectionTestUtils.getField(node.journal, "flusher");
+        flusher.shutdownNow();
+    }
+
+    private Node start() {
+        ConfigurationManager config = BeanUtils.instantiateClass(ConfigurationManager.class);
+        config.setChatStoreShards(4);
+        config.setChatStoreMaxChats(1000);
+        config.setChatStoreMaxMemoryMb(16);
+        config.setChatStoreIdleTtlMinutes(60);
+        config.setChatStoreSweepIntervalSeconds(3600);
+        config.setPersistenceEnabled(true);
+        config.setPersistenceDir(directory.toString());
+        config.setPersistenceFlushIntervalMs(3_600_000);
+        config.setPersistenceRegionMb(1);
+        config.setPersistenceCompactionThresholdMb(64);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ChatStateStore store = new ChatStateStore();
+        ReflectionTestUtils.setField(store, "config", config);
+        ReflectionTestUtils.setField(store, "meterRegistry", meterRegistry);
+        store.initialize();
+        stores.add(store);
+
+        ChatStateJournal journal = new ChatStateJournal();
+        ReflectionTestUtils.setField(journal, "config", config);
+        ReflectionTestUtils.setField(journal, "chatStateStore", store);
+        ReflectionTestUtils.setField(journal, "meterRegistry", meterRegistry);
+        journal.initialize();
+        return new Node(store, journal);
+    }
+
+    private record Node(ChatStateStore store, ChatStateJournal journal) {
+    }
+}
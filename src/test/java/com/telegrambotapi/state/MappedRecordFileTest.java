@@ -0,0 +1,140 @@
+package com.telegrambotapi.state;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedRecordFileTest {
+
+    private static final int HEADER_BYTES = 8;
+    private static final int REGION_BYTES = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackEveryRecordAcrossRegions() throws IOException {
+        Path file = directory.resolve("journal.log");
+        List<String> written = new ArrayList<>();
+        try (MappedRecordFile records = MappedRecordFile.create(file, REGION_BYTES)) {
+            for (int i = 0; i < 200; i++) {
+                String payload = "registro " + i + " " + "x".repeat(i % 50);
+                records.append(payload.getBytes(StandardCharsets.UTF_8));
+                written.add(payload);
+            }
+            assertTrue(records.size() > REGION_BYTES);
+        }
+
+        List<String> read = new ArrayList<>();
+        assertTrue(MappedRecordFile.readAll(file, payload -> read.add(decode(payload))));
+        assertEquals(written, read);
+    }
+
+    @Test
+    void recordLargerThanTheRegionGetsItsOwnRegion() throws IOException {
+        Path file = directory.resolve("journal.log");
+        String large = "y".repeat(REGION_BYTES * 2);
+        try (MappedRecordFile records = MappedRecordFile.create(file, REGION_BYTES)) {
+            records.append("antes".getBytes(StandardCharsets.UTF_8));
+            records.append(large.getBytes(StandardCharsets.UTF_8));
+            records.append("después".getBytes(StandardCharsets.UTF_8));
+        }
+
+        List<String> read = new ArrayList<>();
+        assertTrue(MappedRecordFile.readAll(file, payload -> read.add(decode(payload))));
+        assertEquals(List.of("antes", large, "después"), read);
+    }
+
+    @Test
+    void tornTailKeepsTheValidPrefix() throws IOException {
+        Path file = directory.resolve("journal.log");
+        long validBytes = writeRecords(file, "uno", "dos", "tres-cortado");
+
+        // Caída a mitad del último registro: la cabecera está, el payload no entero
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(validBytes + HEADER_BYTES + 4);
+        }
+
+        List<String> read = new ArrayList<>();
+        assertFalse(MappedRecordFile.readAll(file, payload -> read.add(decode(payload))));
+        assertEquals(List.of("uno", "dos"), read);
+    }
+
+    @Test
+    void checksumMismatchInLastRecordKeepsTheValidPrefix() throws IOException {
+        Path file = directory.resolve("journal.log");
+        long validBytes = writeRecords(file, "uno", "dos", "tres-corrupto");
+
+        flipByte(file, validBytes + HEADER_BYTES + 2);
+
+        List<String> read = new ArrayList<>();
+        assertFalse(MappedRecordFile.readAll(file, payload -> read.add(decode(payload))));
+        assertEquals(List.of("uno", "dos"), read);
+    }
+
+    @Test
+    void corruptLengthDoesNotReadPastTheFile() throws IOException {
+        Path file = directory.resolve("journal.log");
+        long validBytes = writeRecords(file, "uno", "dos");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE), validBytes);
+        }
+
+        List<String> read = new ArrayList<>();
+        assertFalse(MappedRecordFile.readAll(file, payload -> read.add(decode(payload))));
+        assertEquals(List.of("uno"), read);
+    }
+
+    @Test
+    void emptyFileIsClean() throws IOException {
+        Path file = Files.createFile(directory.resolve("journal.log"));
+
+        assertTrue(MappedRecordFile.readAll(file, payload -> {
+            throw new AssertionError("no debería haber registros");
+        }));
+    }
+
+    /**
+     * Escribe los registros y devuelve el desplazamiento donde empieza el último
+     */
+    private static long writeRecords(Path file, String... payloads) throws IOException {
+        long lastStart = 0;
+        try (MappedRecordFile records = MappedRecordFile.create(file, REGION_BYTES)) {
+            for (String payload : payloads) {
+                lastStart = records.size();
+                records.append(payload.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return lastStart;
+    }
+
+    private static void flipByte(Path file, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer single = ByteBuffer.allocate(1);
+            channel.read(single, position);
+            single.put(0, (byte) (single.get(0) ^ 0x5A));
+            single.rewind();
+            channel.write(single, position);
+        }
+    }
+
+    private static String decode(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
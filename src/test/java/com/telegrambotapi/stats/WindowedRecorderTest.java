@@ -0,0 +1,90 @@
+package com.telegrambotapi.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WindowedRecorderTest {
+
+    private static final long INTERVAL_SECONDS = 10;
+
+    @Test
+    void bucketUpperBoundStaysWithinTheRelativeError() {
+        for (long micros = 0; micros < 200_000_000L; micros = micros < 64 ? micros + 1 : micros * 17 / 16) {
+            long upper = WindowedRecorder.bucketUpperMicros(WindowedRecorder.bucketIndex(micros));
+            long expected = Math.min(micros, (1L << 27) - 1);
+            assertTrue(upper >= expected, micros + " µs -> " + upper);
+            assertTrue(upper <= expected + expected / 8, micros + " µs -> " + upper);
+        }
+    }
+
+    @Test
+    void emptyWindowReportsZeroPercentiles() {
+        WindowedRecorder recorder = new WindowedRecorder(6);
+        recorder.roll();
+
+        Map<String, Object> window = recorder.window(6, INTERVAL_SECONDS);
+
+        assertEquals(0L, window.get("total"));
+        assertEquals(0.0, window.get("latenciaP95Ms"));
+        assertEquals(0.0, window.get("latenciaP99Ms"));
+    }
+
+    @Test
+    void percentilesFollowTheTailNotTheAverage() {
+        WindowedRecorder recorder = new WindowedRecorder(6);
+        record(recorder, 90, 10);
+        record(recorder, 8, 200);
+        record(recorder, 2, 2000);
+        recorder.roll();
+
+        Map<String, Object> window = recorder.window(6, INTERVAL_SECONDS);
+
+        assertEquals(100L, window.get("total"));
+        assertAround(200, (double) window.get("latenciaP95Ms"));
+        assertAround(2000, (double) window.get("latenciaP99Ms"));
+        assertTrue((double) window.get("latenciaMediaMs") < 100);
+    }
+
+    @Test
+    void windowOnlyCountsItsOwnIntervals() {
+        WindowedRecorder recorder = new WindowedRecorder(6);
+        record(recorder, 100, 1000);
+        recorder.roll();
+        record(recorder, 100, 5);
+        recorder.roll();
+
+        assertAround(5, (double) recorder.window(1, INTERVAL_SECONDS).get("latenciaP99Ms"));
+        assertAround(1000, (double) recorder.window(2, INTERVAL_SECONDS).get("latenciaP99Ms"));
+    }
+
+    @Test
+    void oldIntervalsLeaveTheHistory() {
+        WindowedRecorder recorder = new WindowedRecorder(2);
+        record(recorder, 10, 1000);
+        recorder.roll();
+        record(recorder, 10, 5);
+        recorder.roll();
+        recorder.roll();
+
+        Map<String, Object> window = recorder.window(2, INTERVAL_SECONDS);
+
+        assertEquals(10L, window.get("total"));
+        assertAround(5, (double) window.get("latenciaP99Ms"));
+    }
+
+    private static void record(WindowedRecorder recorder, int operations, long millis) {
+        for (int i = 0; i < operations; i++) {
+            recorder.record(TimeUnit.MILLISECONDS.toNanos(millis), true);
+        }
+    }
+
+    private static void assertAround(double expectedMs, double actualMs) {
+        assertTrue(actualMs >= expectedMs && actualMs <= expectedMs * 1.125,
+                   actualMs + " ms, se esperaba ~" + expectedMs);
+    }
+}
@@ -0,0 +1,115 @@
+package com.telegrambotapi.strategy;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopicMatcherTest {
+
+    @Test
+    void foldsCaseAndAccentsInTermsAndText() {
+        TopicMatcher matcher = TopicMatcher.compile(List.of("pésame", "CÁNCER"));
+
+        assertTrue(matcher.matches("Mi más sentido PÉSAME a la familia"));
+        assertTrue(matcher.matches("le dieron el pesame"));
+        assertTrue(matcher.matches("tiene cancer"));
+        assertTrue(matcher.matches("Tiene CÁNCER"));
+    }
+
+    @Test
+    void rootTermMatchesAnyWordStartingWithIt() {
+        TopicMatcher matcher = TopicMatcher.compile(List.of("muert*"));
+
+        assertTrue(matcher.matches("la muerte"));
+        assertTrue(matcher.matches("los muertos"));
+        assertTrue(matcher.matches("Muerta de risa"));
+        assertFalse(matcher.matches("almuerto temprano"));
+    }
+
+    @Test
+    void wholeWordTermAcceptsOnlySOrEsPlural() {
+        TopicMatcher matcher = TopicMatcher.compile(List.of("luto", "tumor"));
+
+        assertTrue(matcher.matches("estamos de luto"));
+        assertTrue(matcher.matches("lutos"));
+        assertTrue(matcher.matches("tumores benignos"));
+        assertFalse(matcher.matches("lutoso"));
+        assertFalse(matcher.matches("tumoral"));
+        assertFalse(matcher.matches("lutoses"));
+    }
+
+    @Test
+    void multiWordTermMatchesAcrossAnyWhitespace() {
+        TopicMatcher matcher = TopicMatcher.compile(List.of("derrame  cerebral"));
+
+        assertTrue(matcher.matches("sufrió un derrame cerebral ayer"));
+        assertTrue(matcher.matches("un DERRAME Cerebral"));
+        assertTrue(matcher.matches("derrame\ncerebral"));
+        assertFalse(matcher.matches("derrame de aceite"));
+    }
+
+    @Test
+    void matchesOnlyAtWordBoundaries() {
+        TopicMatcher matcher = TopicMatcher.compile(List.of("uci", "guerra*"));
+
+        assertTrue(matcher.matches("está en la UCI."));
+        assertTrue(matcher.matches("(uci)"));
+        assertFalse(matcher.matches("lucia vino"));
+        assertFalse(matcher.matches("ucima"));
+        assertFalse(matcher.matches("posguerra"));
+        assertEquals(4, matcher.findFirst("ver guerras"));
+        assertEquals(-1, matcher.findFirst("nada que ver"));
+    }
+
+    @Test
+    void reportsFirstMatchWhenTermsOverlap() {
+        TopicMatcher matcher = TopicMatcher.compile(List.of("dolor*", "dolores de cabeza", "cabeza"));
+
+        assertEquals(3, matcher.findFirst("un dolor de cabeza"));
+        assertEquals(6, matcher.findFirst("me da cabeza"));
+    }
+
+    @Test
+    void rootWinsOverWholeWordForTheSameTerm() {
+        TopicMatcher matcher = TopicMatcher.compile(List.of("herida", "Herida*"));
+
+        assertEquals(1, matcher.size());
+        assertTrue(matcher.matches("heridas leves"));
+        assertTrue(matcher.matches("heridazo"));
+    }
+
+    @Test
+    void emptyLexiconNeverMatches() {
+        TopicMatcher matcher = TopicMatcher.compile(List.of("   ", "*"));
+
+        assertEquals(0, matcher.size());
+        assertFalse(matcher.matches("cualquier texto"));
+        assertFalse(matcher.matches(null));
+    }
+
+    @Test
+    void bundledLexiconKeepsTheOriginalSensitiveTopics() throws IOException {
+        TopicMatcher matcher;
+        try (InputStream lexicon = TopicMatcherTest.class.getResourceAsStream("/sensitive-topics.txt")) {
+            assertNotNull(lexicon, "falta sensitive-topics.txt en el classpath");
+            matcher = TopicMatcher.load(lexicon);
+        }
+
+        // Términos que el filtro original bloqueaba con contains()
+        for (String topic : List.of("muerte", "enfermedad", "accidente", "problema", "triste", "dolor")) {
+            assertTrue(matcher.matches("hablando de " + topic + " hoy"), topic);
+            assertTrue(matcher.matches(topic.toUpperCase()), topic);
+        }
+        assertTrue(matcher.matches("tuvo un accidente de tráfico"));
+        assertTrue(matcher.matches("muchos problemas"));
+        assertTrue(matcher.matches("dolores"));
+        assertFalse(matcher.matches("¿quedamos para comer el viernes?"));
+    }
+}